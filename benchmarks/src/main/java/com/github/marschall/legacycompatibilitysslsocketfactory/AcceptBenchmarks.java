@@ -0,0 +1,76 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the accept rate of a loopback server using either the JDK server socket factory
+ * or {@link LegacyCompatibilitySSLServerSocketFactory}.
+ * <p>
+ * Every operation connects, completes the handshake and does a one byte round trip so the
+ * server has accepted the connection.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class AcceptBenchmarks {
+
+  @Param({"raw", "wrapped"})
+  public String serverSocketFactory;
+
+  private LoopbackTlsServer server;
+
+  private SSLSocketFactory sslSocketFactory;
+
+  @Setup(Level.Trial)
+  public void setUp() throws GeneralSecurityException, IOException {
+    TestPki pki = TestPki.create("EC");
+    SSLServerSocketFactory jdkServerSocketFactory = pki.newServerContext().getServerSocketFactory();
+    this.server = new LoopbackTlsServer(switch (this.serverSocketFactory) {
+      case "raw" -> jdkServerSocketFactory;
+      case "wrapped" -> new LegacyCompatibilitySSLServerSocketFactory(jdkServerSocketFactory);
+      default -> throw new IllegalArgumentException("unknown server socket factory: " + this.serverSocketFactory);
+    });
+    this.sslSocketFactory = pki.newClientContext().getSocketFactory();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    this.server.close();
+  }
+
+  @Benchmark
+  public int accept() throws IOException {
+    try (SSLSocket socket = (SSLSocket) this.sslSocketFactory.createSocket(this.server.getAddress(), this.server.getPort())) {
+      socket.setTcpNoDelay(true);
+      socket.startHandshake();
+      socket.getOutputStream().write(1);
+      return socket.getInputStream().read();
+    }
+  }
+
+}
@@ -0,0 +1,90 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares converting the peer certificate chains of many sessions one by one through
+ * {@link javax.net.ssl.SSLSession#getPeerCertificateChain()} with
+ * {@link LegacyCertificates#adaptChains(List)}.
+ * <p>
+ * Every session has its own server certificate but all share the intermediate and root
+ * certificates, like the sessions of an audit job talking to many hosts of the same
+ * organization.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AdaptChainsBenchmarks {
+
+  @Param({"1000", "10000"})
+  public int sessions;
+
+  private List<Certificate[]> chains;
+
+  @Setup(Level.Trial)
+  public void setUp() throws GeneralSecurityException {
+    KeyPair rootKeyPair = TestCertificates.generateKeyPair("EC");
+    X509Certificate root = TestCertificates.selfSigned("CN=Test Root, O=Legacy Compatibility", rootKeyPair);
+    KeyPair intermediateKeyPair = TestCertificates.generateKeyPair("EC");
+    X509Certificate intermediate = TestCertificates.issueCa("CN=Test Intermediate, O=Legacy Compatibility",
+            intermediateKeyPair.getPublic(), root, rootKeyPair.getPrivate());
+    PublicKey leafKey = TestCertificates.generateKeyPair("EC").getPublic();
+    this.chains = new ArrayList<>(this.sessions);
+    for (int i = 0; i < this.sessions; i++) {
+      String host = "host" + i + ".example.com";
+      X509Certificate leaf = TestCertificates.issueLeaf("CN=" + host + ", O=Legacy Compatibility", leafKey, List.of(host),
+              intermediate, intermediateKeyPair.getPrivate());
+      this.chains.add(new Certificate[] {leaf, intermediate, root});
+    }
+  }
+
+  /**
+   * What an audit job did before, with a cache of the default size.
+   */
+  @Benchmark
+  public List<javax.security.cert.X509Certificate[]> oneByOne() throws SSLPeerUnverifiedException {
+    CertificateAdapterCache cache = new CertificateAdapterCache(256);
+    List<javax.security.cert.X509Certificate[]> adaptedChains = new ArrayList<>(this.chains.size());
+    for (Certificate[] chain : this.chains) {
+      adaptedChains.add(new LegacyCompatibilitySSLSession(new StubSSLSession(chain), cache).getPeerCertificateChain());
+    }
+    return adaptedChains;
+  }
+
+  @Benchmark
+  public List<javax.security.cert.X509Certificate[]> batch() {
+    return LegacyCertificates.adaptChains(this.chains);
+  }
+
+  @Benchmark
+  public List<javax.security.cert.X509Certificate[]> batchParallel() {
+    return LegacyCertificates.adaptChains(this.chains, ForkJoinPool.commonPool());
+  }
+
+}
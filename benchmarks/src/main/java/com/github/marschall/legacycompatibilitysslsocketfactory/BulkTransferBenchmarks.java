@@ -0,0 +1,77 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLSocket;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures bulk throughput through {@link SSLSocket#getOutputStream()} and
+ * {@link SSLSocket#getInputStream()} by sending a message to the loopback
+ * echo server and reading it back.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BulkTransferBenchmarks {
+
+  @Param({"raw", "wrapped"})
+  public String socketFactory;
+
+  @Param({"1024", "65536"})
+  public int messageSize;
+
+  private SSLSocket socket;
+
+  private InputStream inputStream;
+
+  private OutputStream outputStream;
+
+  private byte[] message;
+
+  private byte[] response;
+
+  @Setup(Level.Trial)
+  public void setUp(LoopbackServerState server) throws IOException {
+    this.socket = server.connect(server.newSocketFactory(this.socketFactory));
+    this.socket.startHandshake();
+    this.inputStream = this.socket.getInputStream();
+    this.outputStream = this.socket.getOutputStream();
+    this.message = new byte[this.messageSize];
+    ThreadLocalRandom.current().nextBytes(this.message);
+    this.response = new byte[this.messageSize];
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    this.socket.close();
+  }
+
+  @Benchmark
+  public int echo() throws IOException {
+    this.outputStream.write(this.message);
+    this.outputStream.flush();
+    return this.inputStream.readNBytes(this.response, 0, this.messageSize);
+  }
+
+}
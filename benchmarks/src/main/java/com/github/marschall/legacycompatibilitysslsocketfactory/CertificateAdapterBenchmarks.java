@@ -0,0 +1,158 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.security.GeneralSecurityException;
+import java.security.Principal;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures repeated access to the getters of a {@link CertificateAdapter} that legacy code
+ * typically calls for logging.
+ * <p>
+ * The {@code delegate} benchmarks call the {@link X509Certificate} directly, which is what
+ * the adapter did before it kept derived values, and compute the hash code the way
+ * {@link javax.security.cert.Certificate#hashCode()} does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CertificateAdapterBenchmarks {
+
+  private X509Certificate certificate;
+
+  private CertificateAdapter adapter;
+
+  private Date afterValidity;
+
+  @Setup(Level.Trial)
+  public void setUp() throws GeneralSecurityException {
+    TestPki pki = TestPki.create("RSA", 1);
+    this.certificate = pki.getChain()[0];
+    this.adapter = new CertificateAdapter(this.certificate);
+    this.afterValidity = new Date(this.certificate.getNotAfter().getTime() + 1L);
+  }
+
+  @Benchmark
+  public Principal subjectDNDelegate() {
+    return this.certificate.getSubjectDN();
+  }
+
+  @Benchmark
+  public Principal subjectDNAdapter() {
+    return this.adapter.getSubjectDN();
+  }
+
+  @Benchmark
+  public byte[] encodedDelegate() throws GeneralSecurityException {
+    return this.certificate.getEncoded();
+  }
+
+  @Benchmark
+  public byte[] encodedAdapter() throws javax.security.cert.CertificateEncodingException {
+    return this.adapter.getEncoded();
+  }
+
+  @Benchmark
+  public String toStringDelegate() {
+    return this.certificate.toString();
+  }
+
+  @Benchmark
+  public String toStringAdapter() {
+    return this.adapter.toString();
+  }
+
+  @Benchmark
+  public int hashCodeDelegate() throws GeneralSecurityException {
+    byte[] encoded = this.certificate.getEncoded();
+    int hash = 0;
+    for (int i = 1; i < encoded.length; i++) {
+      hash += encoded[i] * i;
+    }
+    return hash;
+  }
+
+  @Benchmark
+  public int hashCodeAdapter() {
+    return this.adapter.hashCode();
+  }
+
+  /**
+   * The typical logging of a peer certificate.
+   */
+  @Benchmark
+  public void loggingDelegate(Blackhole blackhole) throws GeneralSecurityException {
+    blackhole.consume(this.certificate.getSubjectDN().getName());
+    blackhole.consume(this.certificate.getIssuerDN().getName());
+    blackhole.consume(this.certificate.getEncoded());
+    blackhole.consume(this.certificate.toString());
+  }
+
+  /**
+   * The typical logging of a peer certificate.
+   */
+  @Benchmark
+  public void loggingAdapter(Blackhole blackhole) throws javax.security.cert.CertificateEncodingException {
+    blackhole.consume(this.adapter.getSubjectDN().getName());
+    blackhole.consume(this.adapter.getIssuerDN().getName());
+    blackhole.consume(this.adapter.getEncoded());
+    blackhole.consume(this.adapter.toString());
+  }
+
+  @Benchmark
+  public void checkValidityDelegate() throws GeneralSecurityException {
+    this.certificate.checkValidity();
+  }
+
+  @Benchmark
+  public void checkValidityAdapter() throws javax.security.cert.CertificateException {
+    this.adapter.checkValidity();
+  }
+
+  /**
+   * Translates the exception the way the adapter did before it kept the validity period.
+   */
+  @Benchmark
+  public Exception expiredDelegate() {
+    try {
+      this.certificate.checkValidity(this.afterValidity);
+      return null;
+    } catch (java.security.cert.CertificateExpiredException e) {
+      javax.security.cert.CertificateExpiredException deprecatedException = new javax.security.cert.CertificateExpiredException(e.getMessage());
+      deprecatedException.initCause(e);
+      return deprecatedException;
+    } catch (java.security.cert.CertificateNotYetValidException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Benchmark
+  public Exception expiredAdapter() {
+    try {
+      this.adapter.checkValidity(this.afterValidity);
+      return null;
+    } catch (javax.security.cert.CertificateExpiredException e) {
+      return e;
+    } catch (javax.security.cert.CertificateNotYetValidException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
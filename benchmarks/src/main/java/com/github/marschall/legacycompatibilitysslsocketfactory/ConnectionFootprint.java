@@ -0,0 +1,73 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Opens many connections to a loopback server and prints the memory retained per client
+ * connection, once with the JDK socket factory and once with {@link LegacyCompatibilitySSLSocketFactory},
+ * using <a href="https://github.com/openjdk/jol">JOL</a>.
+ * <p>
+ * Everything reachable from the client sockets is counted, objects shared by all connections
+ * like the {@link javax.net.ssl.SSLContext} are counted once. Every connection does a one byte
+ * round trip so all buffers are allocated.
+ * <p>
+ * Run with {@code -Djol.magicFieldOffset=true}.
+ */
+public final class ConnectionFootprint {
+
+  private ConnectionFootprint() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Runs the measurement.
+   *
+   * @param args optionally the number of connections, defaults to 1000
+   */
+  public static void main(String[] args) throws GeneralSecurityException, IOException {
+    int connections = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    TestPki pki = TestPki.create("EC");
+    try (LoopbackTlsServer server = new LoopbackTlsServer(pki.newServerContext())) {
+      SSLSocketFactory raw = pki.newClientContext().getSocketFactory();
+      SSLSocketFactory wrapped = new LegacyCompatibilitySSLSocketFactory(raw);
+
+      long rawBytes = retainedPerConnection(raw, server, connections);
+      long wrappedBytes = retainedPerConnection(wrapped, server, connections);
+      System.out.printf("%d connections%n", connections);
+      System.out.printf("raw:      %6d bytes per connection%n", rawBytes);
+      System.out.printf("wrapped:  %6d bytes per connection%n", wrappedBytes);
+      System.out.printf("overhead: %6d bytes per connection%n", wrappedBytes - rawBytes);
+    }
+  }
+
+  private static long retainedPerConnection(SSLSocketFactory socketFactory, LoopbackTlsServer server, int connections) throws IOException {
+    List<SSLSocket> sockets = new ArrayList<>(connections);
+    try {
+      for (int i = 0; i < connections; i++) {
+        SSLSocket socket = (SSLSocket) socketFactory.createSocket(server.getAddress(), server.getPort());
+        sockets.add(socket);
+        socket.startHandshake();
+        socket.getSession();
+        socket.getOutputStream().write(1);
+        socket.getOutputStream().flush();
+        if (socket.getInputStream().read() != 1) {
+          throw new IOException("echo does not match");
+        }
+      }
+      return GraphLayout.parseInstance(sockets.toArray()).totalSize() / connections;
+    } finally {
+      for (SSLSocket socket : sockets) {
+        socket.close();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,103 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.ByteArrayInputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares converting DER encoded certificates to {@link javax.security.cert.X509Certificate}
+ * through {@link CertificateFactory} and {@link CertificateAdapter} with
+ * {@link LegacyCertificates#fromEncoded(byte[])}.
+ * <p>
+ * {@link CertificateFactory} caches the certificates it parsed by their encoding, so the
+ * benchmarks cycle through more distinct certificates than fit into that cache.
+ * {@code parse} only converts a certificate, {@code logging} additionally reads the fields
+ * legacy code typically logs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncodedCertificateBenchmarks {
+
+  @Param({"RSA", "EC"})
+  public String keyAlgorithm;
+
+  private byte[][] encodings;
+
+  private CertificateFactory factory;
+
+  private int index;
+
+  @Setup(Level.Trial)
+  public void setUp() throws GeneralSecurityException {
+    KeyPair rootKeyPair = TestCertificates.generateKeyPair(this.keyAlgorithm);
+    X509Certificate root = TestCertificates.selfSigned("CN=Test Root, O=Legacy Compatibility", rootKeyPair);
+    PublicKey leafKey = TestCertificates.generateKeyPair(this.keyAlgorithm).getPublic();
+    // more than the 750 entries of the cache of the JDK certificate factory
+    this.encodings = new byte[1024][];
+    for (int i = 0; i < this.encodings.length; i++) {
+      String host = "host" + i + ".example.com";
+      this.encodings[i] = TestCertificates.issueLeaf("CN=" + host + ", O=Legacy Compatibility", leafKey, List.of(host),
+              root, rootKeyPair.getPrivate()).getEncoded();
+    }
+    this.factory = CertificateFactory.getInstance("X.509");
+  }
+
+  private byte[] nextEncoding() {
+    byte[] encoding = this.encodings[this.index];
+    this.index = (this.index + 1) & (this.encodings.length - 1);
+    return encoding;
+  }
+
+  @Benchmark
+  public javax.security.cert.X509Certificate parseFactory() throws GeneralSecurityException {
+    X509Certificate certificate = (X509Certificate) this.factory.generateCertificate(new ByteArrayInputStream(this.nextEncoding()));
+    return new CertificateAdapter(certificate);
+  }
+
+  @Benchmark
+  public javax.security.cert.X509Certificate parseEncoded() throws javax.security.cert.CertificateException {
+    return LegacyCertificates.fromEncoded(this.nextEncoding());
+  }
+
+  @Benchmark
+  public void loggingFactory(Blackhole blackhole) throws GeneralSecurityException {
+    X509Certificate certificate = (X509Certificate) this.factory.generateCertificate(new ByteArrayInputStream(this.nextEncoding()));
+    log(new CertificateAdapter(certificate), blackhole);
+  }
+
+  @Benchmark
+  public void loggingEncoded(Blackhole blackhole) throws javax.security.cert.CertificateException {
+    log(LegacyCertificates.fromEncoded(this.nextEncoding()), blackhole);
+  }
+
+  private static void log(javax.security.cert.X509Certificate certificate, Blackhole blackhole) {
+    blackhole.consume(certificate.getSubjectDN().getName());
+    blackhole.consume(certificate.getIssuerDN().getName());
+    blackhole.consume(certificate.getSerialNumber());
+    blackhole.consume(certificate.getNotAfter());
+  }
+
+}
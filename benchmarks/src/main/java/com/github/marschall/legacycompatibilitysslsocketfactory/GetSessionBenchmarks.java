@@ -0,0 +1,132 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the throughput of {@link LegacyCompatibilitySSLSocket#getSession()} against
+ * the previous implementation that took a lock on every call when several threads
+ * access the same socket.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GetSessionBenchmarks {
+
+  private SSLSocket delegate;
+
+  private SSLSocket legacyCompatibilitySocket;
+
+  private LockingSessionHolder lockingSessionHolder;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    // an unconnected socket returns a null session, which is good enough to measure the wrapper
+    this.delegate = (SSLSocket) SSLSocketFactory.getDefault().createSocket();
+    this.legacyCompatibilitySocket = new LegacyCompatibilitySSLSocket(this.delegate, CertificateAdapterCache.getDefault());
+    this.lockingSessionHolder = new LockingSessionHolder(this.delegate);
+    // only measure the fast path
+    this.legacyCompatibilitySocket.getSession();
+    this.lockingSessionHolder.getSession();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    this.delegate.close();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public SSLSession lockFreeOneThread() {
+    return this.legacyCompatibilitySocket.getSession();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public SSLSession lockFreeFourThreads() {
+    return this.legacyCompatibilitySocket.getSession();
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public SSLSession lockFreeMaxThreads() {
+    return this.legacyCompatibilitySocket.getSession();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public SSLSession lockingOneThread() {
+    return this.lockingSessionHolder.getSession();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public SSLSession lockingFourThreads() {
+    return this.lockingSessionHolder.getSession();
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public SSLSession lockingMaxThreads() {
+    return this.lockingSessionHolder.getSession();
+  }
+
+  /**
+   * The previous, lock based, implementation of {@link LegacyCompatibilitySSLSocket#getSession()}.
+   */
+  static final class LockingSessionHolder {
+
+    private final SSLSocket delegate;
+
+    private final Lock sessionLock;
+
+    private SSLSession sslSession;
+
+    LockingSessionHolder(SSLSocket delegate) {
+      this.delegate = delegate;
+      this.sessionLock = new ReentrantLock();
+    }
+
+    SSLSession getSession() {
+      this.sessionLock.lock();
+      try {
+        if (this.sslSession != null) {
+          return this.sslSession;
+        }
+        SSLSession delegateSession = this.delegate.getSession();
+        if (delegateSession != null) {
+          this.sslSession = new LegacyCompatibilitySSLSession(delegateSession, CertificateAdapterCache.getDefault());
+          return this.sslSession;
+        }
+        return null;
+      } finally {
+        this.sessionLock.unlock();
+      }
+    }
+
+  }
+
+}
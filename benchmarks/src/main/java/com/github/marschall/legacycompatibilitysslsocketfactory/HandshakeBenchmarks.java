@@ -0,0 +1,55 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of connecting to a loopback server and completing the handshake.
+ * <p>
+ * The client session cache is shared so handshakes after the first may be resumed,
+ * this is the same for both the raw and the wrapped socket factory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HandshakeBenchmarks {
+
+  @Param({"raw", "wrapped"})
+  public String socketFactory;
+
+  private SSLSocketFactory sslSocketFactory;
+
+  @Setup(Level.Trial)
+  public void setUp(LoopbackServerState server) {
+    this.sslSocketFactory = server.newSocketFactory(this.socketFactory);
+  }
+
+  @Benchmark
+  public SSLSession connectAndHandshake(LoopbackServerState server) throws IOException {
+    try (SSLSocket socket = server.connect(this.sslSocketFactory)) {
+      socket.startHandshake();
+      return socket.getSession();
+    }
+  }
+
+}
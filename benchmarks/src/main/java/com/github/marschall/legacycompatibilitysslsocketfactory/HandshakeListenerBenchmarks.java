@@ -0,0 +1,98 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the latency from starting the handshake until all handshake completed listeners
+ * have finished, with the listeners either notified on the thread delivering the event or
+ * through a shared executor.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HandshakeListenerBenchmarks {
+
+  @Param({"inline", "executor"})
+  public String dispatch;
+
+  @Param({"1", "10", "100"})
+  public int listeners;
+
+  /**
+   * The amount of work every listener does, in {@link Blackhole#consumeCPU(long)} tokens.
+   */
+  @Param({"1000", "100000"})
+  public long work;
+
+  private ExecutorService executor;
+
+  private SSLSocketFactory sslSocketFactory;
+
+  @Setup(Level.Trial)
+  public void setUp(LoopbackServerState server) {
+    SSLSocketFactory jdkSocketFactory = server.newSocketFactory("raw");
+    this.sslSocketFactory = switch (this.dispatch) {
+      case "inline" -> new LegacyCompatibilitySSLSocketFactory(jdkSocketFactory);
+      case "executor" -> {
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+          Thread thread = new Thread(runnable, "handshake-listener");
+          thread.setDaemon(true);
+          return thread;
+        });
+        yield new LegacyCompatibilitySSLSocketFactory(jdkSocketFactory, CertificateAdapterCache.getDefault(), this.executor);
+      }
+      default -> throw new IllegalArgumentException("unknown dispatch: " + this.dispatch);
+    };
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (this.executor != null) {
+      this.executor.shutdownNow();
+    }
+  }
+
+  @Benchmark
+  public void handshake(LoopbackServerState server) throws IOException, InterruptedException {
+    CountDownLatch notified = new CountDownLatch(this.listeners);
+    long tokens = this.work;
+    try (SSLSocket socket = server.connect(this.sslSocketFactory)) {
+      for (int i = 0; i < this.listeners; i++) {
+        socket.addHandshakeCompletedListener(event -> {
+          Blackhole.consumeCPU(tokens);
+          notified.countDown();
+        });
+      }
+      socket.startHandshake();
+      if (!notified.await(1L, TimeUnit.SECONDS)) {
+        throw new IllegalStateException("listeners not notified");
+      }
+    }
+  }
+
+}
@@ -0,0 +1,145 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jdk.jfr.Recording;
+
+/**
+ * Measures the overhead of the JFR events, {@link LegacyCompatibilityMetrics} and
+ * {@link CallSiteTracker}.
+ * <p>
+ * {@code none} is the default configuration and should be as fast as the code before
+ * instrumentation was added, {@code metrics} records into {@link LongAdder}s, {@code jfr}
+ * runs a recording with all events of this library enabled and {@code callSites} samples
+ * one in 100 callers of {@code getPeerCertificateChain()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InstrumentationBenchmarks {
+
+  @Param({"none", "metrics", "jfr", "callSites"})
+  public String instrumentation;
+
+  private SSLSession session;
+
+  private SSLSocketFactory socketFactory;
+
+  private Recording recording;
+
+  @Setup(Level.Trial)
+  public void setUp() throws GeneralSecurityException, IOException {
+    TestPki pki = TestPki.create("EC", 1);
+    StubSSLSession delegateSession = new StubSSLSession(pki.getChain());
+    SSLSocketFactory delegateFactory = pki.newClientContext().getSocketFactory();
+    CertificateAdapterCache cache = new CertificateAdapterCache(16);
+    switch (this.instrumentation) {
+      case "none" -> {
+        this.session = new LegacyCompatibilityExtendedSSLSession(delegateSession, cache);
+        this.socketFactory = new LegacyCompatibilitySSLSocketFactory(delegateFactory, cache);
+      }
+      case "metrics" -> {
+        LegacyCompatibilityMetrics metrics = new AdderMetrics();
+        this.session = new LegacyCompatibilityExtendedSSLSession(delegateSession, new SocketSettings(cache, null, metrics, null));
+        this.socketFactory = LegacyCompatibilitySSLSocketFactory.builder(delegateFactory)
+                .certificateAdapterCache(cache)
+                .metrics(metrics)
+                .build();
+      }
+      case "jfr" -> {
+        this.session = new LegacyCompatibilityExtendedSSLSession(delegateSession, cache);
+        this.socketFactory = new LegacyCompatibilitySSLSocketFactory(delegateFactory, cache);
+        this.recording = new Recording();
+        this.recording.enable(SocketCreatedEvent.class);
+        this.recording.enable(HandshakeEvent.class);
+        this.recording.enable(PeerCertificateChainEvent.class);
+        this.recording.setToDisk(false);
+        this.recording.start();
+      }
+      case "callSites" -> {
+        CallSiteTracker callSiteTracker = new CallSiteTracker(100, 1024, 3);
+        this.session = new LegacyCompatibilityExtendedSSLSession(delegateSession, new SocketSettings(cache, null, null, callSiteTracker));
+        this.socketFactory = LegacyCompatibilitySSLSocketFactory.builder(delegateFactory)
+                .certificateAdapterCache(cache)
+                .callSiteTracker(callSiteTracker)
+                .build();
+      }
+      default -> throw new IllegalArgumentException("unknown instrumentation: " + this.instrumentation);
+    }
+    // only measure the cached path
+    this.session.getPeerCertificateChain();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (this.recording != null) {
+      this.recording.close();
+    }
+  }
+
+  @Benchmark
+  public javax.security.cert.X509Certificate[] cachedPeerCertificateChain() throws SSLPeerUnverifiedException {
+    return this.session.getPeerCertificateChain();
+  }
+
+  @Benchmark
+  public Socket createUnconnectedSocket() throws IOException {
+    try (Socket socket = this.socketFactory.createSocket()) {
+      return socket;
+    }
+  }
+
+  static final class AdderMetrics implements LegacyCompatibilityMetrics {
+
+    private final LongAdder socketsCreated = new LongAdder();
+
+    private final LongAdder handshakeNanos = new LongAdder();
+
+    private final LongAdder chainsRequested = new LongAdder();
+
+    private final LongAdder chainNanos = new LongAdder();
+
+    @Override
+    public void socketCreated() {
+      this.socketsCreated.increment();
+    }
+
+    @Override
+    public void handshakeCompleted(long durationNanos) {
+      this.handshakeNanos.add(durationNanos);
+    }
+
+    @Override
+    public void peerCertificateChainRequested(int chainLength, boolean cached, long durationNanos) {
+      this.chainsRequested.increment();
+      this.chainNanos.add(durationNanos);
+    }
+
+  }
+
+}
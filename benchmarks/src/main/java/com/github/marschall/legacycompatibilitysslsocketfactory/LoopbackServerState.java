@@ -0,0 +1,73 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.security.GeneralSecurityException;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A loopback TLS echo server with a generated, in memory, certificate shared by all threads.
+ */
+@State(Scope.Benchmark)
+public class LoopbackServerState {
+
+  private LoopbackTlsServer server;
+
+  private SSLContext clientContext;
+
+  @Setup(Level.Trial)
+  public void setUp() throws GeneralSecurityException, IOException {
+    TestPki pki = TestPki.create("EC");
+    this.server = new LoopbackTlsServer(pki.newServerContext());
+    this.clientContext = pki.newClientContext();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    this.server.close();
+  }
+
+  /**
+   * Creates a new socket factory for the server.
+   *
+   * @param socketFactory either {@code "raw"} for the JDK socket factory or
+   *                      {@code "wrapped"} for {@link LegacyCompatibilitySSLSocketFactory}
+   * @return the socket factory
+   */
+  SSLSocketFactory newSocketFactory(String socketFactory) {
+    SSLSocketFactory jdkSocketFactory = this.clientContext.getSocketFactory();
+    return switch (socketFactory) {
+      case "raw" -> jdkSocketFactory;
+      case "wrapped" -> new LegacyCompatibilitySSLSocketFactory(jdkSocketFactory);
+      default -> throw new IllegalArgumentException("unknown socket factory: " + socketFactory);
+    };
+  }
+
+  /**
+   * Connects a new socket to the server.
+   *
+   * @param socketFactory the factory to create the socket with
+   * @return the connected socket, the handshake has not been started
+   * @throws IOException if the connection can not be established
+   */
+  SSLSocket connect(SSLSocketFactory socketFactory) throws IOException {
+    SSLSocket socket = (SSLSocket) socketFactory.createSocket(this.getAddress(), this.server.getPort());
+    // avoid Nagle's algorithm and delayed ACKs dominating the results
+    socket.setTcpNoDelay(true);
+    return socket;
+  }
+
+  InetAddress getAddress() {
+    return this.server.getAddress();
+  }
+
+}
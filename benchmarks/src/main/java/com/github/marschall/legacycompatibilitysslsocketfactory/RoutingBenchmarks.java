@@ -0,0 +1,95 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLSocketFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of choosing the delegate of a {@link RoutingSSLSocketFactory} with many
+ * routes.
+ * <p>
+ * A third of the routes are host names, domains and IPv4 address blocks with prefix lengths
+ * between 16 and 28. {@code host} looks up a host name, {@code domain} a host three labels
+ * below a domain, {@code address} an {@link InetAddress} and {@code miss} a host name matching
+ * no route.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoutingBenchmarks {
+
+  @Param({"10", "1000", "10000"})
+  public int routeCount;
+
+  @Param({"host", "domain", "address", "miss"})
+  public String lookup;
+
+  private RoutingSSLSocketFactory factory;
+
+  private String host;
+
+  private InetAddress address;
+
+  @Setup(Level.Trial)
+  public void setUp() throws UnknownHostException {
+    SSLSocketFactory defaultDelegate = (SSLSocketFactory) SSLSocketFactory.getDefault();
+    SSLSocketFactory routed = (SSLSocketFactory) SSLSocketFactory.getDefault();
+    RoutingSSLSocketFactory.Builder builder = RoutingSSLSocketFactory.builder(defaultDelegate);
+    for (int i = 0; i < this.routeCount / 3; i++) {
+      builder.route("host" + i + ".example.com", routed);
+      builder.route("*.zone" + i + ".example.net", routed);
+      int prefixLength = 16 + (i % 13);
+      // every block in a different /16 starting at 11.0.0.0
+      builder.route(InetAddress.getByAddress(toBytes(block(i))).getHostAddress() + '/' + prefixLength, routed);
+    }
+    this.factory = builder.build();
+    // in the middle of the routes
+    int index = this.routeCount / 6;
+    this.host = switch (this.lookup) {
+      case "host" -> "host" + index + ".example.com";
+      case "domain" -> "www.a.b.zone" + index + ".example.net";
+      case "address", "miss" -> "www.unrelated.example.org";
+      default -> throw new IllegalArgumentException("unknown lookup: " + this.lookup);
+    };
+    this.address = InetAddress.getByAddress(toBytes(block(index) | 1));
+    SSLSocketFactory expected = this.lookup.equals("miss") ? defaultDelegate : routed;
+    if (this.route() != expected) {
+      throw new IllegalStateException("unexpected delegate for: " + this.lookup);
+    }
+  }
+
+  private static int block(int index) {
+    return (11 << 8 | index) << 16;
+  }
+
+  private static byte[] toBytes(int address) {
+    return new byte[] {(byte) (address >>> 24), (byte) (address >>> 16), (byte) (address >>> 8), (byte) address};
+  }
+
+  @Benchmark
+  public SSLSocketFactory route() {
+    if (this.lookup.equals("address")) {
+      return this.factory.getDelegate(this.address);
+    }
+    return this.factory.getDelegate(this.host);
+  }
+
+}
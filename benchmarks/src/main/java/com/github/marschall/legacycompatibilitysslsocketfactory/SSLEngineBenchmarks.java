@@ -0,0 +1,99 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of {@link SSLEngine#wrap(ByteBuffer, ByteBuffer)} and
+ * {@link SSLEngine#unwrap(ByteBuffer, ByteBuffer)} of {@link LegacyCompatibilitySSLEngine}
+ * compared to the JDK {@link SSLEngine}.
+ * <p>
+ * Every operation is a round trip: the client wraps a message, the server unwraps it and
+ * wraps it again and the client unwraps the response. All buffers are direct.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SSLEngineBenchmarks {
+
+  @Param({"raw", "wrapped"})
+  public String engine;
+
+  @Param({"1024", "16384"})
+  public int messageSize;
+
+  private SSLEngine client;
+
+  private SSLEngine server;
+
+  private ByteBuffer message;
+
+  private ByteBuffer network;
+
+  private ByteBuffer serverApplication;
+
+  private ByteBuffer clientApplication;
+
+  @Setup(Level.Trial)
+  public void setUp() throws GeneralSecurityException, SSLException {
+    TestPki pki = TestPki.create("EC");
+    SSLEngine clientEngine = pki.newClientContext().createSSLEngine("localhost", 443);
+    clientEngine.setUseClientMode(true);
+    this.client = switch (this.engine) {
+      case "raw" -> clientEngine;
+      case "wrapped" -> new LegacyCompatibilitySSLEngine(clientEngine);
+      default -> throw new IllegalArgumentException("unknown engine: " + this.engine);
+    };
+    this.server = pki.newServerContext().createSSLEngine();
+    this.server.setUseClientMode(false);
+    TestSSLEngines.handshake(this.client, this.server);
+
+    byte[] bytes = new byte[this.messageSize];
+    ThreadLocalRandom.current().nextBytes(bytes);
+    this.message = ByteBuffer.allocateDirect(this.messageSize);
+    this.message.put(bytes);
+    this.network = ByteBuffer.allocateDirect(this.client.getSession().getPacketBufferSize());
+    this.serverApplication = ByteBuffer.allocateDirect(this.server.getSession().getApplicationBufferSize());
+    this.clientApplication = ByteBuffer.allocateDirect(this.client.getSession().getApplicationBufferSize());
+  }
+
+  @Benchmark
+  public int roundTrip() throws SSLException {
+    this.message.clear();
+    this.network.clear();
+    this.client.wrap(this.message, this.network);
+    this.network.flip();
+    this.serverApplication.clear();
+    this.server.unwrap(this.network, this.serverApplication);
+
+    this.serverApplication.flip();
+    this.network.clear();
+    this.server.wrap(this.serverApplication, this.network);
+    this.network.flip();
+    this.clientApplication.clear();
+    this.client.unwrap(this.network, this.clientApplication);
+    return this.clientApplication.position();
+  }
+
+}
@@ -0,0 +1,81 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.security.cert.Certificate;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of session access on an established connection.
+ * <p>
+ * {@link SSLSession#getPeerCertificateChain()} is only supported on the wrapped session,
+ * {@link SSLSession#getPeerCertificates()} is the closest equivalent on the raw session.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SessionAccessBenchmarks {
+
+  private SSLSocket rawSocket;
+
+  private SSLSocket wrappedSocket;
+
+  @Setup(Level.Trial)
+  public void setUp(LoopbackServerState server) throws IOException {
+    this.rawSocket = server.connect(server.newSocketFactory("raw"));
+    this.rawSocket.startHandshake();
+    this.wrappedSocket = server.connect(server.newSocketFactory("wrapped"));
+    this.wrappedSocket.startHandshake();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    this.rawSocket.close();
+    this.wrappedSocket.close();
+  }
+
+  @Benchmark
+  public SSLSession rawGetSession() {
+    return this.rawSocket.getSession();
+  }
+
+  @Benchmark
+  public SSLSession wrappedGetSession() {
+    return this.wrappedSocket.getSession();
+  }
+
+  @Benchmark
+  public Certificate[] rawGetPeerCertificates() throws SSLPeerUnverifiedException {
+    return this.rawSocket.getSession().getPeerCertificates();
+  }
+
+  @Benchmark
+  public Certificate[] wrappedGetPeerCertificates() throws SSLPeerUnverifiedException {
+    return this.wrappedSocket.getSession().getPeerCertificates();
+  }
+
+  @Benchmark
+  public javax.security.cert.X509Certificate[] wrappedGetPeerCertificateChain() throws SSLPeerUnverifiedException {
+    return this.wrappedSocket.getSession().getPeerCertificateChain();
+  }
+
+}
@@ -0,0 +1,132 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a plain {@link SocketChannel} with a {@link LegacyCompatibilitySocketChannel} doing
+ * a scatter and gather round trip with direct buffers through a loopback echo thread, selecting
+ * for readiness before every read.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SocketChannelBenchmarks {
+
+  @Param({"raw", "wrapped"})
+  public String channel;
+
+  @Param({"1024", "65536"})
+  public int messageSize;
+
+  private ServerSocketChannel serverChannel;
+
+  private Thread echoThread;
+
+  private SocketChannel socketChannel;
+
+  private Selector selector;
+
+  private ByteBuffer[] sources;
+
+  private ByteBuffer[] destinations;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    this.serverChannel = ServerSocketChannel.open();
+    this.serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    SocketChannel clientChannel = SocketChannel.open(this.serverChannel.getLocalAddress());
+    clientChannel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    SocketChannel peerChannel = this.serverChannel.accept();
+    peerChannel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    this.echoThread = new Thread(() -> echo(peerChannel), "echo");
+    this.echoThread.setDaemon(true);
+    this.echoThread.start();
+
+    this.socketChannel = switch (this.channel) {
+      case "raw" -> clientChannel;
+      case "wrapped" -> new LegacyCompatibilitySocketChannel(clientChannel, clientChannel.socket());
+      default -> throw new IllegalArgumentException("unknown channel: " + this.channel);
+    };
+    this.socketChannel.configureBlocking(false);
+    this.selector = this.socketChannel.provider().openSelector();
+    this.socketChannel.register(this.selector, SelectionKey.OP_READ);
+
+    this.sources = new ByteBuffer[] {
+      ByteBuffer.allocateDirect(this.messageSize / 2),
+      ByteBuffer.allocateDirect(this.messageSize / 2)
+    };
+    this.destinations = new ByteBuffer[] {
+      ByteBuffer.allocateDirect(this.messageSize / 2),
+      ByteBuffer.allocateDirect(this.messageSize / 2)
+    };
+  }
+
+  private static void echo(SocketChannel peerChannel) {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(16384);
+    try (peerChannel) {
+      while (peerChannel.read(buffer) != -1) {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          peerChannel.write(buffer);
+        }
+        buffer.clear();
+      }
+    } catch (IOException e) {
+      // closed
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException, InterruptedException {
+    this.selector.close();
+    this.socketChannel.close();
+    this.echoThread.join();
+    this.serverChannel.close();
+  }
+
+  @Benchmark
+  public long roundTrip() throws IOException {
+    this.sources[0].clear();
+    this.sources[1].clear();
+    this.destinations[0].clear();
+    this.destinations[1].clear();
+    long received = 0L;
+    while (received < this.messageSize) {
+      if (this.sources[1].hasRemaining()) {
+        this.socketChannel.write(this.sources);
+      }
+      if (this.selector.select(1000L) > 0) {
+        this.selector.selectedKeys().clear();
+        received += this.socketChannel.read(this.destinations);
+      }
+    }
+    return received;
+  }
+
+}
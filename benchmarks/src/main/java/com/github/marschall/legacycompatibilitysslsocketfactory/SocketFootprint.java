@@ -0,0 +1,73 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.security.GeneralSecurityException;
+
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Prints the memory a {@link LegacyCompatibilitySSLSocket} retains on top of the delegate socket
+ * using <a href="https://github.com/openjdk/jol">JOL</a>.
+ * <p>
+ * The delegate is a {@link StubSSLSocket} so the wrapper is not reachable from it. Objects
+ * reachable from the delegate socket, the settings shared by all sockets of a factory and the
+ * listeners are not counted. The memory retained by the JDK socket, including the state of the
+ * {@link java.net.Socket} super class of the wrapper, is also included in the output.
+ * <p>
+ * Run with {@code -Djol.magicFieldOffset=true}.
+ */
+public final class SocketFootprint {
+
+  private SocketFootprint() {
+    throw new AssertionError("not instantiable");
+  }
+
+  public static void main(String[] args) throws GeneralSecurityException, SSLPeerUnverifiedException {
+    TestPki pki = TestPki.create("EC");
+    SSLSession session = new StubSSLSession(pki.getChain());
+    SSLSocket delegate = new StubSSLSocket(session);
+    CertificateAdapterCache cache = CertificateAdapterCache.getDefault();
+    HandshakeCompletedListener[] listeners = new HandshakeCompletedListener[10];
+    for (int i = 0; i < listeners.length; i++) {
+      // capture to get distinct instances
+      int index = i;
+      listeners[i] = event -> System.out.println("listener " + index);
+    }
+    // shared by all sockets of a factory
+    SocketSettings settings = new SocketSettings(cache);
+    Object[] excluded = {delegate, settings, listeners};
+
+    System.out.println(ClassLayout.parseClass(LegacyCompatibilitySSLSocket.class).toPrintable());
+
+    SSLSocket socket = new LegacyCompatibilitySSLSocket(delegate, settings);
+    print("created", socket, excluded);
+
+    socket.addHandshakeCompletedListener(listeners[0]);
+    print("1 listener", socket, excluded);
+    for (int i = 1; i < listeners.length; i++) {
+      socket.addHandshakeCompletedListener(listeners[i]);
+    }
+    print("10 listeners", socket, excluded);
+    for (HandshakeCompletedListener listener : listeners) {
+      socket.removeHandshakeCompletedListener(listener);
+    }
+    print("listeners removed", socket, excluded);
+
+    socket.getSession().getPeerCertificateChain();
+    print("session", socket, excluded);
+  }
+
+  private static void print(String state, Object socket, Object... excluded) {
+    GraphLayout retained = GraphLayout.parseInstance(socket).subtract(GraphLayout.parseInstance(excluded));
+    System.out.printf("%-18s %5d bytes in %3d objects%n", state, retained.totalSize(), retained.totalCount());
+    if (Boolean.getBoolean("footprint.details")) {
+      System.out.println(retained.toFootprint());
+    }
+  }
+
+}
@@ -0,0 +1,109 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * An unconnected {@link SSLSocket} with a fixed session that does not retain listeners,
+ * so it never references the socket wrapping it.
+ */
+final class StubSSLSocket extends SSLSocket {
+
+  private final SSLSession session;
+
+  StubSSLSocket(SSLSession session) {
+    this.session = session;
+  }
+
+  @Override
+  public String[] getSupportedCipherSuites() {
+    return new String[0];
+  }
+
+  @Override
+  public String[] getEnabledCipherSuites() {
+    return new String[0];
+  }
+
+  @Override
+  public void setEnabledCipherSuites(String[] suites) {
+    // ignore
+  }
+
+  @Override
+  public String[] getSupportedProtocols() {
+    return new String[0];
+  }
+
+  @Override
+  public String[] getEnabledProtocols() {
+    return new String[0];
+  }
+
+  @Override
+  public void setEnabledProtocols(String[] protocols) {
+    // ignore
+  }
+
+  @Override
+  public SSLSession getSession() {
+    return this.session;
+  }
+
+  @Override
+  public void addHandshakeCompletedListener(HandshakeCompletedListener listener) {
+    // not retained
+  }
+
+  @Override
+  public void removeHandshakeCompletedListener(HandshakeCompletedListener listener) {
+    // not retained
+  }
+
+  @Override
+  public void startHandshake() {
+    // ignore
+  }
+
+  @Override
+  public void setUseClientMode(boolean mode) {
+    // ignore
+  }
+
+  @Override
+  public boolean getUseClientMode() {
+    return true;
+  }
+
+  @Override
+  public void setNeedClientAuth(boolean need) {
+    // ignore
+  }
+
+  @Override
+  public boolean getNeedClientAuth() {
+    return false;
+  }
+
+  @Override
+  public void setWantClientAuth(boolean want) {
+    // ignore
+  }
+
+  @Override
+  public boolean getWantClientAuth() {
+    return false;
+  }
+
+  @Override
+  public void setEnableSessionCreation(boolean flag) {
+    // ignore
+  }
+
+  @Override
+  public boolean getEnableSessionCreation() {
+    return true;
+  }
+
+}
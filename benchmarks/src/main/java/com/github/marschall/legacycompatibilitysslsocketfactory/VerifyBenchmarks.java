@@ -0,0 +1,84 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures verifying the signature of a peer certificate that has been verified before, as
+ * legacy code does on every request.
+ * <p>
+ * {@code uncached} verifies the signature every time, which is what the adapter did before
+ * it remembered successful verifications.
+ * <p>
+ * The JDK certificate implementation remembers the result of its last verification, so
+ * {@link #sameKey()} is cheap without a cache. {@link #trustStoreScan()} first tries a
+ * key that does not match, like code looking for the issuer in a trust store, which replaces
+ * the remembered verification of the JDK on every call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VerifyBenchmarks {
+
+  @Param({"RSA", "EC"})
+  public String keyAlgorithm;
+
+  @Param({"uncached", "cached"})
+  public String verificationCache;
+
+  private javax.security.cert.X509Certificate leaf;
+
+  private PublicKey issuerKey;
+
+  private PublicKey otherKey;
+
+  @Setup(Level.Trial)
+  public void setUp() throws GeneralSecurityException {
+    TestPki pki = TestPki.create(this.keyAlgorithm, 1);
+    X509Certificate[] chain = pki.getChain();
+    int maximumSize = switch (this.verificationCache) {
+      case "uncached" -> 0;
+      case "cached" -> 16;
+      default -> throw new IllegalArgumentException("unknown verification cache: " + this.verificationCache);
+    };
+    this.leaf = new CertificateAdapter(chain[0], new CertificateVerificationCache(maximumSize));
+    this.issuerKey = chain[1].getPublicKey();
+    this.otherKey = TestCertificates.generateKeyPair(this.keyAlgorithm).getPublic();
+  }
+
+  @Benchmark
+  public void sameKey() throws GeneralSecurityException, javax.security.cert.CertificateException {
+    this.leaf.verify(this.issuerKey);
+  }
+
+  @Benchmark
+  public void trustStoreScan() throws GeneralSecurityException, javax.security.cert.CertificateException {
+    try {
+      this.leaf.verify(this.otherKey);
+      throw new IllegalStateException("verified with the wrong key");
+    } catch (SignatureException e) {
+      // expected, try the next key
+    }
+    this.leaf.verify(this.issuerKey);
+  }
+
+}
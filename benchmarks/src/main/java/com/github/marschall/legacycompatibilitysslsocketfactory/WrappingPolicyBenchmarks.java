@@ -0,0 +1,114 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of deciding whether to wrap a socket with a {@link WrappingPolicy} with
+ * many patterns.
+ * <p>
+ * Half of the patterns are host names with a port, the other half domains. {@code compiled}
+ * is {@link WrappingPolicy#matching(java.util.Collection)}, {@code regex} the predicate users
+ * would otherwise write, matching the destination against every pattern translated to a
+ * regular expression. {@code host} looks up a host pattern, {@code domain} a host three labels
+ * below a domain pattern and {@code miss} a host matching no pattern.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WrappingPolicyBenchmarks {
+
+  @Param({"10", "1000", "10000"})
+  public int patternCount;
+
+  @Param({"compiled", "regex"})
+  public String implementation;
+
+  @Param({"host", "domain", "miss"})
+  public String lookup;
+
+  private WrappingPolicy policy;
+
+  private String host;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    List<String> patterns = new ArrayList<>(this.patternCount);
+    for (int i = 0; i < this.patternCount / 2; i++) {
+      patterns.add("host" + i + ".example.com:443");
+      patterns.add("*.zone" + i + ".example.net");
+    }
+    this.policy = switch (this.implementation) {
+      case "compiled" -> WrappingPolicy.matching(patterns);
+      case "regex" -> new RegexWrappingPolicy(patterns);
+      default -> throw new IllegalArgumentException("unknown implementation: " + this.implementation);
+    };
+    // in the middle of the patterns
+    int index = this.patternCount / 4;
+    this.host = switch (this.lookup) {
+      case "host" -> "host" + index + ".example.com";
+      case "domain" -> "www.a.b.zone" + index + ".example.net";
+      case "miss" -> "www.unrelated.example.org";
+      default -> throw new IllegalArgumentException("unknown lookup: " + this.lookup);
+    };
+    if (this.policy.shouldWrap(this.host, 443) == this.lookup.equals("miss")) {
+      throw new IllegalStateException("unexpected result for: " + this.host);
+    }
+  }
+
+  @Benchmark
+  public boolean shouldWrap() {
+    return this.policy.shouldWrap(this.host, 443);
+  }
+
+  /**
+   * Matches {@code host:port} against every pattern.
+   */
+  static final class RegexWrappingPolicy implements WrappingPolicy {
+
+    private final Pattern[] patterns;
+
+    RegexWrappingPolicy(List<String> patterns) {
+      this.patterns = new Pattern[patterns.size()];
+      for (int i = 0; i < this.patterns.length; i++) {
+        String pattern = patterns.get(i);
+        String regex = Pattern.quote(pattern).replace("*", "\\E.*\\Q");
+        if (pattern.indexOf(':') == -1) {
+          regex += ":\\d+";
+        }
+        this.patterns[i] = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+      }
+    }
+
+    @Override
+    public boolean shouldWrap(String host, int port) {
+      String destination = host + ':' + port;
+      for (Pattern pattern : this.patterns) {
+        if (pattern.matcher(destination).matches()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+  }
+
+}
@@ -0,0 +1,156 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, concurrent map that evicts the oldest entries once it is full and keeps hit,
+ * miss and eviction statistics.
+ * <p>
+ * Values are created outside of the cache by the caller so that no lock is held while
+ * creating them, when two threads race the first value is kept.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+final class BoundedCache<K, V> {
+
+  private final int maximumSize;
+
+  private final Map<K, V> entries;
+
+  private final Queue<K> insertionOrder;
+
+  private final LongAdder hitCount;
+
+  private final LongAdder missCount;
+
+  private final LongAdder evictionCount;
+
+  /**
+   * Constructs a new, empty cache.
+   *
+   * @param maximumSize the maximum number of entries, {@code 0} disables caching
+   * @throws IllegalArgumentException if {@code maximumSize} is negative
+   */
+  BoundedCache(int maximumSize) {
+    if (maximumSize < 0) {
+      throw new IllegalArgumentException("maximumSize must not be negative");
+    }
+    this.maximumSize = maximumSize;
+    this.entries = new ConcurrentHashMap<>();
+    this.insertionOrder = new ConcurrentLinkedQueue<>();
+    this.hitCount = new LongAdder();
+    this.missCount = new LongAdder();
+    this.evictionCount = new LongAdder();
+  }
+
+  int getMaximumSize() {
+    return this.maximumSize;
+  }
+
+  int size() {
+    return this.entries.size();
+  }
+
+  long getHitCount() {
+    return this.hitCount.sum();
+  }
+
+  long getMissCount() {
+    return this.missCount.sum();
+  }
+
+  long getEvictionCount() {
+    return this.evictionCount.sum();
+  }
+
+  /**
+   * Removes all entries, the statistics are not reset.
+   * <p>
+   * Not atomic, entries added concurrently may or may not be kept.
+   */
+  void clear() {
+    // an entry added concurrently may end up without an insertion order slot,
+    // clearing the order first makes this rarer and the eviction handles it
+    this.insertionOrder.clear();
+    this.entries.clear();
+  }
+
+  /**
+   * Looks up the value of a key, counts a hit if there is one.
+   *
+   * @param key the key to look up
+   * @return the value of {@code key}, {@code null} if there is none
+   */
+  V get(K key) {
+    if (this.maximumSize == 0) {
+      return null;
+    }
+    V value = this.entries.get(key);
+    if (value != null) {
+      this.hitCount.increment();
+    }
+    return value;
+  }
+
+  /**
+   * Adds a value created after {@link #get(Object)} returned {@code null}, counts a miss
+   * unless an other thread added a value first.
+   *
+   * @param key the key of the value
+   * @param value the new value
+   * @return the value added by an other thread, {@code null} if {@code value} was added
+   */
+  V putIfAbsent(K key, V value) {
+    if (this.maximumSize == 0) {
+      this.missCount.increment();
+      return null;
+    }
+    V existing = this.entries.putIfAbsent(key, value);
+    if (existing != null) {
+      // lost the race against an other thread
+      this.hitCount.increment();
+      return existing;
+    }
+    this.missCount.increment();
+    this.insertionOrder.add(key);
+    this.evictIfNecessary();
+    return null;
+  }
+
+  private void evictIfNecessary() {
+    while (this.entries.size() > this.maximumSize) {
+      K eldest = this.insertionOrder.poll();
+      if (eldest == null) {
+        // the entries added during a concurrent clear() are not in the insertion order
+        eldest = this.anyKey();
+        if (eldest == null) {
+          return;
+        }
+      }
+      if (this.entries.remove(eldest) != null) {
+        this.evictionCount.increment();
+      }
+    }
+  }
+
+  private K anyKey() {
+    Iterator<K> keys = this.entries.keySet().iterator();
+    return keys.hasNext() ? keys.next() : null;
+  }
+
+  @Override
+  public String toString() {
+    return "[maximumSize=" + this.maximumSize
+            + ", size=" + this.size()
+            + ", hits=" + this.getHitCount()
+            + ", misses=" + this.getMissCount()
+            + ", evictions=" + this.getEvictionCount() + ']';
+  }
+
+}
@@ -0,0 +1,169 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.lang.StackWalker.StackFrame;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.net.ssl.SSLSession;
+
+/**
+ * Records which code calls {@link SSLSession#getPeerCertificateChain()} so that the callers
+ * can be migrated to {@link SSLSession#getPeerCertificates()}.
+ * <p>
+ * Only a random sample of one in {@code samplingInterval} calls walks the stack, the other
+ * calls only draw a thread local random number. The calling frames are aggregated into a table
+ * holding at most {@code maximumCallSites} distinct call sites, samples from new call sites
+ * are dropped once the table is full.
+ * <p>
+ * Instances are thread safe and implement {@link CallSiteTrackerMXBean} so they can be
+ * registered with an {@code MBeanServer}.
+ *
+ * <pre><code>
+ * CallSiteTracker tracker = new CallSiteTracker(100, 1024, 3);
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(tracker,
+ *     new ObjectName("com.github.marschall.legacycompatibilitysslsocketfactory:type=CallSiteTracker"));
+ * </code></pre>
+ *
+ * @see LegacyCompatibilitySSLSocketFactory.Builder#callSiteTracker(CallSiteTracker)
+ */
+public final class CallSiteTracker implements CallSiteTrackerMXBean {
+
+  private static final String FRAME_SEPARATOR = " <- ";
+
+  private final int samplingInterval;
+
+  private final int maximumCallSites;
+
+  private final int stackDepth;
+
+  private final StackWalker stackWalker;
+
+  private final Map<String, LongAdder> callSites;
+
+  private final LongAdder sampleCount;
+
+  private final LongAdder droppedSampleCount;
+
+  /**
+   * Constructs a new tracker without samples.
+   *
+   * @param samplingInterval on average every how many calls one is sampled, {@code 1} samples every call
+   * @param maximumCallSites the maximum number of distinct call sites to record
+   * @param stackDepth the number of calling frames that make up a call site
+   * @throws IllegalArgumentException if any argument is not positive
+   */
+  public CallSiteTracker(int samplingInterval, int maximumCallSites, int stackDepth) {
+    if (samplingInterval < 1) {
+      throw new IllegalArgumentException("samplingInterval must be positive");
+    }
+    if (maximumCallSites < 1) {
+      throw new IllegalArgumentException("maximumCallSites must be positive");
+    }
+    if (stackDepth < 1) {
+      throw new IllegalArgumentException("stackDepth must be positive");
+    }
+    this.samplingInterval = samplingInterval;
+    this.maximumCallSites = maximumCallSites;
+    this.stackDepth = stackDepth;
+    this.stackWalker = StackWalker.getInstance();
+    this.callSites = new ConcurrentHashMap<>();
+    this.sampleCount = new LongAdder();
+    this.droppedSampleCount = new LongAdder();
+  }
+
+  /**
+   * Called on every call of {@link SSLSession#getPeerCertificateChain()}, records the caller
+   * if the call is sampled.
+   */
+  void sample() {
+    if (this.samplingInterval > 1 && ThreadLocalRandom.current().nextInt(this.samplingInterval) != 0) {
+      return;
+    }
+    this.sampleCount.increment();
+    String callSite = this.stackWalker.walk(this::callSite);
+    LongAdder count = this.callSites.get(callSite);
+    if (count == null) {
+      if (this.callSites.size() >= this.maximumCallSites) {
+        // the size is only an estimate, the table may overshoot slightly under contention
+        this.droppedSampleCount.increment();
+        return;
+      }
+      count = this.callSites.computeIfAbsent(callSite, key -> new LongAdder());
+    }
+    count.increment();
+  }
+
+  private String callSite(Stream<StackFrame> frames) {
+    return frames.dropWhile(CallSiteTracker::isInternalFrame)
+                 .limit(this.stackDepth)
+                 .map(CallSiteTracker::formatFrame)
+                 .collect(Collectors.joining(FRAME_SEPARATOR));
+  }
+
+  private static boolean isInternalFrame(StackFrame frame) {
+    String className = frame.getClassName();
+    return className.equals(CallSiteTracker.class.getName())
+            || className.equals(LegacyCompatibilitySSLSession.class.getName())
+            || className.equals(LegacyCompatibilityExtendedSSLSession.class.getName())
+            // HandshakeCompletedEvent#getPeerCertificateChain() forwards to the session
+            || className.startsWith("javax.net.ssl.");
+  }
+
+  private static String formatFrame(StackFrame frame) {
+    String fileName = frame.getFileName();
+    int lineNumber = frame.getLineNumber();
+    StringBuilder buffer = new StringBuilder(frame.getClassName())
+            .append('.')
+            .append(frame.getMethodName())
+            .append('(');
+    if (fileName != null) {
+      buffer.append(fileName);
+      if (lineNumber >= 0) {
+        buffer.append(':').append(lineNumber);
+      }
+    } else {
+      buffer.append("Unknown Source");
+    }
+    return buffer.append(')').toString();
+  }
+
+  @Override
+  public Map<String, Long> getCallSites() {
+    Map<String, Long> snapshot = new HashMap<>();
+    this.callSites.forEach((callSite, count) -> snapshot.put(callSite, count.sum()));
+    return snapshot;
+  }
+
+  @Override
+  public long getSampleCount() {
+    return this.sampleCount.sum();
+  }
+
+  @Override
+  public long getDroppedSampleCount() {
+    return this.droppedSampleCount.sum();
+  }
+
+  @Override
+  public int getSamplingInterval() {
+    return this.samplingInterval;
+  }
+
+  @Override
+  public int getMaximumCallSites() {
+    return this.maximumCallSites;
+  }
+
+  @Override
+  public void reset() {
+    this.callSites.clear();
+    this.sampleCount.reset();
+    this.droppedSampleCount.reset();
+  }
+
+}
@@ -0,0 +1,52 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link CallSiteTracker}.
+ */
+public interface CallSiteTrackerMXBean {
+
+  /**
+   * Returns the sampled callers of {@link javax.net.ssl.SSLSession#getPeerCertificateChain()}.
+   *
+   * @return the number of samples per call site, a call site is a string of the calling stack
+   *         frames separated by {@code " <- "}, the innermost frame first
+   */
+  Map<String, Long> getCallSites();
+
+  /**
+   * Returns the number of calls taken as samples.
+   *
+   * @return the number of samples
+   */
+  long getSampleCount();
+
+  /**
+   * Returns the number of samples that were not recorded because the table of call sites
+   * was full.
+   *
+   * @return the number of dropped samples
+   */
+  long getDroppedSampleCount();
+
+  /**
+   * Returns on average every how many calls one is sampled.
+   *
+   * @return the sampling interval
+   */
+  int getSamplingInterval();
+
+  /**
+   * Returns the maximum number of distinct call sites recorded.
+   *
+   * @return the maximum number of call sites
+   */
+  int getMaximumCallSites();
+
+  /**
+   * Discards all samples.
+   */
+  void reset();
+
+}
@@ -7,51 +7,120 @@ import java.security.NoSuchProviderException;
 import java.security.Principal;
 import java.security.PublicKey;
 import java.security.SignatureException;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Objects;
 
+import com.github.marschall.legacycompatibilitysslsocketfactory.CertificateVerificationCache.Verification;
+
 /**
  * Adapts {@link java.security.cert.X509Certificate} to a {@link javax.security.cert.X509Certificate}.
+ * <p>
+ * Adapters are shared between connections and legacy callers tend to call the same getters
+ * repeatedly, for example for logging. The encoded form, the distinguished names and the string
+ * form are therefore computed on first access and then kept. Computing a value twice when
+ * threads race is harmless as the delegate is immutable, so the fields are only volatile.
  */
 final class CertificateAdapter extends javax.security.cert.X509Certificate {
 
+  /**
+   * Whether the exceptions thrown by {@link #checkValidity()} have a stack trace, they are
+   * thrown on a hot path and the stack trace rarely helps.
+   */
+  private static final boolean STACK_TRACES = Boolean.getBoolean("com.github.marschall.legacycompatibilitysslsocketfactory.stackTraces");
+
   private final java.security.cert.X509Certificate delegate;
 
+  private final CertificateVerificationCache verificationCache;
+
+  /**
+   * The start of the validity period in milliseconds since the epoch.
+   */
+  private final long notBefore;
+
+  /**
+   * The end of the validity period in milliseconds since the epoch.
+   */
+  private final long notAfter;
+
+  /**
+   * The encoded form, never handed out, only copies of it.
+   */
+  private volatile byte[] encoded;
+
+  private volatile Principal issuerDN;
+
+  private volatile Principal subjectDN;
+
+  private volatile String string;
+
+  /**
+   * The message of the exception thrown by {@link #checkValidity()} before the validity period.
+   */
+  private volatile String notYetValidMessage;
+
+  /**
+   * The message of the exception thrown by {@link #checkValidity()} after the validity period.
+   */
+  private volatile String expiredMessage;
+
+  /**
+   * The hash code of the encoded form, {@code 0} if not yet computed.
+   */
+  private volatile int hash;
+
   CertificateAdapter(java.security.cert.X509Certificate delegate) {
+    this(delegate, CertificateVerificationCache.getDefault());
+  }
+
+  CertificateAdapter(java.security.cert.X509Certificate delegate, CertificateVerificationCache verificationCache) {
     Objects.requireNonNull(delegate, "delegate");
+    Objects.requireNonNull(verificationCache, "verificationCache");
     this.delegate = delegate;
+    this.verificationCache = verificationCache;
+    this.notBefore = delegate.getNotBefore().getTime();
+    this.notAfter = delegate.getNotAfter().getTime();
   }
 
   @Override
   public void checkValidity() throws javax.security.cert.CertificateExpiredException, javax.security.cert.CertificateNotYetValidException {
-    try {
-      this.delegate.checkValidity();
-    } catch (java.security.cert.CertificateExpiredException e) {
-      javax.security.cert.CertificateExpiredException deprecatedException = new javax.security.cert.CertificateExpiredException(e.getMessage());
-      deprecatedException.initCause(e);
-      throw deprecatedException;
-    } catch (java.security.cert.CertificateNotYetValidException e) {
-      javax.security.cert.CertificateNotYetValidException deprecatedException = new javax.security.cert.CertificateNotYetValidException(e.getMessage());
-      deprecatedException.initCause(e);
-      throw deprecatedException;
-    }
+    this.checkValidity(System.currentTimeMillis());
   }
 
   @Override
   public void checkValidity(Date date) throws javax.security.cert.CertificateExpiredException, javax.security.cert.CertificateNotYetValidException {
-    try {
-      this.delegate.checkValidity(date);
-    } catch (java.security.cert.CertificateExpiredException e) {
-      javax.security.cert.CertificateExpiredException deprecatedException = new javax.security.cert.CertificateExpiredException(e.getMessage());
-      deprecatedException.initCause(e);
-      throw deprecatedException;
-    } catch (java.security.cert.CertificateNotYetValidException e) {
-      javax.security.cert.CertificateNotYetValidException deprecatedException = new javax.security.cert.CertificateNotYetValidException(e.getMessage());
-      deprecatedException.initCause(e);
-      throw deprecatedException;
+    this.checkValidity(date.getTime());
+  }
+
+  private void checkValidity(long time) throws javax.security.cert.CertificateExpiredException, javax.security.cert.CertificateNotYetValidException {
+    // same checks as the JDK implementation, both bounds are inclusive
+    if (time < this.notBefore) {
+      throw new NotYetValidException(this.notYetValidMessage());
+    }
+    if (time > this.notAfter) {
+      throw new ExpiredException(this.expiredMessage());
     }
   }
 
+  private String notYetValidMessage() {
+    // same message as the JDK implementation, rendering the date is more expensive than the exception
+    String message = this.notYetValidMessage;
+    if (message == null) {
+      message = "NotBefore: " + new Date(this.notBefore);
+      this.notYetValidMessage = message;
+    }
+    return message;
+  }
+
+  private String expiredMessage() {
+    String message = this.expiredMessage;
+    if (message == null) {
+      message = "NotAfter: " + new Date(this.notAfter);
+      this.expiredMessage = message;
+    }
+    return message;
+  }
+
   @Override
   public int getVersion() {
     return this.delegate.getVersion();
@@ -64,22 +133,32 @@ final class CertificateAdapter extends javax.security.cert.X509Certificate {
 
   @Override
   public Principal getIssuerDN() {
-    return this.delegate.getIssuerDN();
+    Principal principal = this.issuerDN;
+    if (principal == null) {
+      principal = this.delegate.getIssuerDN();
+      this.issuerDN = principal;
+    }
+    return principal;
   }
 
   @Override
   public Principal getSubjectDN() {
-    return this.delegate.getSubjectDN();
+    Principal principal = this.subjectDN;
+    if (principal == null) {
+      principal = this.delegate.getSubjectDN();
+      this.subjectDN = principal;
+    }
+    return principal;
   }
 
   @Override
   public Date getNotBefore() {
-    return this.delegate.getNotBefore();
+    return new Date(this.notBefore);
   }
 
   @Override
   public Date getNotAfter() {
-    return this.delegate.getNotAfter();
+    return new Date(this.notAfter);
   }
 
   @Override
@@ -99,19 +178,40 @@ final class CertificateAdapter extends javax.security.cert.X509Certificate {
 
   @Override
   public byte[] getEncoded() throws javax.security.cert.CertificateEncodingException {
-    try {
-      return this.delegate.getEncoded();
-    } catch (java.security.cert.CertificateEncodingException e) {
-      javax.security.cert.CertificateEncodingException deprecatedException = new javax.security.cert.CertificateEncodingException(e.getMessage());
-      deprecatedException.initCause(e);
-      throw deprecatedException;
+    return this.encoded().clone();
+  }
+
+  /**
+   * Returns the encoded form without copying it, callers must not modify the returned array.
+   *
+   * @return the encoded form shared by all callers
+   * @throws javax.security.cert.CertificateEncodingException if the certificate can not be encoded
+   */
+  byte[] encoded() throws javax.security.cert.CertificateEncodingException {
+    byte[] bytes = this.encoded;
+    if (bytes == null) {
+      try {
+        // getEncoded() returns a copy we can keep
+        bytes = this.delegate.getEncoded();
+      } catch (java.security.cert.CertificateEncodingException e) {
+        javax.security.cert.CertificateEncodingException deprecatedException = new javax.security.cert.CertificateEncodingException(e.getMessage());
+        deprecatedException.initCause(e);
+        throw deprecatedException;
+      }
+      this.encoded = bytes;
     }
+    return bytes;
   }
 
   @Override
   public void verify(PublicKey key) throws javax.security.cert.CertificateException, NoSuchAlgorithmException, InvalidKeyException, NoSuchProviderException, SignatureException {
+    Verification verification = new Verification(this, key, null);
+    if (this.verificationCache.isVerified(verification)) {
+      return;
+    }
     try {
       this.delegate.verify(key);
+      this.verificationCache.verified(verification);
     } catch (java.security.cert.CertificateException e) {
       javax.security.cert.CertificateException deprecatedException = new javax.security.cert.CertificateException(e.getMessage());
       deprecatedException.initCause(e);
@@ -122,8 +222,13 @@ final class CertificateAdapter extends javax.security.cert.X509Certificate {
   @Override
   public void verify(PublicKey key, String sigProvider) throws javax.security.cert.CertificateException, NoSuchAlgorithmException,
   InvalidKeyException, NoSuchProviderException, SignatureException {
+    Verification verification = new Verification(this, key, sigProvider);
+    if (this.verificationCache.isVerified(verification)) {
+      return;
+    }
     try {
       this.delegate.verify(key, sigProvider);
+      this.verificationCache.verified(verification);
     } catch (java.security.cert.CertificateException e) {
       javax.security.cert.CertificateException deprecatedException = new javax.security.cert.CertificateException(e.getMessage());
       deprecatedException.initCause(e);
@@ -131,9 +236,62 @@ final class CertificateAdapter extends javax.security.cert.X509Certificate {
     }
   }
 
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj instanceof CertificateAdapter other) {
+      try {
+        return Arrays.equals(this.encoded(), other.encoded());
+      } catch (javax.security.cert.CertificateEncodingException e) {
+        return false;
+      }
+    }
+    // compares copies of the encoded forms
+    return super.equals(obj);
+  }
+
+  @Override
+  public int hashCode() {
+    int h = this.hash;
+    if (h == 0) {
+      byte[] bytes;
+      try {
+        bytes = this.encoded();
+      } catch (javax.security.cert.CertificateEncodingException e) {
+        return 0;
+      }
+      h = hashCode(bytes);
+      this.hash = h;
+    }
+    return h;
+  }
+
+  /**
+   * Computes the hash code of an encoded certificate.
+   *
+   * @param encoded the encoded certificate
+   * @return the hash code of the encoded certificate
+   */
+  static int hashCode(byte[] encoded) {
+    // same as javax.security.cert.Certificate#hashCode() so we stay consistent with equals
+    // for other certificate implementations
+    int h = 0;
+    for (int i = 1; i < encoded.length; i++) {
+      h += encoded[i] * i;
+    }
+    return h;
+  }
+
   @Override
   public String toString() {
-    return this.delegate.toString();
+    String s = this.string;
+    if (s == null) {
+      s = this.delegate.toString();
+      this.string = s;
+    }
+    return s;
   }
 
   @Override
@@ -141,4 +299,42 @@ final class CertificateAdapter extends javax.security.cert.X509Certificate {
     return this.delegate.getPublicKey();
   }
 
+  /**
+   * A {@link javax.security.cert.CertificateExpiredException} without a stack trace unless
+   * stack traces are enabled.
+   */
+  static final class ExpiredException extends javax.security.cert.CertificateExpiredException {
+
+    private static final long serialVersionUID = 1L;
+
+    ExpiredException(String message) {
+      super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return STACK_TRACES ? super.fillInStackTrace() : this;
+    }
+
+  }
+
+  /**
+   * A {@link javax.security.cert.CertificateNotYetValidException} without a stack trace unless
+   * stack traces are enabled.
+   */
+  static final class NotYetValidException extends javax.security.cert.CertificateNotYetValidException {
+
+    private static final long serialVersionUID = 1L;
+
+    NotYetValidException(String message) {
+      super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return STACK_TRACES ? super.fillInStackTrace() : this;
+    }
+
+  }
+
 }
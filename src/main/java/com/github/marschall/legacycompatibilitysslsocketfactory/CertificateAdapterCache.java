@@ -0,0 +1,163 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.security.cert.Certificate;
+import java.util.Objects;
+
+import javax.net.ssl.SSLSession;
+
+/**
+ * A bounded cache of the {@link javax.security.cert.X509Certificate} adapters handed out by
+ * {@link SSLSession#getPeerCertificateChain()}.
+ * <p>
+ * Connections to the same peer share the adapters for the same certificates. Certificates
+ * are looked up by identity first and then by their encoded form so that certificates parsed
+ * again for a new connection or a resumed session still hit the cache. Once the cache is full
+ * the oldest entries are evicted.
+ * <p>
+ * Instances are thread safe and can be shared between several
+ * {@link LegacyCompatibilitySSLSocketFactory} instances.
+ *
+ * @see LegacyCompatibilitySSLSocketFactory#LegacyCompatibilitySSLSocketFactory(javax.net.ssl.SSLSocketFactory, CertificateAdapterCache)
+ */
+public final class CertificateAdapterCache {
+
+  private static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+  private final BoundedCache<java.security.cert.X509Certificate, javax.security.cert.X509Certificate> adapters;
+
+  private final CertificateVerificationCache verificationCache;
+
+  /**
+   * Constructs a new, empty cache that shares the default verification cache.
+   *
+   * @param maximumSize the maximum number of certificates to cache,
+   *                    {@code 0} disables caching
+   * @throws IllegalArgumentException if {@code maximumSize} is negative
+   * @see CertificateVerificationCache#getDefault()
+   */
+  public CertificateAdapterCache(int maximumSize) {
+    this(maximumSize, CertificateVerificationCache.getDefault());
+  }
+
+  /**
+   * Constructs a new, empty cache with a custom verification cache.
+   *
+   * @param maximumSize the maximum number of certificates to cache,
+   *                    {@code 0} disables caching
+   * @param verificationCache the cache for successful signature verifications of the adapted certificates,
+   *                          not {@code null}
+   * @throws IllegalArgumentException if {@code maximumSize} is negative
+   */
+  public CertificateAdapterCache(int maximumSize, CertificateVerificationCache verificationCache) {
+    Objects.requireNonNull(verificationCache, "verificationCache");
+    this.adapters = new BoundedCache<>(maximumSize);
+    this.verificationCache = verificationCache;
+  }
+
+  private static final class DefaultInstanceHolder {
+
+    static final CertificateAdapterCache DEFAULT_INSTANCE = new CertificateAdapterCache(DEFAULT_MAXIMUM_SIZE);
+  }
+
+  /**
+   * Returns the process wide cache used by default.
+   *
+   * @return the process wide cache
+   */
+  public static CertificateAdapterCache getDefault() {
+    return DefaultInstanceHolder.DEFAULT_INSTANCE;
+  }
+
+  /**
+   * Returns the maximum number of certificates this cache holds.
+   *
+   * @return the maximum number of certificates
+   */
+  public int getMaximumSize() {
+    return this.adapters.getMaximumSize();
+  }
+
+  /**
+   * Returns the number of certificates currently in this cache.
+   *
+   * @return the number of cached certificates
+   */
+  public int size() {
+    return this.adapters.size();
+  }
+
+  /**
+   * Returns the number of lookups that found an existing adapter.
+   *
+   * @return the number of cache hits
+   */
+  public long getHitCount() {
+    return this.adapters.getHitCount();
+  }
+
+  /**
+   * Returns the number of lookups that had to create a new adapter.
+   *
+   * @return the number of cache misses
+   */
+  public long getMissCount() {
+    return this.adapters.getMissCount();
+  }
+
+  /**
+   * Returns the number of adapters removed because the cache was full.
+   *
+   * @return the number of evictions
+   */
+  public long getEvictionCount() {
+    return this.adapters.getEvictionCount();
+  }
+
+  /**
+   * Returns the cache for successful signature verifications of the adapted certificates.
+   *
+   * @return the verification cache, not {@code null}
+   */
+  public CertificateVerificationCache getVerificationCache() {
+    return this.verificationCache;
+  }
+
+  /**
+   * Removes all adapters from this cache, the statistics are not reset.
+   */
+  public void clear() {
+    this.adapters.clear();
+  }
+
+  /**
+   * Adapts a certificate chain as returned by {@link SSLSession#getPeerCertificates()}.
+   *
+   * @param certificates the certificates to adapt, all have to be {@link java.security.cert.X509Certificate}s
+   * @return the adapted certificates, in the same order
+   */
+  javax.security.cert.X509Certificate[] adaptChain(Certificate[] certificates) {
+    javax.security.cert.X509Certificate[] certificateChain = new javax.security.cert.X509Certificate[certificates.length];
+    for (int i = 0; i < certificates.length; i++) {
+      certificateChain[i] = this.adapt((java.security.cert.X509Certificate) certificates[i]);
+    }
+    return certificateChain;
+  }
+
+  javax.security.cert.X509Certificate adapt(java.security.cert.X509Certificate certificate) {
+    // Certificate#equals checks identity first and then compares the encoded forms,
+    // Certificate#hashCode is cached
+    javax.security.cert.X509Certificate adapter = this.adapters.get(certificate);
+    if (adapter != null) {
+      return adapter;
+    }
+    javax.security.cert.X509Certificate newAdapter = new CertificateAdapter(certificate, this.verificationCache);
+    adapter = this.adapters.putIfAbsent(certificate, newAdapter);
+    return adapter != null ? adapter : newAdapter;
+  }
+
+  @Override
+  public String toString() {
+    return this.getClass().getSimpleName() + this.adapters;
+  }
+
+}
@@ -0,0 +1,148 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.security.PublicKey;
+import java.util.Objects;
+
+/**
+ * A bounded cache of the successful signature verifications done through
+ * {@link javax.security.cert.X509Certificate#verify(PublicKey)} and
+ * {@link javax.security.cert.X509Certificate#verify(PublicKey, String)} on the certificates
+ * handed out by {@link javax.net.ssl.SSLSession#getPeerCertificateChain()}.
+ * <p>
+ * Verifications are remembered by certificate, public key and signature provider. The
+ * certificate and public key are compared by their encoded forms. Failed verifications are
+ * not remembered. Once the cache is full the oldest entries are evicted.
+ * <p>
+ * Instances are thread safe and can be shared between several {@link CertificateAdapterCache}
+ * instances.
+ *
+ * @see CertificateAdapterCache#CertificateAdapterCache(int, CertificateVerificationCache)
+ */
+public final class CertificateVerificationCache {
+
+  private static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+  private final BoundedCache<Verification, Boolean> verifications;
+
+  /**
+   * Constructs a new, empty cache.
+   *
+   * @param maximumSize the maximum number of verifications to remember,
+   *                    {@code 0} disables caching
+   * @throws IllegalArgumentException if {@code maximumSize} is negative
+   */
+  public CertificateVerificationCache(int maximumSize) {
+    this.verifications = new BoundedCache<>(maximumSize);
+  }
+
+  private static final class DefaultInstanceHolder {
+
+    static final CertificateVerificationCache DEFAULT_INSTANCE = new CertificateVerificationCache(DEFAULT_MAXIMUM_SIZE);
+  }
+
+  /**
+   * Returns the process wide cache used by default.
+   *
+   * @return the process wide cache
+   */
+  public static CertificateVerificationCache getDefault() {
+    return DefaultInstanceHolder.DEFAULT_INSTANCE;
+  }
+
+  /**
+   * Returns the maximum number of verifications this cache remembers.
+   *
+   * @return the maximum number of verifications
+   */
+  public int getMaximumSize() {
+    return this.verifications.getMaximumSize();
+  }
+
+  /**
+   * Returns the number of verifications currently remembered.
+   *
+   * @return the number of remembered verifications
+   */
+  public int size() {
+    return this.verifications.size();
+  }
+
+  /**
+   * Returns the number of verifications that were skipped because they had succeeded before.
+   *
+   * @return the number of cache hits
+   */
+  public long getHitCount() {
+    return this.verifications.getHitCount();
+  }
+
+  /**
+   * Returns the number of successful verifications that had to verify the signature.
+   *
+   * @return the number of cache misses
+   */
+  public long getMissCount() {
+    return this.verifications.getMissCount();
+  }
+
+  /**
+   * Returns the number of verifications forgotten because the cache was full.
+   *
+   * @return the number of evictions
+   */
+  public long getEvictionCount() {
+    return this.verifications.getEvictionCount();
+  }
+
+  /**
+   * Forgets all verifications, the statistics are not reset.
+   */
+  public void clear() {
+    this.verifications.clear();
+  }
+
+  boolean isVerified(Verification verification) {
+    return this.verifications.get(verification) != null;
+  }
+
+  void verified(Verification verification) {
+    this.verifications.putIfAbsent(verification, Boolean.TRUE);
+  }
+
+  @Override
+  public String toString() {
+    return this.getClass().getSimpleName() + this.verifications;
+  }
+
+  /**
+   * A successful verification of the signature of a certificate.
+   *
+   * @param certificate the verified certificate, compared by its encoded form
+   * @param key the public key the signature was verified with
+   * @param sigProvider the name of the signature provider, {@code null} for the default provider
+   */
+  record Verification(CertificateAdapter certificate, PublicKey key, String sigProvider) {
+
+    @Override
+    public int hashCode() {
+      // the hash code of the certificate is cached, the one of a key is computed over its
+      // encoded form on every call and a certificate is rarely verified with several keys
+      return this.certificate.hashCode() * 31 + Objects.hashCode(this.sigProvider);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Verification other)) {
+        return false;
+      }
+      return this.certificate.equals(other.certificate)
+              && Objects.equals(this.key, other.key)
+              && Objects.equals(this.sigProvider, other.sigProvider);
+    }
+
+  }
+
+}
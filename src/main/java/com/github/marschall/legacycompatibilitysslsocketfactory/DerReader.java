@@ -0,0 +1,175 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+/**
+ * Reads the DER encoded elements of a byte array one after another.
+ * <p>
+ * Only the subset of DER found in X.509 certificates is supported: single byte tags and
+ * definite lengths of up to four bytes. The reader does not copy or decode values, it only
+ * records where they are.
+ */
+final class DerReader {
+
+  static final int BOOLEAN = 0x01;
+
+  static final int INTEGER = 0x02;
+
+  static final int BIT_STRING = 0x03;
+
+  static final int NULL = 0x05;
+
+  static final int OBJECT_IDENTIFIER = 0x06;
+
+  static final int UTC_TIME = 0x17;
+
+  static final int GENERALIZED_TIME = 0x18;
+
+  static final int SEQUENCE = 0x30;
+
+  /**
+   * The tag of an explicitly tagged, context specific, constructed element.
+   *
+   * @param number the tag number
+   * @return the tag
+   */
+  static int explicit(int number) {
+    return 0xA0 | number;
+  }
+
+  private final byte[] der;
+
+  private final int limit;
+
+  private int position;
+
+  private int tag;
+
+  private int elementOffset;
+
+  private int valueOffset;
+
+  /**
+   * Constructs a reader over part of an array.
+   *
+   * @param der the encoded elements, not copied
+   * @param offset the offset of the first element
+   * @param limit the offset after the last element
+   */
+  DerReader(byte[] der, int offset, int limit) {
+    this.der = der;
+    this.position = offset;
+    this.limit = limit;
+  }
+
+  /**
+   * Reads the next element.
+   *
+   * @return the tag of the element
+   * @throws javax.security.cert.CertificateException if there is no next element or it is malformed
+   */
+  int next() throws javax.security.cert.CertificateException {
+    if (this.position >= this.limit) {
+      throw new javax.security.cert.CertificateException("unexpected end of DER at offset " + this.position);
+    }
+    int offset = this.position;
+    int t = this.der[offset] & 0xFF;
+    if ((t & 0x1F) == 0x1F) {
+      throw new javax.security.cert.CertificateException("unsupported multi byte DER tag at offset " + offset);
+    }
+    int p = offset + 1;
+    if (p >= this.limit) {
+      throw new javax.security.cert.CertificateException("unexpected end of DER at offset " + p);
+    }
+    int length = this.der[p++] & 0xFF;
+    if (length > 0x7F) {
+      int lengthBytes = length & 0x7F;
+      if (lengthBytes == 0 || lengthBytes > 4 || p + lengthBytes > this.limit) {
+        throw new javax.security.cert.CertificateException("unsupported DER length at offset " + (p - 1));
+      }
+      length = 0;
+      for (int i = 0; i < lengthBytes; i++) {
+        length = (length << 8) | (this.der[p++] & 0xFF);
+      }
+      if (length < 0) {
+        throw new javax.security.cert.CertificateException("unsupported DER length at offset " + offset);
+      }
+    }
+    if (length > this.limit - p) {
+      throw new javax.security.cert.CertificateException("DER element at offset " + offset + " exceeds its enclosing element");
+    }
+    this.tag = t;
+    this.elementOffset = offset;
+    this.valueOffset = p;
+    this.position = p + length;
+    return t;
+  }
+
+  /**
+   * Reads the next element and checks its tag.
+   *
+   * @param expectedTag the tag the element must have
+   * @throws javax.security.cert.CertificateException if the element is malformed or has a different tag
+   */
+  void next(int expectedTag) throws javax.security.cert.CertificateException {
+    int t = this.next();
+    if (t != expectedTag) {
+      throw new javax.security.cert.CertificateException("expected DER tag 0x" + Integer.toHexString(expectedTag)
+              + " but got 0x" + Integer.toHexString(t) + " at offset " + this.elementOffset);
+    }
+  }
+
+  /**
+   * Returns whether there are more elements.
+   *
+   * @return whether {@link #next()} can be called
+   */
+  boolean hasNext() {
+    return this.position < this.limit;
+  }
+
+  /**
+   * Returns the tag of the next element without reading it.
+   *
+   * @return the tag of the next element, {@code -1} if there are no more elements
+   */
+  int peek() {
+    return this.hasNext() ? this.der[this.position] & 0xFF : -1;
+  }
+
+  /**
+   * Returns a reader over the value of the current element, for constructed elements.
+   *
+   * @return a reader over the contained elements
+   */
+  DerReader contents() {
+    return new DerReader(this.der, this.valueOffset, this.position);
+  }
+
+  /**
+   * The tag of the current element.
+   */
+  int tag() {
+    return this.tag;
+  }
+
+  /**
+   * The offset of the tag of the current element.
+   */
+  int elementOffset() {
+    return this.elementOffset;
+  }
+
+  /**
+   * The offset of the value of the current element.
+   */
+  int valueOffset() {
+    return this.valueOffset;
+  }
+
+  /**
+   * The offset after the current element.
+   */
+  int end() {
+    return this.position;
+  }
+
+}
@@ -0,0 +1,537 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.Principal;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.security.cert.CertificateFactory;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Objects;
+
+import javax.security.auth.x500.X500Principal;
+
+/**
+ * A {@link javax.security.cert.X509Certificate} backed directly by its DER encoding.
+ * <p>
+ * Unlike {@link CertificateAdapter} no {@link java.security.cert.X509Certificate} is needed.
+ * The constructor only walks the structure of the certificate up to the subject public key
+ * info and decodes the validity period. The serial number, the distinguished names, the
+ * signature algorithm and the public key are decoded on first access and then kept.
+ * Extensions are never decoded. Only {@link #verify(PublicKey)}, {@link #toString()} and
+ * unknown algorithms fall back to parsing the certificate with a {@link CertificateFactory}.
+ */
+final class EncodedCertificate extends javax.security.cert.X509Certificate {
+
+  private final byte[] encoded;
+
+  private final CertificateVerificationCache verificationCache;
+
+  private final int version;
+
+  private final int serialNumberOffset;
+
+  private final int serialNumberEnd;
+
+  private final int issuerOffset;
+
+  private final int issuerEnd;
+
+  private final int subjectOffset;
+
+  private final int subjectEnd;
+
+  private final int publicKeyInfoOffset;
+
+  private final int publicKeyInfoEnd;
+
+  private final int sigAlgOIDOffset;
+
+  private final int sigAlgOIDEnd;
+
+  /**
+   * The offset of the encoded signature algorithm parameters, {@code -1} if there are none.
+   */
+  private final int sigAlgParamsOffset;
+
+  private final int sigAlgParamsEnd;
+
+  /**
+   * The start of the validity period in milliseconds since the epoch.
+   */
+  private final long notBefore;
+
+  /**
+   * The end of the validity period in milliseconds since the epoch.
+   */
+  private final long notAfter;
+
+  private volatile BigInteger serialNumber;
+
+  private volatile Principal issuerDN;
+
+  private volatile Principal subjectDN;
+
+  private volatile String sigAlgOID;
+
+  private volatile PublicKey publicKey;
+
+  /**
+   * The fully parsed certificate, only created when needed.
+   */
+  private volatile CertificateAdapter parsed;
+
+  private volatile String string;
+
+  /**
+   * The message of the exception thrown by {@link #checkValidity()} before the validity period.
+   */
+  private volatile String notYetValidMessage;
+
+  /**
+   * The message of the exception thrown by {@link #checkValidity()} after the validity period.
+   */
+  private volatile String expiredMessage;
+
+  /**
+   * The hash code of the encoded form, {@code 0} if not yet computed.
+   */
+  private volatile int hash;
+
+  /**
+   * Constructs a new certificate.
+   *
+   * @param encoded the DER encoded certificate, not copied, must not be modified afterwards
+   * @param verificationCache the cache of the verifications of this certificate
+   * @throws javax.security.cert.CertificateException if {@code encoded} is not the DER encoding
+   *                                                  of a certificate
+   */
+  EncodedCertificate(byte[] encoded, CertificateVerificationCache verificationCache) throws javax.security.cert.CertificateException {
+    Objects.requireNonNull(encoded, "encoded");
+    Objects.requireNonNull(verificationCache, "verificationCache");
+    this.encoded = encoded;
+    this.verificationCache = verificationCache;
+
+    // Certificate ::= SEQUENCE { tbsCertificate, signatureAlgorithm, signatureValue }
+    DerReader outer = new DerReader(encoded, 0, encoded.length);
+    outer.next(DerReader.SEQUENCE);
+    if (outer.hasNext()) {
+      throw new javax.security.cert.CertificateException("trailing data after certificate at offset " + outer.end());
+    }
+    DerReader certificate = outer.contents();
+    certificate.next(DerReader.SEQUENCE);
+    DerReader tbsCertificate = certificate.contents();
+
+    // AlgorithmIdentifier ::= SEQUENCE { algorithm, parameters OPTIONAL }
+    certificate.next(DerReader.SEQUENCE);
+    DerReader signatureAlgorithm = certificate.contents();
+    signatureAlgorithm.next(DerReader.OBJECT_IDENTIFIER);
+    this.sigAlgOIDOffset = signatureAlgorithm.valueOffset();
+    this.sigAlgOIDEnd = signatureAlgorithm.end();
+    if (signatureAlgorithm.hasNext()) {
+      signatureAlgorithm.next();
+      this.sigAlgParamsOffset = signatureAlgorithm.elementOffset();
+      this.sigAlgParamsEnd = signatureAlgorithm.end();
+    } else {
+      this.sigAlgParamsOffset = -1;
+      this.sigAlgParamsEnd = -1;
+    }
+    certificate.next(DerReader.BIT_STRING);
+
+    // version [0] EXPLICIT Version DEFAULT v1
+    if (tbsCertificate.peek() == DerReader.explicit(0)) {
+      tbsCertificate.next();
+      DerReader versionReader = tbsCertificate.contents();
+      versionReader.next(DerReader.INTEGER);
+      if (versionReader.end() - versionReader.valueOffset() != 1) {
+        throw new javax.security.cert.CertificateException("unsupported certificate version at offset " + versionReader.elementOffset());
+      }
+      this.version = encoded[versionReader.valueOffset()] + 1;
+    } else {
+      this.version = 1;
+    }
+
+    tbsCertificate.next(DerReader.INTEGER);
+    this.serialNumberOffset = tbsCertificate.valueOffset();
+    this.serialNumberEnd = tbsCertificate.end();
+    if (this.serialNumberOffset == this.serialNumberEnd) {
+      throw new javax.security.cert.CertificateException("empty serial number at offset " + tbsCertificate.elementOffset());
+    }
+
+    // signature, has to be the same as signatureAlgorithm
+    tbsCertificate.next(DerReader.SEQUENCE);
+
+    tbsCertificate.next(DerReader.SEQUENCE);
+    this.issuerOffset = tbsCertificate.elementOffset();
+    this.issuerEnd = tbsCertificate.end();
+
+    // Validity ::= SEQUENCE { notBefore Time, notAfter Time }
+    tbsCertificate.next(DerReader.SEQUENCE);
+    DerReader validity = tbsCertificate.contents();
+    this.notBefore = time(encoded, validity);
+    this.notAfter = time(encoded, validity);
+
+    tbsCertificate.next(DerReader.SEQUENCE);
+    this.subjectOffset = tbsCertificate.elementOffset();
+    this.subjectEnd = tbsCertificate.end();
+
+    tbsCertificate.next(DerReader.SEQUENCE);
+    this.publicKeyInfoOffset = tbsCertificate.elementOffset();
+    this.publicKeyInfoEnd = tbsCertificate.end();
+  }
+
+  /**
+   * Decodes a {@code Time}, only the forms allowed by RFC 5280 are supported.
+   */
+  private static long time(byte[] der, DerReader reader) throws javax.security.cert.CertificateException {
+    int tag = reader.next();
+    int offset = reader.valueOffset();
+    int length = reader.end() - offset;
+    int year;
+    int p;
+    if (tag == DerReader.UTC_TIME && length == 13) {
+      // YYMMDDHHMMSSZ
+      year = digits(der, offset, 2);
+      year += year < 50 ? 2000 : 1900;
+      p = offset + 2;
+    } else if (tag == DerReader.GENERALIZED_TIME && length == 15) {
+      // YYYYMMDDHHMMSSZ
+      year = digits(der, offset, 4);
+      p = offset + 4;
+    } else {
+      throw new javax.security.cert.CertificateException("unsupported time at offset " + reader.elementOffset());
+    }
+    if (der[reader.end() - 1] != 'Z') {
+      throw new javax.security.cert.CertificateException("time not in UTC at offset " + reader.elementOffset());
+    }
+    try {
+      LocalDateTime dateTime = LocalDateTime.of(year, digits(der, p, 2), digits(der, p + 2, 2),
+              digits(der, p + 4, 2), digits(der, p + 6, 2), digits(der, p + 8, 2));
+      return dateTime.toEpochSecond(ZoneOffset.UTC) * 1000L;
+    } catch (DateTimeException e) {
+      javax.security.cert.CertificateException certificateException = new javax.security.cert.CertificateException("invalid time at offset " + reader.elementOffset());
+      certificateException.initCause(e);
+      throw certificateException;
+    }
+  }
+
+  private static int digits(byte[] der, int offset, int count) throws javax.security.cert.CertificateException {
+    int value = 0;
+    for (int i = offset; i < offset + count; i++) {
+      int digit = der[i] - '0';
+      if (digit < 0 || digit > 9) {
+        throw new javax.security.cert.CertificateException("invalid digit in time at offset " + i);
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  /**
+   * Decodes the value of an {@code OBJECT IDENTIFIER} to its dotted form.
+   *
+   * @return the dotted form, {@code null} if an arc does not fit into a {@code long}
+   */
+  private static String objectIdentifier(byte[] der, int offset, int end) {
+    StringBuilder buffer = new StringBuilder(end - offset + 8);
+    long arc = 0L;
+    boolean first = true;
+    for (int i = offset; i < end; i++) {
+      if (arc >= 1L << 56) {
+        return null;
+      }
+      int b = der[i];
+      arc = (arc << 7) | (b & 0x7F);
+      if ((b & 0x80) == 0) {
+        if (first) {
+          // the first two arcs are encoded together
+          if (arc < 80L) {
+            buffer.append(arc / 40L).append('.').append(arc % 40L);
+          } else {
+            buffer.append("2.").append(arc - 80L);
+          }
+          first = false;
+        } else {
+          buffer.append('.').append(arc);
+        }
+        arc = 0L;
+      }
+    }
+    return buffer.toString();
+  }
+
+  @Override
+  public void checkValidity() throws javax.security.cert.CertificateExpiredException, javax.security.cert.CertificateNotYetValidException {
+    this.checkValidity(System.currentTimeMillis());
+  }
+
+  @Override
+  public void checkValidity(Date date) throws javax.security.cert.CertificateExpiredException, javax.security.cert.CertificateNotYetValidException {
+    this.checkValidity(date.getTime());
+  }
+
+  private void checkValidity(long time) throws javax.security.cert.CertificateExpiredException, javax.security.cert.CertificateNotYetValidException {
+    // same checks as the JDK implementation, both bounds are inclusive
+    if (time < this.notBefore) {
+      throw new CertificateAdapter.NotYetValidException(this.notYetValidMessage());
+    }
+    if (time > this.notAfter) {
+      throw new CertificateAdapter.ExpiredException(this.expiredMessage());
+    }
+  }
+
+  private String notYetValidMessage() {
+    String message = this.notYetValidMessage;
+    if (message == null) {
+      message = "NotBefore: " + new Date(this.notBefore);
+      this.notYetValidMessage = message;
+    }
+    return message;
+  }
+
+  private String expiredMessage() {
+    String message = this.expiredMessage;
+    if (message == null) {
+      message = "NotAfter: " + new Date(this.notAfter);
+      this.expiredMessage = message;
+    }
+    return message;
+  }
+
+  @Override
+  public int getVersion() {
+    // 1 based, same as CertificateAdapter
+    return this.version;
+  }
+
+  @Override
+  public BigInteger getSerialNumber() {
+    BigInteger serial = this.serialNumber;
+    if (serial == null) {
+      serial = new BigInteger(this.encoded, this.serialNumberOffset, this.serialNumberEnd - this.serialNumberOffset);
+      this.serialNumber = serial;
+    }
+    return serial;
+  }
+
+  @Override
+  public Principal getIssuerDN() {
+    Principal principal = this.issuerDN;
+    if (principal == null) {
+      principal = new X500Principal(Arrays.copyOfRange(this.encoded, this.issuerOffset, this.issuerEnd));
+      this.issuerDN = principal;
+    }
+    return principal;
+  }
+
+  @Override
+  public Principal getSubjectDN() {
+    Principal principal = this.subjectDN;
+    if (principal == null) {
+      principal = new X500Principal(Arrays.copyOfRange(this.encoded, this.subjectOffset, this.subjectEnd));
+      this.subjectDN = principal;
+    }
+    return principal;
+  }
+
+  @Override
+  public Date getNotBefore() {
+    return new Date(this.notBefore);
+  }
+
+  @Override
+  public Date getNotAfter() {
+    return new Date(this.notAfter);
+  }
+
+  @Override
+  public String getSigAlgName() {
+    return switch (this.getSigAlgOID()) {
+      case "1.2.840.113549.1.1.5" -> "SHA1withRSA";
+      case "1.2.840.113549.1.1.14" -> "SHA224withRSA";
+      case "1.2.840.113549.1.1.11" -> "SHA256withRSA";
+      case "1.2.840.113549.1.1.12" -> "SHA384withRSA";
+      case "1.2.840.113549.1.1.13" -> "SHA512withRSA";
+      case "1.2.840.113549.1.1.10" -> "RSASSA-PSS";
+      case "1.2.840.10045.4.1" -> "SHA1withECDSA";
+      case "1.2.840.10045.4.3.1" -> "SHA224withECDSA";
+      case "1.2.840.10045.4.3.2" -> "SHA256withECDSA";
+      case "1.2.840.10045.4.3.3" -> "SHA384withECDSA";
+      case "1.2.840.10045.4.3.4" -> "SHA512withECDSA";
+      case "1.3.101.112" -> "Ed25519";
+      case "1.3.101.113" -> "Ed448";
+      default -> this.parsedOrFail().getSigAlgName();
+    };
+  }
+
+  @Override
+  public String getSigAlgOID() {
+    String oid = this.sigAlgOID;
+    if (oid == null) {
+      oid = objectIdentifier(this.encoded, this.sigAlgOIDOffset, this.sigAlgOIDEnd);
+      if (oid == null) {
+        oid = this.parsedOrFail().getSigAlgOID();
+      }
+      this.sigAlgOID = oid;
+    }
+    return oid;
+  }
+
+  @Override
+  public byte[] getSigAlgParams() {
+    if (this.sigAlgParamsOffset == -1 || (this.encoded[this.sigAlgParamsOffset] & 0xFF) == DerReader.NULL) {
+      // same as the JDK implementation, an explicit NULL are no parameters
+      return null;
+    }
+    return Arrays.copyOfRange(this.encoded, this.sigAlgParamsOffset, this.sigAlgParamsEnd);
+  }
+
+  @Override
+  public byte[] getEncoded() {
+    return this.encoded.clone();
+  }
+
+  /**
+   * Returns the encoded form without copying it, callers must not modify the returned array.
+   *
+   * @return the encoded form shared by all callers
+   */
+  byte[] encoded() {
+    return this.encoded;
+  }
+
+  @Override
+  public PublicKey getPublicKey() {
+    PublicKey key = this.publicKey;
+    if (key == null) {
+      key = this.decodePublicKey();
+      this.publicKey = key;
+    }
+    return key;
+  }
+
+  private PublicKey decodePublicKey() {
+    // SubjectPublicKeyInfo ::= SEQUENCE { algorithm AlgorithmIdentifier, subjectPublicKey BIT STRING }
+    DerReader publicKeyInfo = new DerReader(this.encoded, this.publicKeyInfoOffset, this.publicKeyInfoEnd);
+    String keyAlgorithm;
+    try {
+      publicKeyInfo.next(DerReader.SEQUENCE);
+      DerReader algorithm = publicKeyInfo.contents();
+      algorithm.next(DerReader.SEQUENCE);
+      DerReader algorithmIdentifier = algorithm.contents();
+      algorithmIdentifier.next(DerReader.OBJECT_IDENTIFIER);
+      String oid = objectIdentifier(this.encoded, algorithmIdentifier.valueOffset(), algorithmIdentifier.end());
+      keyAlgorithm = oid == null ? null : switch (oid) {
+        case "1.2.840.113549.1.1.1" -> "RSA";
+        case "1.2.840.113549.1.1.10" -> "RSASSA-PSS";
+        case "1.2.840.10045.2.1" -> "EC";
+        case "1.2.840.10040.4.1" -> "DSA";
+        case "1.3.101.112" -> "Ed25519";
+        case "1.3.101.113" -> "Ed448";
+        default -> null;
+      };
+    } catch (javax.security.cert.CertificateException e) {
+      keyAlgorithm = null;
+    }
+    if (keyAlgorithm != null) {
+      byte[] keySpec = Arrays.copyOfRange(this.encoded, this.publicKeyInfoOffset, this.publicKeyInfoEnd);
+      try {
+        return KeyFactory.getInstance(keyAlgorithm).generatePublic(new X509EncodedKeySpec(keySpec));
+      } catch (GeneralSecurityException e) {
+        // let the certificate factory decide
+      }
+    }
+    return this.parsedOrFail().getPublicKey();
+  }
+
+  /**
+   * Returns the fully parsed certificate, parsing it on first access.
+   *
+   * @return the fully parsed certificate
+   * @throws javax.security.cert.CertificateException if the certificate can not be parsed
+   */
+  private CertificateAdapter parsed() throws javax.security.cert.CertificateException {
+    CertificateAdapter adapter = this.parsed;
+    if (adapter == null) {
+      java.security.cert.X509Certificate certificate;
+      try {
+        CertificateFactory factory = CertificateFactory.getInstance("X.509");
+        certificate = (java.security.cert.X509Certificate) factory.generateCertificate(new ByteArrayInputStream(this.encoded));
+      } catch (java.security.cert.CertificateException e) {
+        javax.security.cert.CertificateException deprecatedException = new javax.security.cert.CertificateException(e.getMessage());
+        deprecatedException.initCause(e);
+        throw deprecatedException;
+      }
+      adapter = new CertificateAdapter(certificate, this.verificationCache);
+      this.parsed = adapter;
+    }
+    return adapter;
+  }
+
+  private CertificateAdapter parsedOrFail() {
+    try {
+      return this.parsed();
+    } catch (javax.security.cert.CertificateException e) {
+      throw new IllegalStateException("could not parse certificate", e);
+    }
+  }
+
+  @Override
+  public void verify(PublicKey key) throws javax.security.cert.CertificateException, NoSuchAlgorithmException, InvalidKeyException, NoSuchProviderException, SignatureException {
+    this.parsed().verify(key);
+  }
+
+  @Override
+  public void verify(PublicKey key, String sigProvider) throws javax.security.cert.CertificateException, NoSuchAlgorithmException,
+  InvalidKeyException, NoSuchProviderException, SignatureException {
+    this.parsed().verify(key, sigProvider);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj instanceof EncodedCertificate other) {
+      return Arrays.equals(this.encoded, other.encoded);
+    }
+    // compares copies of the encoded forms
+    return super.equals(obj);
+  }
+
+  @Override
+  public int hashCode() {
+    int h = this.hash;
+    if (h == 0) {
+      h = CertificateAdapter.hashCode(this.encoded);
+      this.hash = h;
+    }
+    return h;
+  }
+
+  @Override
+  public String toString() {
+    String s = this.string;
+    if (s == null) {
+      try {
+        s = this.parsed().toString();
+      } catch (javax.security.cert.CertificateException e) {
+        s = "[Subject: " + this.getSubjectDN() + ", Issuer: " + this.getIssuerDN() + ", Serial number: " + this.getSerialNumber().toString(16)
+                + ", NotBefore: " + this.getNotBefore() + ", NotAfter: " + this.getNotAfter() + "]";
+      }
+      this.string = s;
+    }
+    return s;
+  }
+
+}
@@ -0,0 +1,31 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when a handshake started with {@link javax.net.ssl.SSLSocket#startHandshake()}
+ * completes, the duration of the event is the duration of the handshake.
+ */
+@Name("com.github.marschall.legacycompatibilitysslsocketfactory.Handshake")
+@Label("Handshake")
+@Description("A TLS handshake of a legacy compatibility SSL socket")
+@Category({"Java Application", "Legacy Compatibility SSL"})
+final class HandshakeEvent extends Event {
+
+  @Label("Peer Host")
+  String peerHost;
+
+  @Label("Peer Port")
+  int peerPort;
+
+  @Label("Protocol")
+  String protocol;
+
+  @Label("Cipher Suite")
+  String cipherSuite;
+
+}
@@ -0,0 +1,275 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnsupportedAddressTypeException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connects to the first of several addresses of a host that accepts a connection, starting
+ * the connection attempts staggered, as in
+ * <a href="https://www.rfc-editor.org/rfc/rfc8305">RFC 8305</a>.
+ * <p>
+ * The attempts are non-blocking connects of socket channels that are waited for with a selector
+ * on the calling thread. A new attempt is started when the attempt delay expires or when
+ * an attempt fails. The first connected channel wins, all others are closed.
+ * <p>
+ * When binding to a local address only the addresses of the same family are tried. Concurrent
+ * attempts can not all bind the same fixed local port, with one the attempts are made one at a
+ * time instead.
+ */
+final class HappyEyeballs {
+
+  private HappyEyeballs() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Connects to one of the addresses.
+   *
+   * @param addresses the addresses of the host in the order of preference, not empty
+   * @param port the port to connect to
+   * @param localAddress the local address to bind to, {@code null} to not bind
+   * @param attemptDelayMillis the delay between starting two attempts in milliseconds, positive
+   * @param timeoutMillis the timeout for connecting in milliseconds, {@code 0} for no timeout
+   * @return the connected channel, in blocking mode
+   * @throws SocketTimeoutException if no attempt succeeded in time
+   * @throws IOException the exception of the first failed attempt if all attempts fail, the others
+   *                     are suppressed
+   */
+  static SocketChannel connect(InetAddress[] addresses, int port, InetSocketAddress localAddress,
+          int attemptDelayMillis, int timeoutMillis) throws IOException {
+    InetAddress[] candidates = addresses;
+    if (localAddress != null) {
+      candidates = sameFamily(addresses, localAddress.getAddress());
+      if (localAddress.getPort() != 0) {
+        return connectSequentially(interleave(candidates), port, localAddress, attemptDelayMillis, timeoutMillis);
+      }
+    }
+    return race(interleave(candidates), port, localAddress, attemptDelayMillis, timeoutMillis);
+  }
+
+  private static SocketChannel race(InetAddress[] ordered, int port, SocketAddress localAddress,
+          int attemptDelayMillis, int timeoutMillis) throws IOException {
+    long attemptDelay = TimeUnit.MILLISECONDS.toNanos(attemptDelayMillis);
+    long start = System.nanoTime();
+    long timeout = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    List<SocketChannel> attempts = new ArrayList<>(ordered.length);
+    SocketChannel winner = null;
+    IOException failure = null;
+    int next = 0;
+    int pending = 0;
+    long nextAttempt = start;
+    try (Selector selector = Selector.open()) {
+      while (winner == null) {
+        long now = System.nanoTime();
+        if (next < ordered.length && now - nextAttempt >= 0L) {
+          InetSocketAddress remoteAddress = new InetSocketAddress(ordered[next], port);
+          next += 1;
+          SocketChannel channel = null;
+          try {
+            channel = SocketChannel.open();
+            attempts.add(channel);
+            channel.configureBlocking(false);
+            if (localAddress != null) {
+              channel.bind(localAddress);
+            }
+            if (channel.connect(remoteAddress)) {
+              winner = channel;
+              break;
+            }
+            channel.register(selector, SelectionKey.OP_CONNECT);
+            pending += 1;
+            nextAttempt = now + attemptDelay;
+          } catch (IOException e) {
+            failure = addFailure(failure, e);
+            closeAttempt(channel);
+            // start the next attempt right away
+            nextAttempt = now;
+          } catch (UnsupportedAddressTypeException e) {
+            failure = addFailure(failure, unsupportedAddress(remoteAddress, e));
+            closeAttempt(channel);
+            nextAttempt = now;
+          }
+          continue;
+        }
+        if (pending == 0 && next == ordered.length) {
+          throw failure;
+        }
+        long wait = next < ordered.length ? nextAttempt - now : Long.MAX_VALUE;
+        if (timeout > 0L) {
+          long remaining = timeout - (now - start);
+          if (remaining <= 0L) {
+            throw new SocketTimeoutException("connect timed out");
+          }
+          wait = Math.min(wait, remaining);
+        }
+        if (wait == Long.MAX_VALUE) {
+          selector.select();
+        } else {
+          // at least one millisecond, zero waits forever
+          selector.select(Math.max(TimeUnit.NANOSECONDS.toMillis(wait), 1L));
+        }
+        if (Thread.interrupted()) {
+          throw new InterruptedIOException("interrupted while connecting");
+        }
+        for (SelectionKey key : selector.selectedKeys()) {
+          SocketChannel channel = (SocketChannel) key.channel();
+          try {
+            if (channel.finishConnect()) {
+              winner = channel;
+              break;
+            }
+          } catch (IOException e) {
+            failure = addFailure(failure, e);
+            key.cancel();
+            channel.close();
+            pending -= 1;
+            nextAttempt = System.nanoTime();
+          }
+        }
+        selector.selectedKeys().clear();
+      }
+    } finally {
+      for (SocketChannel attempt : attempts) {
+        if (attempt != winner) {
+          attempt.close();
+        }
+      }
+    }
+    // closing the selector deregistered the channel
+    try {
+      winner.configureBlocking(true);
+    } catch (IOException | RuntimeException e) {
+      winner.close();
+      throw e;
+    }
+    return winner;
+  }
+
+  /**
+   * Makes one attempt at a time. Every attempt but the last is given up after the attempt delay,
+   * the last one gets the rest of the timeout.
+   */
+  private static SocketChannel connectSequentially(InetAddress[] ordered, int port, SocketAddress localAddress,
+          int attemptDelayMillis, int timeoutMillis) throws IOException {
+    long start = System.nanoTime();
+    long timeout = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    IOException failure = null;
+    for (int i = 0; i < ordered.length; i++) {
+      int attemptTimeoutMillis = i < ordered.length - 1 ? attemptDelayMillis : 0;
+      if (timeout > 0L) {
+        long remaining = timeout - (System.nanoTime() - start);
+        if (remaining <= 0L) {
+          throw new SocketTimeoutException("connect timed out");
+        }
+        // at least one millisecond, zero waits forever
+        int remainingMillis = (int) Math.max(TimeUnit.NANOSECONDS.toMillis(remaining), 1L);
+        attemptTimeoutMillis = attemptTimeoutMillis == 0 ? remainingMillis : Math.min(attemptTimeoutMillis, remainingMillis);
+      }
+      InetSocketAddress remoteAddress = new InetSocketAddress(ordered[i], port);
+      SocketChannel channel = SocketChannel.open();
+      try {
+        channel.bind(localAddress);
+        channel.socket().connect(remoteAddress, attemptTimeoutMillis);
+        return channel;
+      } catch (IOException e) {
+        failure = addFailure(failure, e);
+        channel.close();
+      } catch (UnsupportedAddressTypeException e) {
+        failure = addFailure(failure, unsupportedAddress(remoteAddress, e));
+        channel.close();
+      } catch (RuntimeException e) {
+        channel.close();
+        throw e;
+      }
+    }
+    throw failure;
+  }
+
+  /**
+   * Selects the addresses of the same family as a local address, a wildcard address matches
+   * all. If none matches all are returned so that the attempts fail as they would without
+   * binding.
+   */
+  static InetAddress[] sameFamily(InetAddress[] addresses, InetAddress localAddress) {
+    if (localAddress == null || localAddress.isAnyLocalAddress()) {
+      return addresses;
+    }
+    boolean localIsIPv6 = localAddress instanceof Inet6Address;
+    List<InetAddress> matching = new ArrayList<>(addresses.length);
+    for (InetAddress address : addresses) {
+      if ((address instanceof Inet6Address) == localIsIPv6) {
+        matching.add(address);
+      }
+    }
+    if (matching.isEmpty() || matching.size() == addresses.length) {
+      return addresses;
+    }
+    return matching.toArray(new InetAddress[0]);
+  }
+
+  private static void closeAttempt(SocketChannel channel) throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+  }
+
+  private static IOException unsupportedAddress(InetSocketAddress remoteAddress, RuntimeException cause) {
+    // for example IPv6 addresses without IPv6 support
+    ConnectException exception = new ConnectException("unsupported address: " + remoteAddress);
+    exception.initCause(cause);
+    return exception;
+  }
+
+  private static IOException addFailure(IOException failure, IOException e) {
+    if (failure == null) {
+      return e;
+    }
+    failure.addSuppressed(e);
+    return failure;
+  }
+
+  /**
+   * Orders the addresses alternating between IPv6 and IPv4, starting with the family of the
+   * first address and otherwise keeping the order.
+   */
+  static InetAddress[] interleave(InetAddress[] addresses) {
+    List<InetAddress> first = new ArrayList<>(addresses.length);
+    List<InetAddress> second = new ArrayList<>(addresses.length);
+    boolean firstIsIPv6 = addresses[0] instanceof Inet6Address;
+    for (InetAddress address : addresses) {
+      if ((address instanceof Inet6Address) == firstIsIPv6) {
+        first.add(address);
+      } else {
+        second.add(address);
+      }
+    }
+    if (second.isEmpty()) {
+      return addresses;
+    }
+    InetAddress[] interleaved = new InetAddress[addresses.length];
+    int index = 0;
+    for (int i = 0; i < Math.max(first.size(), second.size()); i++) {
+      if (i < first.size()) {
+        interleaved[index++] = first.get(i);
+      }
+      if (i < second.size()) {
+        interleaved[index++] = second.get(i);
+      }
+    }
+    return interleaved;
+  }
+
+}
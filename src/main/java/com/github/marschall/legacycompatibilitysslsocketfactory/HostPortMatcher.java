@@ -0,0 +1,228 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A {@link WrappingPolicy} compiled from host and port patterns.
+ * <p>
+ * Host names are looked up in a hash map. Domain patterns are looked up in a second hash map
+ * once for every parent domain of the host name. The ports of a host or domain are kept in a
+ * sorted array.
+ *
+ * @see WrappingPolicy#matching(Collection)
+ */
+final class HostPortMatcher implements WrappingPolicy {
+
+  /**
+   * The bit in the port sets marking all ports.
+   */
+  private static final int ANY_PORT = 0x1_0000;
+
+  private final Map<String, Ports> hosts;
+
+  /**
+   * The ports by domain, without the leading {@code *.}.
+   */
+  private final Map<String, Ports> domains;
+
+  /**
+   * Bit {@code n} is set if a domain has {@code n} labels, bit 63 for 63 or more labels. Used to
+   * look up only the parent domains that can match.
+   */
+  private final long domainLabelCounts;
+
+  /**
+   * The ports for all hosts, {@code null} if there are none.
+   */
+  private final Ports anyHost;
+
+  private final int patternCount;
+
+  HostPortMatcher(Collection<String> patterns) {
+    Objects.requireNonNull(patterns, "patterns");
+    Map<String, BitSet> hostPorts = new HashMap<>();
+    Map<String, BitSet> domainPorts = new HashMap<>();
+    BitSet anyHostPorts = new BitSet();
+    for (String pattern : patterns) {
+      Objects.requireNonNull(pattern, "pattern");
+      String host;
+      String port;
+      int colon = pattern.lastIndexOf(':');
+      if (pattern.startsWith("[")) {
+        int closingBracket = pattern.indexOf(']');
+        if (closingBracket == -1 || (closingBracket != pattern.length() - 1 && colon != closingBracket + 1)) {
+          throw new IllegalArgumentException("invalid pattern: " + pattern);
+        }
+        host = pattern.substring(1, closingBracket);
+        port = closingBracket == pattern.length() - 1 ? "*" : pattern.substring(colon + 1);
+      } else if (colon != -1 && pattern.indexOf(':') == colon) {
+        host = pattern.substring(0, colon);
+        port = pattern.substring(colon + 1);
+      } else {
+        // no port or an IPv6 address without a port
+        host = pattern;
+        port = "*";
+      }
+      int portBit = parsePort(port, pattern);
+      if (host.equals("*")) {
+        anyHostPorts.set(portBit);
+      } else if (host.startsWith("*.")) {
+        domainPorts.computeIfAbsent(parseHost(host.substring(2), pattern), key -> new BitSet()).set(portBit);
+      } else {
+        hostPorts.computeIfAbsent(parseHost(host, pattern), key -> new BitSet()).set(portBit);
+      }
+    }
+    this.hosts = compile(hostPorts);
+    this.domains = compile(domainPorts);
+    long labelCounts = 0L;
+    for (String domain : domainPorts.keySet()) {
+      labelCounts |= labelCountBit(domain, 0);
+    }
+    this.domainLabelCounts = labelCounts;
+    this.anyHost = anyHostPorts.isEmpty() ? null : Ports.of(anyHostPorts);
+    this.patternCount = patterns.size();
+  }
+
+  private static int parsePort(String port, String pattern) {
+    if (port.equals("*")) {
+      return ANY_PORT;
+    }
+    int value;
+    try {
+      value = Integer.parseInt(port);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("invalid port in pattern: " + pattern, e);
+    }
+    if (value < 1 || value > 0xFFFF) {
+      throw new IllegalArgumentException("invalid port in pattern: " + pattern);
+    }
+    return value;
+  }
+
+  private static String parseHost(String host, String pattern) {
+    String normalized = normalize(host);
+    if (normalized.isEmpty() || normalized.indexOf('*') != -1) {
+      throw new IllegalArgumentException("invalid host in pattern: " + pattern);
+    }
+    return normalized;
+  }
+
+  private static Map<String, Ports> compile(Map<String, BitSet> portsByName) {
+    Map<String, Ports> compiled = new HashMap<>(portsByName.size() * 4 / 3 + 1);
+    portsByName.forEach((name, ports) -> compiled.put(name, Ports.of(ports)));
+    return compiled;
+  }
+
+  /**
+   * Normalizes a host name or literal IP address so that equal hosts have equal strings.
+   */
+  static String normalize(String host) {
+    String normalized = host;
+    if (normalized.startsWith("[") && normalized.endsWith("]")) {
+      normalized = normalized.substring(1, normalized.length() - 1);
+    }
+    if (normalized.indexOf(':') != -1 && isIPv6Literal(normalized)) {
+      // IPv6 addresses have several textual forms, parsing a literal does no lookup
+      try {
+        return InetAddress.getByName(normalized).getHostAddress();
+      } catch (UnknownHostException | SecurityException e) {
+        return normalized;
+      }
+    }
+    if (normalized.endsWith(".")) {
+      // fully qualified
+      normalized = normalized.substring(0, normalized.length() - 1);
+    }
+    // returns the same instance if already in lower case
+    return normalized.toLowerCase(Locale.ROOT);
+  }
+
+  static long labelCountBit(String name, int fromIndex) {
+    int labels = 1;
+    for (int dot = name.indexOf('.', fromIndex); dot != -1; dot = name.indexOf('.', dot + 1)) {
+      labels += 1;
+    }
+    return 1L << Math.min(labels, 63);
+  }
+
+  static boolean isIPv6Literal(String host) {
+    for (int i = 0; i < host.length(); i++) {
+      char c = host.charAt(i);
+      boolean valid = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F') || c == ':' || c == '.';
+      if (!valid) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean shouldWrap(String host, int port) {
+    String normalized = normalize(host);
+    Ports ports = this.hosts.get(normalized);
+    if (ports != null && ports.contains(port)) {
+      return true;
+    }
+    if (this.domainLabelCounts != 0L) {
+      for (int dot = normalized.indexOf('.'); dot != -1; dot = normalized.indexOf('.', dot + 1)) {
+        if ((this.domainLabelCounts & labelCountBit(normalized, dot + 1)) == 0L) {
+          // no domain with as many labels, avoids creating the substring
+          continue;
+        }
+        ports = this.domains.get(normalized.substring(dot + 1));
+        if (ports != null && ports.contains(port)) {
+          return true;
+        }
+      }
+    }
+    return this.anyHost != null && this.anyHost.contains(port);
+  }
+
+  @Override
+  public String toString() {
+    return this.getClass().getSimpleName() + "[patterns=" + this.patternCount + ']';
+  }
+
+  /**
+   * An immutable set of ports.
+   */
+  static final class Ports {
+
+    private static final Ports ALL = new Ports(null);
+
+    /**
+     * The ports in ascending order, {@code null} for all ports.
+     */
+    private final int[] ports;
+
+    private Ports(int[] ports) {
+      this.ports = ports;
+    }
+
+    static Ports of(BitSet ports) {
+      if (ports.get(ANY_PORT)) {
+        return ALL;
+      }
+      return new Ports(ports.stream().toArray());
+    }
+
+    boolean contains(int port) {
+      int[] p = this.ports;
+      if (p == null) {
+        return true;
+      }
+      // usually one or two ports
+      return p.length == 1 ? p[0] == port : Arrays.binarySearch(p, port) >= 0;
+    }
+
+  }
+
+}
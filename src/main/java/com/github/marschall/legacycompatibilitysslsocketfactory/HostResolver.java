@@ -0,0 +1,35 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Resolves the addresses of a host name for the sockets a {@link LegacyCompatibilitySSLSocketFactory}
+ * connects itself.
+ * <p>
+ * Implementations are called concurrently for every socket connected.
+ *
+ * @see LegacyCompatibilitySSLSocketFactory.Builder#hostResolver(HostResolver)
+ */
+@FunctionalInterface
+public interface HostResolver {
+
+  /**
+   * Resolves the addresses of a host name.
+   *
+   * @param host the host name or the literal IP address, not {@code null}
+   * @return the addresses in the order of preference, not {@code null}, not empty
+   * @throws UnknownHostException if no address is found
+   */
+  InetAddress[] resolve(String host) throws UnknownHostException;
+
+  /**
+   * Returns the resolver using the name service of the JDK.
+   *
+   * @return the resolver using {@link InetAddress#getAllByName(String)}, not {@code null}
+   */
+  static HostResolver getDefault() {
+    return InetAddress::getAllByName;
+  }
+
+}
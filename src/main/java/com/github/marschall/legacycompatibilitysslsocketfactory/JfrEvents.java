@@ -0,0 +1,80 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.net.InetAddress;
+import java.net.Socket;
+
+import javax.net.ssl.SSLSession;
+
+/**
+ * Creates and commits the JFR events.
+ * <p>
+ * Must only be used if {@link JfrSupport#AVAILABLE} is {@code true}. The events are passed
+ * around as {@link Object} so that the callers do not reference any JFR type.
+ */
+final class JfrEvents {
+
+  private JfrEvents() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Begins a {@link PeerCertificateChainEvent}.
+   *
+   * @return the event, {@code null} if it is not enabled
+   */
+  static Object beginPeerCertificateChain() {
+    PeerCertificateChainEvent event = new PeerCertificateChainEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.begin();
+    return event;
+  }
+
+  static void commitPeerCertificateChain(Object event, int chainLength, boolean cached) {
+    PeerCertificateChainEvent peerCertificateChainEvent = (PeerCertificateChainEvent) event;
+    peerCertificateChainEvent.end();
+    if (peerCertificateChainEvent.shouldCommit()) {
+      peerCertificateChainEvent.chainLength = chainLength;
+      peerCertificateChainEvent.cached = cached;
+      peerCertificateChainEvent.commit();
+    }
+  }
+
+  /**
+   * Begins a {@link HandshakeEvent}.
+   *
+   * @return the event, {@code null} if it is not enabled
+   */
+  static Object beginHandshake() {
+    HandshakeEvent event = new HandshakeEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.begin();
+    return event;
+  }
+
+  static void commitHandshake(Object event, SSLSession session) {
+    HandshakeEvent handshakeEvent = (HandshakeEvent) event;
+    handshakeEvent.end();
+    if (handshakeEvent.shouldCommit()) {
+      handshakeEvent.peerHost = session.getPeerHost();
+      handshakeEvent.peerPort = session.getPeerPort();
+      handshakeEvent.protocol = session.getProtocol();
+      handshakeEvent.cipherSuite = session.getCipherSuite();
+      handshakeEvent.commit();
+    }
+  }
+
+  static void socketCreated(Socket socket) {
+    SocketCreatedEvent event = new SocketCreatedEvent();
+    if (event.shouldCommit()) {
+      InetAddress address = socket.getInetAddress();
+      event.address = address != null ? address.getHostAddress() : null;
+      event.port = socket.getPort();
+      event.commit();
+    }
+  }
+
+}
@@ -0,0 +1,46 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.util.Optional;
+
+/**
+ * Whether the {@code jdk.jfr} module is present at run time.
+ * <p>
+ * The module is an optional dependency. This class does not reference any JFR type so that the
+ * uninstrumented paths only read {@link #AVAILABLE}. {@link JfrEvents}, which does, is only used
+ * if it is {@code true}.
+ */
+final class JfrSupport {
+
+  /**
+   * Whether JFR events can be emitted.
+   */
+  static final boolean AVAILABLE = isAvailable();
+
+  private JfrSupport() {
+    throw new AssertionError("not instantiable");
+  }
+
+  private static boolean isAvailable() {
+    Module module = JfrSupport.class.getModule();
+    if (!module.isNamed()) {
+      // on the class path
+      try {
+        Class.forName("jdk.jfr.Event", false, JfrSupport.class.getClassLoader());
+        return true;
+      } catch (ClassNotFoundException | LinkageError e) {
+        return false;
+      }
+    }
+    ModuleLayer layer = module.getLayer() != null ? module.getLayer() : ModuleLayer.boot();
+    Optional<Module> jfr = layer.findModule("jdk.jfr");
+    if (jfr.isEmpty()) {
+      return false;
+    }
+    // "requires static" only reads the module if it was resolved because of another module
+    if (!module.canRead(jfr.get())) {
+      module.addReads(jfr.get());
+    }
+    return true;
+  }
+
+}
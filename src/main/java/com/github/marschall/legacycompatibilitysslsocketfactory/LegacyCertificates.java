@@ -0,0 +1,155 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.security.cert.Certificate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Creates {@link javax.security.cert.X509Certificate} instances for code that holds
+ * certificates outside of an {@link javax.net.ssl.SSLSession}.
+ */
+public final class LegacyCertificates {
+
+  /**
+   * The number of chains a fork/join task adapts without splitting further.
+   */
+  private static final int CHAINS_PER_TASK = 256;
+
+  private LegacyCertificates() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Creates a certificate directly from its DER encoding.
+   * <p>
+   * Unlike {@link javax.security.cert.X509Certificate#getInstance(byte[])}, which no longer
+   * works on current JDKs, and {@link java.security.cert.CertificateFactory} the certificate
+   * is not fully parsed. Only its structure is checked and its validity period decoded,
+   * the other fields are decoded on first access. This makes converting many certificates
+   * cheap when only a few fields, for example the subject, are accessed. Signature
+   * verification parses the certificate fully and uses
+   * {@link CertificateVerificationCache#getDefault()}.
+   * <p>
+   * The times in the validity period have to be in one of the forms required by RFC 5280.
+   *
+   * @param encoded the DER encoded certificate, copied
+   * @return the certificate
+   * @throws javax.security.cert.CertificateException if {@code encoded} is not the DER encoding
+   *                                                  of a certificate
+   */
+  public static javax.security.cert.X509Certificate fromEncoded(byte[] encoded) throws javax.security.cert.CertificateException {
+    Objects.requireNonNull(encoded, "encoded");
+    return new EncodedCertificate(encoded.clone(), CertificateVerificationCache.getDefault());
+  }
+
+  /**
+   * Adapts many certificate chains, for example of all the sessions in a
+   * {@link javax.net.ssl.SSLSessionContext}, in the calling thread.
+   * <p>
+   * Every distinct certificate is adapted only once and the adapter is shared by all chains
+   * containing the certificate, so intermediate and root certificates shared by many chains
+   * cost nothing extra. Certificates are compared by their encoded forms. Unlike
+   * {@link javax.net.ssl.SSLSession#getPeerCertificateChain()} no bounded cache is involved,
+   * so the number of distinct certificates does not matter. The adapters use
+   * {@link CertificateVerificationCache#getDefault()}.
+   *
+   * @param chains the certificate chains, for example as returned by
+   *               {@link javax.net.ssl.SSLSession#getPeerCertificates()}
+   * @return the adapted chains in the same order, unmodifiable
+   * @throws IllegalArgumentException if a certificate is not a {@link java.security.cert.X509Certificate}
+   */
+  public static List<javax.security.cert.X509Certificate[]> adaptChains(List<? extends Certificate[]> chains) {
+    Objects.requireNonNull(chains, "chains");
+    Certificate[][] certificateChains = chains.toArray(new Certificate[0][]);
+    javax.security.cert.X509Certificate[][] adaptedChains = new javax.security.cert.X509Certificate[certificateChains.length][];
+    adaptChains(certificateChains, adaptedChains, 0, certificateChains.length, new HashMap<>());
+    return List.of(adaptedChains);
+  }
+
+  /**
+   * Adapts many certificate chains in parallel using a fork/join pool.
+   * <p>
+   * Behaves like {@link #adaptChains(List)}, but the chains are split into tasks of
+   * a few hundred chains. This only pays off for tens of thousands of chains.
+   *
+   * @param chains the certificate chains, for example as returned by
+   *               {@link javax.net.ssl.SSLSession#getPeerCertificates()}
+   * @param pool the pool in which to adapt the chains, for example {@link ForkJoinPool#commonPool()}
+   * @return the adapted chains in the same order, unmodifiable
+   * @throws IllegalArgumentException if a certificate is not a {@link java.security.cert.X509Certificate}
+   */
+  public static List<javax.security.cert.X509Certificate[]> adaptChains(List<? extends Certificate[]> chains, ForkJoinPool pool) {
+    Objects.requireNonNull(chains, "chains");
+    Objects.requireNonNull(pool, "pool");
+    Certificate[][] certificateChains = chains.toArray(new Certificate[0][]);
+    javax.security.cert.X509Certificate[][] adaptedChains = new javax.security.cert.X509Certificate[certificateChains.length][];
+    pool.invoke(new AdaptChainsTask(certificateChains, adaptedChains, 0, certificateChains.length, new ConcurrentHashMap<>()));
+    return List.of(adaptedChains);
+  }
+
+  private static void adaptChains(Certificate[][] chains, javax.security.cert.X509Certificate[][] adaptedChains, int from, int to,
+          Map<java.security.cert.X509Certificate, javax.security.cert.X509Certificate> adapters) {
+    for (int i = from; i < to; i++) {
+      Certificate[] chain = Objects.requireNonNull(chains[i], "chain");
+      javax.security.cert.X509Certificate[] adaptedChain = new javax.security.cert.X509Certificate[chain.length];
+      for (int j = 0; j < chain.length; j++) {
+        // Certificate#equals compares the encoded forms, Certificate#hashCode is cached
+        adaptedChain[j] = adapters.computeIfAbsent(x509(chain[j]), CertificateAdapter::new);
+      }
+      adaptedChains[i] = adaptedChain;
+    }
+  }
+
+  private static java.security.cert.X509Certificate x509(Certificate certificate) {
+    Objects.requireNonNull(certificate, "certificate");
+    if (certificate instanceof java.security.cert.X509Certificate x509Certificate) {
+      return x509Certificate;
+    }
+    throw new IllegalArgumentException("not a X.509 certificate: " + certificate.getType());
+  }
+
+  /**
+   * Adapts a range of chains, splits the range in two as long as it is too large.
+   */
+  private static final class AdaptChainsTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Certificate[][] chains;
+
+    private final transient javax.security.cert.X509Certificate[][] adaptedChains;
+
+    private final int from;
+
+    private final int to;
+
+    private final transient Map<java.security.cert.X509Certificate, javax.security.cert.X509Certificate> adapters;
+
+    AdaptChainsTask(Certificate[][] chains, javax.security.cert.X509Certificate[][] adaptedChains, int from, int to,
+            Map<java.security.cert.X509Certificate, javax.security.cert.X509Certificate> adapters) {
+      this.chains = chains;
+      this.adaptedChains = adaptedChains;
+      this.from = from;
+      this.to = to;
+      this.adapters = adapters;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from <= CHAINS_PER_TASK) {
+        adaptChains(this.chains, this.adaptedChains, this.from, this.to, this.adapters);
+      } else {
+        int middle = (this.from + this.to) >>> 1;
+        invokeAll(new AdaptChainsTask(this.chains, this.adaptedChains, this.from, middle, this.adapters),
+                new AdaptChainsTask(this.chains, this.adaptedChains, middle, this.to, this.adapters));
+      }
+    }
+
+  }
+
+}
@@ -1,5 +1,7 @@
 package com.github.marschall.legacycompatibilitysslsocketfactory;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.security.Principal;
 import java.security.cert.Certificate;
 import java.util.List;
@@ -13,14 +15,40 @@ import javax.net.ssl.SSLSessionContext;
 /**
  * A {@link ExtendedSSLSession} that implements {@link #getPeerCertificateChain()}
  * and delegates everything else to an actual {@link ExtendedSSLSession}.
+ * <p>
+ * The converted certificate chain is computed once and then shared, callers must
+ * not modify the returned array.
  */
 final class LegacyCompatibilityExtendedSSLSession extends ExtendedSSLSession {
 
+  private static final VarHandle PEER_CERTIFICATE_CHAIN;
+
+  static {
+    try {
+      PEER_CERTIFICATE_CHAIN = MethodHandles.lookup().findVarHandle(LegacyCompatibilityExtendedSSLSession.class, "peerCertificateChain", javax.security.cert.X509Certificate[].class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
   private final ExtendedSSLSession delegate;
 
-  LegacyCompatibilityExtendedSSLSession(ExtendedSSLSession delegate) {
+  private final SocketSettings settings;
+
+  /**
+   * Lazily converted peer certificate chain, shared by all callers.
+   */
+  private volatile javax.security.cert.X509Certificate[] peerCertificateChain;
+
+  LegacyCompatibilityExtendedSSLSession(ExtendedSSLSession delegate, CertificateAdapterCache certificateAdapterCache) {
+    this(delegate, new SocketSettings(certificateAdapterCache));
+  }
+
+  LegacyCompatibilityExtendedSSLSession(ExtendedSSLSession delegate, SocketSettings settings) {
     Objects.requireNonNull(delegate, "delegate");
+    Objects.requireNonNull(settings, "settings");
     this.delegate = delegate;
+    this.settings = settings;
   }
 
   @Override
@@ -85,16 +113,47 @@ final class LegacyCompatibilityExtendedSSLSession extends ExtendedSSLSession {
 
   @Override
   public javax.security.cert.X509Certificate[] getPeerCertificateChain() throws SSLPeerUnverifiedException {
-    Certificate[] peerCertificates = this.getPeerCertificates();
-    javax.security.cert.X509Certificate[] certificateChain = new javax.security.cert.X509Certificate[peerCertificates.length];
-    for (int i = 0; i < peerCertificates.length; i++) {
-      java.security.cert.Certificate certificate = peerCertificates[i];
-      certificateChain[i] = new CertificateAdapter((java.security.cert.X509Certificate) certificate);
+    // only touch JFR types if the module is present
+    Object event = JfrSupport.AVAILABLE ? JfrEvents.beginPeerCertificateChain() : null;
+    SocketSettings settings = this.settings;
+    if (!settings.instrumentPeerCertificateChain() && event == null) {
+      // keep the uninstrumented path small enough to be inlined
+      return this.adaptPeerCertificateChain();
+    }
+    return this.instrumentedPeerCertificateChain(event, settings);
+  }
 
+  private javax.security.cert.X509Certificate[] instrumentedPeerCertificateChain(Object event,
+          SocketSettings settings) throws SSLPeerUnverifiedException {
+    CallSiteTracker callSiteTracker = settings.callSiteTracker();
+    if (callSiteTracker != null) {
+      callSiteTracker.sample();
+    }
+    LegacyCompatibilityMetrics metrics = settings.metrics();
+    long start = metrics != null ? System.nanoTime() : 0L;
+    boolean cached = this.peerCertificateChain != null;
+    javax.security.cert.X509Certificate[] certificateChain = this.adaptPeerCertificateChain();
+    if (event != null) {
+      JfrEvents.commitPeerCertificateChain(event, certificateChain.length, cached);
+    }
+    if (metrics != null) {
+      metrics.peerCertificateChainRequested(certificateChain.length, cached, System.nanoTime() - start);
     }
     return certificateChain;
   }
 
+  private javax.security.cert.X509Certificate[] adaptPeerCertificateChain() throws SSLPeerUnverifiedException {
+    javax.security.cert.X509Certificate[] certificateChain = this.peerCertificateChain;
+    if (certificateChain != null) {
+      return certificateChain;
+    }
+    // the peer certificates of a session never change, publish the first conversion so that
+    // every caller sees the same instance, failures are not cached
+    certificateChain = this.settings.certificateAdapterCache().adaptChain(this.getPeerCertificates());
+    javax.security.cert.X509Certificate[] witness = (javax.security.cert.X509Certificate[]) PEER_CERTIFICATE_CHAIN.compareAndExchange(this, null, certificateChain);
+    return witness != null ? witness : certificateChain;
+  }
+
   @Override
   public Principal getPeerPrincipal() throws SSLPeerUnverifiedException {
     return this.delegate.getPeerPrincipal();
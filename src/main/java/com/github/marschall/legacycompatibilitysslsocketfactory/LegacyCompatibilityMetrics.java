@@ -0,0 +1,49 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+/**
+ * Receives counters and timings from the sockets of a {@link LegacyCompatibilitySSLSocketFactory}.
+ * <p>
+ * Implementations are called concurrently from all the threads using the sockets and should
+ * return quickly, for example by updating a counter or timer of a metrics library. All methods
+ * do nothing by default so that an implementation only has to override the methods it is
+ * interested in.
+ * <p>
+ * Metrics are disabled unless configured with
+ * {@link LegacyCompatibilitySSLSocketFactory.Builder#metrics(LegacyCompatibilityMetrics)}.
+ * Disabled metrics do not even read the clock.
+ *
+ * @see LegacyCompatibilitySSLSocketFactory#builder(javax.net.ssl.SSLSocketFactory)
+ */
+public interface LegacyCompatibilityMetrics {
+
+  /**
+   * Called after the factory created a socket.
+   */
+  default void socketCreated() {
+    // no-op
+  }
+
+  /**
+   * Called after a handshake started with {@link javax.net.ssl.SSLSocket#startHandshake()}
+   * completed successfully.
+   * <p>
+   * Handshakes started implicitly, for example by the first read or write, are not reported.
+   *
+   * @param durationNanos the duration of the handshake in nanoseconds
+   */
+  default void handshakeCompleted(long durationNanos) {
+    // no-op
+  }
+
+  /**
+   * Called after {@link javax.net.ssl.SSLSession#getPeerCertificateChain()} returned successfully.
+   *
+   * @param chainLength the number of certificates in the returned chain
+   * @param cached {@code true} if the chain had already been converted by an earlier call
+   * @param durationNanos the duration of the call in nanoseconds
+   */
+  default void peerCertificateChainRequested(int chainLength, boolean cached, long durationNanos) {
+    // no-op
+  }
+
+}
@@ -0,0 +1,52 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * A {@link SSLContext} that delegates to a {@link SSLContext} but provides {@link SSLSession}s
+ * that implement {@link SSLSession#getPeerCertificateChain()}.
+ * <p>
+ * This is intended for clients that take a {@link SSLContext} rather than a {@link SSLSocketFactory},
+ * like {@code java.net.http.HttpClient}.
+ * <ul>
+ *  <li>{@link #getSocketFactory()} returns a {@link LegacyCompatibilitySSLSocketFactory}</li>
+ *  <li>{@link #getServerSocketFactory()} returns a {@link LegacyCompatibilitySSLServerSocketFactory}</li>
+ *  <li>{@link #createSSLEngine()} returns a {@link LegacyCompatibilitySSLEngine}</li>
+ *  <li>{@link #getClientSessionContext()} and {@link #getServerSessionContext()} return
+ *  session contexts that hand out compatible sessions</li>
+ * </ul>
+ * <p>
+ * Note that {@code java.net.http.HttpResponse#sslSession()} returns an immutable copy of the
+ * session that does not support {@link SSLSession#getPeerCertificateChain()}, the session
+ * is still available through {@link #getClientSessionContext()}.
+ *
+ * @see <a href="https://bugs.openjdk.java.net/browse/JDK-8241047">JDK-8241047</a>
+ */
+public final class LegacyCompatibilitySSLContext extends SSLContext {
+
+  /**
+   * Constructs a new LegacyCompatibilitySSLContext.
+   *
+   * @param delegate the SSLContext to delegate everything but {@link SSLSession#getPeerCertificateChain()} to,
+   *                 not {@code null}, may or may not be initialized
+   */
+  public LegacyCompatibilitySSLContext(SSLContext delegate) {
+    this(delegate, CertificateAdapterCache.getDefault());
+  }
+
+  /**
+   * Constructs a new LegacyCompatibilitySSLContext with a custom certificate adapter cache.
+   *
+   * @param delegate the SSLContext to delegate everything but {@link SSLSession#getPeerCertificateChain()} to,
+   *                 not {@code null}, may or may not be initialized
+   * @param certificateAdapterCache the cache for the certificates returned by {@link SSLSession#getPeerCertificateChain()},
+   *                                not {@code null}
+   */
+  public LegacyCompatibilitySSLContext(SSLContext delegate, CertificateAdapterCache certificateAdapterCache) {
+    super(new LegacyCompatibilitySSLContextSpi(delegate, certificateAdapterCache), delegate.getProvider(), delegate.getProtocol());
+  }
+
+}
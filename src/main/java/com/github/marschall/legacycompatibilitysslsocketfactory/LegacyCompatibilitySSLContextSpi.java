@@ -0,0 +1,86 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.security.KeyManagementException;
+import java.security.SecureRandom;
+import java.util.Objects;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+
+/**
+ * A {@link SSLContextSpi} that delegates to a {@link SSLContext} and wraps all
+ * sockets, engines and sessions.
+ */
+final class LegacyCompatibilitySSLContextSpi extends SSLContextSpi {
+
+  private final SSLContext delegate;
+
+  private final CertificateAdapterCache certificateAdapterCache;
+
+  LegacyCompatibilitySSLContextSpi(SSLContext delegate, CertificateAdapterCache certificateAdapterCache) {
+    Objects.requireNonNull(delegate, "delegate");
+    Objects.requireNonNull(certificateAdapterCache, "certificateAdapterCache");
+    this.delegate = delegate;
+    this.certificateAdapterCache = certificateAdapterCache;
+  }
+
+  @Override
+  protected void engineInit(KeyManager[] km, TrustManager[] tm, SecureRandom sr) throws KeyManagementException {
+    this.delegate.init(km, tm, sr);
+  }
+
+  @Override
+  protected SSLSocketFactory engineGetSocketFactory() {
+    return new LegacyCompatibilitySSLSocketFactory(this.delegate.getSocketFactory(), this.certificateAdapterCache);
+  }
+
+  @Override
+  protected SSLServerSocketFactory engineGetServerSocketFactory() {
+    return new LegacyCompatibilitySSLServerSocketFactory(this.delegate.getServerSocketFactory(), this.certificateAdapterCache);
+  }
+
+  @Override
+  protected SSLEngine engineCreateSSLEngine() {
+    return new LegacyCompatibilitySSLEngine(this.delegate.createSSLEngine(), this.certificateAdapterCache);
+  }
+
+  @Override
+  protected SSLEngine engineCreateSSLEngine(String host, int port) {
+    return new LegacyCompatibilitySSLEngine(this.delegate.createSSLEngine(host, port), this.certificateAdapterCache);
+  }
+
+  @Override
+  protected SSLSessionContext engineGetServerSessionContext() {
+    return this.adaptSessionContext(this.delegate.getServerSessionContext());
+  }
+
+  @Override
+  protected SSLSessionContext engineGetClientSessionContext() {
+    return this.adaptSessionContext(this.delegate.getClientSessionContext());
+  }
+
+  private SSLSessionContext adaptSessionContext(SSLSessionContext sessionContext) {
+    if (sessionContext == null) {
+      return null;
+    }
+    return new LegacyCompatibilitySSLSessionContext(sessionContext, this.certificateAdapterCache);
+  }
+
+  @Override
+  protected SSLParameters engineGetDefaultSSLParameters() {
+    return this.delegate.getDefaultSSLParameters();
+  }
+
+  @Override
+  protected SSLParameters engineGetSupportedSSLParameters() {
+    return this.delegate.getSupportedSSLParameters();
+  }
+
+}
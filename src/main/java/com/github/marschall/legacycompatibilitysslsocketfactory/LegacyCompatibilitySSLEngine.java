@@ -0,0 +1,269 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+
+import com.github.marschall.legacycompatibilitysslsocketfactory.SessionAdapters.AdaptedSession;
+
+/**
+ * A {@link SSLEngine} that delegates everything but access to {@link SSLSession} to a
+ * {@link SSLEngine} and provides a {@link SSLSession} that implements
+ * {@link SSLSession#getPeerCertificateChain()}.
+ * <p>
+ * {@link #wrap(ByteBuffer[], int, int, ByteBuffer)} and {@link #unwrap(ByteBuffer, ByteBuffer[], int, int)}
+ * pass the buffers directly to the delegate, no data is copied.
+ *
+ * @see <a href="https://bugs.openjdk.java.net/browse/JDK-8241047">JDK-8241047</a>
+ */
+public final class LegacyCompatibilitySSLEngine extends SSLEngine {
+
+  private static final VarHandle SSL_SESSION;
+
+  private static final VarHandle HANDSHAKE_SESSION;
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      SSL_SESSION = lookup.findVarHandle(LegacyCompatibilitySSLEngine.class, "sslSession", AdaptedSession.class);
+      HANDSHAKE_SESSION = lookup.findVarHandle(LegacyCompatibilitySSLEngine.class, "handshakeSession", AdaptedSession.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final SSLEngine delegate;
+
+  private final SocketSettings settings;
+
+  /**
+   * The wrapper of the current session, replaced when the delegate returns a different session.
+   */
+  private volatile AdaptedSession sslSession;
+
+  /**
+   * The wrapper of the current handshake session, cleared once the handshake is done.
+   */
+  private volatile AdaptedSession handshakeSession;
+
+  /**
+   * Constructs a new LegacyCompatibilitySSLEngine.
+   *
+   * @param delegate the SSLEngine to delegate everything but {@link SSLSession#getPeerCertificateChain()} to,
+   *                 not {@code null}
+   */
+  public LegacyCompatibilitySSLEngine(SSLEngine delegate) {
+    this(delegate, CertificateAdapterCache.getDefault());
+  }
+
+  /**
+   * Constructs a new LegacyCompatibilitySSLEngine with a custom certificate adapter cache.
+   *
+   * @param delegate the SSLEngine to delegate everything but {@link SSLSession#getPeerCertificateChain()} to,
+   *                 not {@code null}
+   * @param certificateAdapterCache the cache for the certificates returned by {@link SSLSession#getPeerCertificateChain()},
+   *                                not {@code null}
+   */
+  public LegacyCompatibilitySSLEngine(SSLEngine delegate, CertificateAdapterCache certificateAdapterCache) {
+    Objects.requireNonNull(delegate, "delegate");
+    Objects.requireNonNull(certificateAdapterCache, "certificateAdapterCache");
+    this.delegate = delegate;
+    this.settings = new SocketSettings(certificateAdapterCache);
+  }
+
+  @Override
+  public SSLSession getSession() {
+    return SessionAdapters.adaptedSession(this, SSL_SESSION, this.delegate.getSession(), this.settings);
+  }
+
+  @Override
+  public SSLSession getHandshakeSession() {
+    return SessionAdapters.adaptedSession(this, HANDSHAKE_SESSION, this.delegate.getHandshakeSession(), this.settings);
+  }
+
+  @Override
+  public String getPeerHost() {
+    return this.delegate.getPeerHost();
+  }
+
+  @Override
+  public int getPeerPort() {
+    return this.delegate.getPeerPort();
+  }
+
+  @Override
+  public SSLEngineResult wrap(ByteBuffer src, ByteBuffer dst) throws SSLException {
+    return this.delegate.wrap(src, dst);
+  }
+
+  @Override
+  public SSLEngineResult wrap(ByteBuffer[] srcs, ByteBuffer dst) throws SSLException {
+    return this.delegate.wrap(srcs, dst);
+  }
+
+  @Override
+  public SSLEngineResult wrap(ByteBuffer[] srcs, int offset, int length, ByteBuffer dst) throws SSLException {
+    return this.delegate.wrap(srcs, offset, length, dst);
+  }
+
+  @Override
+  public SSLEngineResult unwrap(ByteBuffer src, ByteBuffer dst) throws SSLException {
+    return this.delegate.unwrap(src, dst);
+  }
+
+  @Override
+  public SSLEngineResult unwrap(ByteBuffer src, ByteBuffer[] dsts) throws SSLException {
+    return this.delegate.unwrap(src, dsts);
+  }
+
+  @Override
+  public SSLEngineResult unwrap(ByteBuffer src, ByteBuffer[] dsts, int offset, int length) throws SSLException {
+    return this.delegate.unwrap(src, dsts, offset, length);
+  }
+
+  @Override
+  public Runnable getDelegatedTask() {
+    return this.delegate.getDelegatedTask();
+  }
+
+  @Override
+  public void closeInbound() throws SSLException {
+    this.delegate.closeInbound();
+  }
+
+  @Override
+  public boolean isInboundDone() {
+    return this.delegate.isInboundDone();
+  }
+
+  @Override
+  public void closeOutbound() {
+    this.delegate.closeOutbound();
+  }
+
+  @Override
+  public boolean isOutboundDone() {
+    return this.delegate.isOutboundDone();
+  }
+
+  @Override
+  public String[] getSupportedCipherSuites() {
+    return this.delegate.getSupportedCipherSuites();
+  }
+
+  @Override
+  public String[] getEnabledCipherSuites() {
+    return this.delegate.getEnabledCipherSuites();
+  }
+
+  @Override
+  public void setEnabledCipherSuites(String[] suites) {
+    this.delegate.setEnabledCipherSuites(suites);
+  }
+
+  @Override
+  public String[] getSupportedProtocols() {
+    return this.delegate.getSupportedProtocols();
+  }
+
+  @Override
+  public String[] getEnabledProtocols() {
+    return this.delegate.getEnabledProtocols();
+  }
+
+  @Override
+  public void setEnabledProtocols(String[] protocols) {
+    this.delegate.setEnabledProtocols(protocols);
+  }
+
+  @Override
+  public void beginHandshake() throws SSLException {
+    this.delegate.beginHandshake();
+  }
+
+  @Override
+  public HandshakeStatus getHandshakeStatus() {
+    return this.delegate.getHandshakeStatus();
+  }
+
+  @Override
+  public void setUseClientMode(boolean mode) {
+    this.delegate.setUseClientMode(mode);
+  }
+
+  @Override
+  public boolean getUseClientMode() {
+    return this.delegate.getUseClientMode();
+  }
+
+  @Override
+  public void setNeedClientAuth(boolean need) {
+    this.delegate.setNeedClientAuth(need);
+  }
+
+  @Override
+  public boolean getNeedClientAuth() {
+    return this.delegate.getNeedClientAuth();
+  }
+
+  @Override
+  public void setWantClientAuth(boolean want) {
+    this.delegate.setWantClientAuth(want);
+  }
+
+  @Override
+  public boolean getWantClientAuth() {
+    return this.delegate.getWantClientAuth();
+  }
+
+  @Override
+  public void setEnableSessionCreation(boolean flag) {
+    this.delegate.setEnableSessionCreation(flag);
+  }
+
+  @Override
+  public boolean getEnableSessionCreation() {
+    return this.delegate.getEnableSessionCreation();
+  }
+
+  @Override
+  public SSLParameters getSSLParameters() {
+    return this.delegate.getSSLParameters();
+  }
+
+  @Override
+  public void setSSLParameters(SSLParameters params) {
+    this.delegate.setSSLParameters(params);
+  }
+
+  @Override
+  public String getApplicationProtocol() {
+    return this.delegate.getApplicationProtocol();
+  }
+
+  @Override
+  public String getHandshakeApplicationProtocol() {
+    return this.delegate.getHandshakeApplicationProtocol();
+  }
+
+  @Override
+  public void setHandshakeApplicationProtocolSelector(BiFunction<SSLEngine, List<String>, String> selector) {
+    this.delegate.setHandshakeApplicationProtocolSelector(selector);
+  }
+
+  @Override
+  public BiFunction<SSLEngine, List<String>, String> getHandshakeApplicationProtocolSelector() {
+    return this.delegate.getHandshakeApplicationProtocolSelector();
+  }
+
+}
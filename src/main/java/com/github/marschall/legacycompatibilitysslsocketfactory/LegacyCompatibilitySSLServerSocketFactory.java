@@ -0,0 +1,118 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.Objects;
+
+import javax.net.ServerSocketFactory;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSession;
+
+/**
+ * A {@link SSLServerSocketFactory} that delegates to a {@link SSLServerSocketFactory} but
+ * the accepted sockets provide a {@link SSLSession} that implements
+ * {@link SSLSession#getPeerCertificateChain()}.
+ * <p>
+ * This is intended for servers using client authentication that call
+ * {@link SSLSession#getPeerCertificateChain()} on the session of the client.
+ *
+ * @see <a href="https://bugs.openjdk.java.net/browse/JDK-8241047">JDK-8241047</a>
+ */
+public final class LegacyCompatibilitySSLServerSocketFactory extends SSLServerSocketFactory {
+
+  private final SSLServerSocketFactory delegate;
+
+  private final SocketSettings socketSettings;
+
+  /**
+   * Default constructor that delegates to the default SSL server socket factory.
+   *
+   * @see SSLServerSocketFactory#getDefault()
+   */
+  public LegacyCompatibilitySSLServerSocketFactory() {
+    this((SSLServerSocketFactory) SSLServerSocketFactory.getDefault());
+  }
+
+  /**
+   * Constructs a new LegacyCompatibilitySSLServerSocketFactory.
+   *
+   * @param delegate the SSLServerSocketFactory to delegate everything but {@link SSLSession#getPeerCertificateChain()} to,
+   *                 not {@code null}
+   */
+  public LegacyCompatibilitySSLServerSocketFactory(SSLServerSocketFactory delegate) {
+    this(delegate, CertificateAdapterCache.getDefault());
+  }
+
+  /**
+   * Constructs a new LegacyCompatibilitySSLServerSocketFactory with a custom certificate adapter cache.
+   *
+   * @param delegate the SSLServerSocketFactory to delegate everything but {@link SSLSession#getPeerCertificateChain()} to,
+   *                 not {@code null}
+   * @param certificateAdapterCache the cache for the certificates returned by {@link SSLSession#getPeerCertificateChain()},
+   *                                not {@code null}
+   * @see CertificateAdapterCache#getDefault()
+   */
+  public LegacyCompatibilitySSLServerSocketFactory(SSLServerSocketFactory delegate, CertificateAdapterCache certificateAdapterCache) {
+    Objects.requireNonNull(delegate, "delegate");
+    Objects.requireNonNull(certificateAdapterCache, "certificateAdapterCache");
+    this.delegate = delegate;
+    this.socketSettings = new SocketSettings(certificateAdapterCache);
+  }
+
+  private static final class DefaultInstanceHolder {
+
+    static final ServerSocketFactory DEFAULT_INSTANCE = new LegacyCompatibilitySSLServerSocketFactory();
+  }
+
+  /**
+   * Returns the default instance of this class.
+   *
+   * @return the default instance of this class
+   * @see ServerSocketFactory#getDefault()
+   */
+  public static ServerSocketFactory getDefault() {
+    return DefaultInstanceHolder.DEFAULT_INSTANCE;
+  }
+
+  /**
+   * Returns the cache for the certificates returned by {@link SSLSession#getPeerCertificateChain()}.
+   *
+   * @return the certificate adapter cache, not {@code null}
+   */
+  public CertificateAdapterCache getCertificateAdapterCache() {
+    return this.socketSettings.certificateAdapterCache();
+  }
+
+  @Override
+  public String[] getDefaultCipherSuites() {
+    return this.delegate.getDefaultCipherSuites();
+  }
+
+  @Override
+  public String[] getSupportedCipherSuites() {
+    return this.delegate.getSupportedCipherSuites();
+  }
+
+  @Override
+  public ServerSocket createServerSocket() throws IOException {
+    return new LegacyCompatibilitySSLServerSocket((SSLServerSocket) this.delegate.createServerSocket(), this.socketSettings);
+  }
+
+  @Override
+  public ServerSocket createServerSocket(int port) throws IOException {
+    return new LegacyCompatibilitySSLServerSocket((SSLServerSocket) this.delegate.createServerSocket(port), this.socketSettings);
+  }
+
+  @Override
+  public ServerSocket createServerSocket(int port, int backlog) throws IOException {
+    return new LegacyCompatibilitySSLServerSocket((SSLServerSocket) this.delegate.createServerSocket(port, backlog), this.socketSettings);
+  }
+
+  @Override
+  public ServerSocket createServerSocket(int port, int backlog, InetAddress ifAddress) throws IOException {
+    return new LegacyCompatibilitySSLServerSocket((SSLServerSocket) this.delegate.createServerSocket(port, backlog, ifAddress), this.socketSettings);
+  }
+
+}
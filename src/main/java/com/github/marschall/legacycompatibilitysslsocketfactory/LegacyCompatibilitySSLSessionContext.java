@@ -0,0 +1,60 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.util.Enumeration;
+import java.util.Objects;
+
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+
+/**
+ * A {@link SSLSessionContext} that wraps the sessions of an other {@link SSLSessionContext}
+ * in a {@link LegacyCompatibilitySSLSession} or {@link LegacyCompatibilityExtendedSSLSession}.
+ */
+final class LegacyCompatibilitySSLSessionContext implements SSLSessionContext {
+
+  private final SSLSessionContext delegate;
+
+  private final SocketSettings settings;
+
+  LegacyCompatibilitySSLSessionContext(SSLSessionContext delegate, CertificateAdapterCache certificateAdapterCache) {
+    Objects.requireNonNull(delegate, "delegate");
+    Objects.requireNonNull(certificateAdapterCache, "certificateAdapterCache");
+    this.delegate = delegate;
+    this.settings = new SocketSettings(certificateAdapterCache);
+  }
+
+  @Override
+  public SSLSession getSession(byte[] sessionId) {
+    SSLSession session = this.delegate.getSession(sessionId);
+    if (session == null) {
+      return null;
+    }
+    return SessionAdapters.adaptSSLSession(session, this.settings);
+  }
+
+  @Override
+  public Enumeration<byte[]> getIds() {
+    return this.delegate.getIds();
+  }
+
+  @Override
+  public void setSessionTimeout(int seconds) {
+    this.delegate.setSessionTimeout(seconds);
+  }
+
+  @Override
+  public int getSessionTimeout() {
+    return this.delegate.getSessionTimeout();
+  }
+
+  @Override
+  public void setSessionCacheSize(int size) {
+    this.delegate.setSessionCacheSize(size);
+  }
+
+  @Override
+  public int getSessionCacheSize() {
+    return this.delegate.getSessionCacheSize();
+  }
+
+}
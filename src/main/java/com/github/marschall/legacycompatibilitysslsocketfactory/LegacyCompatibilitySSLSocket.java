@@ -3,28 +3,29 @@ package com.github.marschall.legacycompatibilitysslsocketfactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.SocketOption;
 import java.nio.channels.SocketChannel;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 
-import javax.net.ssl.ExtendedSSLSession;
 import javax.net.ssl.HandshakeCompletedEvent;
 import javax.net.ssl.HandshakeCompletedListener;
 import javax.net.ssl.SSLParameters;
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocket;
 
+import com.github.marschall.legacycompatibilitysslsocketfactory.SessionAdapters.AdaptedSession;
+
 /**
  * A {@link SSLSocket} that delegates everything but access to {@link SSLSession} to a
  * {@link SSLSocket} and wraps the {@link SSLSession} in a {@link LegacyCompatibilitySSLSession}
@@ -32,31 +33,62 @@ import javax.net.ssl.SSLSocket;
  */
 final class LegacyCompatibilitySSLSocket extends SSLSocket {
 
+  private static final VarHandle SSL_SESSION;
+
+  private static final VarHandle HANDSHAKE_SESSION;
+
+  private static final VarHandle LISTENERS;
+
+  private static final VarHandle CHANNEL;
+
+  private static final HandshakeCompletedListener[] NO_LISTENERS = new HandshakeCompletedListener[0];
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      SSL_SESSION = lookup.findVarHandle(LegacyCompatibilitySSLSocket.class, "sslSession", AdaptedSession.class);
+      HANDSHAKE_SESSION = lookup.findVarHandle(LegacyCompatibilitySSLSocket.class, "handshakeSession", AdaptedSession.class);
+      LISTENERS = lookup.findVarHandle(LegacyCompatibilitySSLSocket.class, "listeners", HandshakeCompletedListener[].class);
+      CHANNEL = lookup.findVarHandle(LegacyCompatibilitySSLSocket.class, "channel", SocketChannel.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
   private final SSLSocket delegate;
 
-  private final SocketChannel channel;
+  private final SocketSettings settings;
 
-  private Map<HandshakeCompletedListener, HandshakeCompletedListener> listenerMap;
+  /**
+   * The wrapper of the channel of the delegate, created on first access.
+   */
+  private volatile SocketChannel channel;
 
-  private final Lock listenerLock;
-  
-  private final Lock sessionLock;
-  
-  private SSLSession sslSession;
-  
-  private SSLSession handshakeSession;
+  /**
+   * The registered listeners, replaced on every change, {@code null} if no listener has ever
+   * been added.
+   */
+  private volatile HandshakeCompletedListener[] listeners;
 
-  LegacyCompatibilitySSLSocket(SSLSocket delegate) {
+  /**
+   * The wrapper of the current session, replaced when the delegate returns a different session.
+   */
+  private volatile AdaptedSession sslSession;
+
+  /**
+   * The wrapper of the current handshake session, cleared once the handshake is done.
+   */
+  private volatile AdaptedSession handshakeSession;
+
+  LegacyCompatibilitySSLSocket(SSLSocket delegate, CertificateAdapterCache certificateAdapterCache) {
+    this(delegate, new SocketSettings(certificateAdapterCache));
+  }
+
+  LegacyCompatibilitySSLSocket(SSLSocket delegate, SocketSettings settings) {
     Objects.requireNonNull(delegate, "delegate");
+    Objects.requireNonNull(settings, "settings");
     this.delegate = delegate;
-    SocketChannel delegateChannel = delegate.getChannel();
-    if (delegateChannel != null) {
-      this.channel = new LegacyCompatibilitySocketChannel(delegateChannel.provider(), delegateChannel, this);
-    } else {
-      this.channel = null;
-    }
-    this.listenerLock = new ReentrantLock();
-    this.sessionLock = new ReentrantLock();
+    this.settings = settings;
   }
 
   @Override
@@ -91,46 +123,12 @@ final class LegacyCompatibilitySSLSocket extends SSLSocket {
 
   @Override
   public SSLSession getSession() {
-    this.sessionLock.lock();
-    try {
-      if (this.sslSession != null) {
-        return this.sslSession;
-      }
-      SSLSession delegateSession = this.delegate.getSession();
-      if (delegateSession != null) {
-        this.sslSession = adaptSSLSession(delegateSession);
-        return this.sslSession;
-      }
-      return null;
-    } finally {
-      this.sessionLock.unlock();
-    }
+    return SessionAdapters.adaptedSession(this, SSL_SESSION, this.delegate.getSession(), this.settings);
   }
 
   @Override
   public SSLSession getHandshakeSession() {
-    this.sessionLock.lock();
-    try {
-      if (this.handshakeSession != null) {
-        return this.handshakeSession;
-      }
-      SSLSession delegateSession = this.delegate.getHandshakeSession();
-      if (delegateSession != null) {
-        this.handshakeSession = adaptSSLSession(delegateSession);
-        return this.handshakeSession;
-      }
-      return null;
-    } finally {
-      this.sessionLock.unlock();
-    }
-  }
-
-  private static SSLSession adaptSSLSession(SSLSession delegate) {
-    if (delegate instanceof ExtendedSSLSession extendedSSLSession) {
-      return new LegacyCompatibilityExtendedSSLSession(extendedSSLSession);
-    } else {
-      return new LegacyCompatibilitySSLSession(delegate);
-    }
+    return SessionAdapters.adaptedSession(this, HANDSHAKE_SESSION, this.delegate.getHandshakeSession(), this.settings);
   }
 
   @Override
@@ -138,16 +136,27 @@ final class LegacyCompatibilitySSLSocket extends SSLSocket {
     if (listener == null) {
       throw new IllegalArgumentException("listener must not beu null");
     }
-    this.listenerLock.lock();
-    try {
-      if (this.listenerMap == null) {
-        this.listenerMap = new HashMap<>(4);
+    HandshakeCompletedListener[] current = this.listeners;
+    while (true) {
+      HandshakeCompletedListener[] updated;
+      if (current == null) {
+        updated = new HandshakeCompletedListener[] {listener};
+      } else if (indexOf(current, listener) != -1) {
+        return;
+      } else {
+        updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+      }
+      HandshakeCompletedListener[] witness = (HandshakeCompletedListener[]) LISTENERS.compareAndExchange(this, current, updated);
+      if (witness == current) {
+        if (current == null) {
+          // only the first listener registers the dispatcher, it stays registered so that
+          // adding and removing listeners does not have to be coordinated with the delegate
+          this.delegate.addHandshakeCompletedListener(new HandshakeCompletedDispatcher(this));
+        }
+        return;
       }
-      HandshakeCompletedListenerAdapter listenerAdapter = new HandshakeCompletedListenerAdapter(this, listener);
-      this.listenerMap.put(listener, listenerAdapter);
-      this.delegate.addHandshakeCompletedListener(listenerAdapter);
-    } finally {
-      this.listenerLock.unlock();
+      current = witness;
     }
   }
 
@@ -156,24 +165,72 @@ final class LegacyCompatibilitySSLSocket extends SSLSocket {
     if (listener == null) {
       throw new IllegalArgumentException("listener must not beu null");
     }
-    this.listenerLock.lock();
-    try {
-      if (this.listenerMap == null) {
+    HandshakeCompletedListener[] current = this.listeners;
+    while (true) {
+      int index = current != null ? indexOf(current, listener) : -1;
+      if (index == -1) {
         throw new IllegalArgumentException("listener not registered");
       }
-      HandshakeCompletedListener listenerAdapter = this.listenerMap.remove(listener);
-      if (listenerAdapter == null) {
-        throw new IllegalArgumentException("listener not registered");
+      HandshakeCompletedListener[] updated;
+      if (current.length == 1) {
+        updated = NO_LISTENERS;
+      } else {
+        updated = new HandshakeCompletedListener[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, index);
+        System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+      }
+      HandshakeCompletedListener[] witness = (HandshakeCompletedListener[]) LISTENERS.compareAndExchange(this, current, updated);
+      if (witness == current) {
+        return;
+      }
+      current = witness;
+    }
+  }
+
+  private static int indexOf(HandshakeCompletedListener[] listeners, HandshakeCompletedListener listener) {
+    for (int i = 0; i < listeners.length; i++) {
+      if (listeners[i] == listener) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Notifies all listeners with the same event.
+   */
+  void handshakeCompleted() {
+    HandshakeCompletedListener[] current = this.listeners;
+    if (current == null || current.length == 0) {
+      return;
+    }
+    HandshakeCompletedEvent event = new HandshakeCompletedEvent(this, this.getSession());
+    Executor executor = this.settings.handshakeCompletedListenerExecutor();
+    for (HandshakeCompletedListener listener : current) {
+      if (executor == null) {
+        listener.handshakeCompleted(event);
+      } else {
+        executor.execute(() -> listener.handshakeCompleted(event));
       }
-      this.delegate.removeHandshakeCompletedListener(listenerAdapter);
-    } finally {
-      this.listenerLock.unlock();
     }
   }
 
   @Override
   public void startHandshake() throws IOException {
+    Object event = JfrSupport.AVAILABLE ? JfrEvents.beginHandshake() : null;
+    LegacyCompatibilityMetrics metrics = this.settings.metrics();
+    if (metrics == null && event == null) {
+      this.delegate.startHandshake();
+      return;
+    }
+    long start = System.nanoTime();
     this.delegate.startHandshake();
+    if (event != null) {
+      JfrEvents.commitHandshake(event, this.delegate.getSession());
+    }
+    if (metrics != null) {
+      metrics.handshakeCompleted(System.nanoTime() - start);
+    }
   }
 
   @Override
@@ -288,7 +345,17 @@ final class LegacyCompatibilitySSLSocket extends SSLSocket {
 
   @Override
   public SocketChannel getChannel() {
-    return this.channel;
+    SocketChannel current = this.channel;
+    if (current != null) {
+      return current;
+    }
+    SocketChannel delegateChannel = this.delegate.getChannel();
+    if (delegateChannel == null) {
+      return null;
+    }
+    SocketChannel adapted = new LegacyCompatibilitySocketChannel(delegateChannel, this);
+    SocketChannel witness = (SocketChannel) CHANNEL.compareAndExchange(this, null, adapted);
+    return witness != null ? witness : adapted;
   }
 
   @Override
@@ -462,21 +529,20 @@ final class LegacyCompatibilitySSLSocket extends SSLSocket {
     return this.delegate.supportedOptions();
   }
 
-  static final class HandshakeCompletedListenerAdapter implements HandshakeCompletedListener {
-
-    private final SSLSocket legacyCompatibilitySocket;
+  /**
+   * The single listener registered with the delegate, dispatches to the listeners of the socket.
+   */
+  static final class HandshakeCompletedDispatcher implements HandshakeCompletedListener {
 
-    private final HandshakeCompletedListener delegateListenger;
+    private final LegacyCompatibilitySSLSocket legacyCompatibilitySocket;
 
-    HandshakeCompletedListenerAdapter(SSLSocket legacyCompatibilitySocket, HandshakeCompletedListener delegate) {
+    HandshakeCompletedDispatcher(LegacyCompatibilitySSLSocket legacyCompatibilitySocket) {
       this.legacyCompatibilitySocket = legacyCompatibilitySocket;
-      this.delegateListenger = delegate;
     }
 
     @Override
     public void handshakeCompleted(HandshakeCompletedEvent event) {
-      HandshakeCompletedEvent compatibleEvent = new HandshakeCompletedEvent(this.legacyCompatibilitySocket, legacyCompatibilitySocket.getSession());
-      this.delegateListenger.handshakeCompleted(compatibleEvent);
+      this.legacyCompatibilitySocket.handshakeCompleted();
     }
 
   }
@@ -2,11 +2,24 @@ package com.github.marschall.legacycompatibilitysslsocketfactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Executor;
 
 import javax.net.SocketFactory;
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
@@ -19,8 +32,52 @@ import javax.net.ssl.SSLSocketFactory;
  */
 public final class LegacyCompatibilitySSLSocketFactory extends SSLSocketFactory {
 
+  /**
+   * The instances returned by {@link #forDelegate(SSLSocketFactory)}, by delegate identity. The
+   * instances are only weakly referenced because they reference their delegates. A connection
+   * in the keep-alive cache of {@link HttpsURLConnection} references its factory, so an instance
+   * is only collected once no connection can be reused anymore.
+   */
+  private static final Map<DelegateKey, WeakReference<LegacyCompatibilitySSLSocketFactory>> CANONICAL_INSTANCES = new HashMap<>();
+
+  /**
+   * The keys of {@link #CANONICAL_INSTANCES} whose delegates have been collected.
+   */
+  private static final ReferenceQueue<SSLSocketFactory> COLLECTED_DELEGATES = new ReferenceQueue<>();
+
   private final SSLSocketFactory delegate;
 
+  private final SocketSettings socketSettings;
+
+  /**
+   * Decides which sockets to wrap, {@code null} to wrap all.
+   */
+  private final WrappingPolicy wrappingPolicy;
+
+  /**
+   * The connect timeout in milliseconds, {@code 0} for none, {@code -1} to let the delegate connect.
+   */
+  private final int connectTimeoutMillis;
+
+  private final HostResolver hostResolver;
+
+  /**
+   * The delay between connection attempts to the addresses of a host in milliseconds,
+   * {@code 0} to only connect to the first address.
+   */
+  private final int connectionAttemptDelayMillis;
+
+  /**
+   * The timeout of the reads during the handshake started by this factory in milliseconds,
+   * {@code 0} to use the timeout of the socket.
+   */
+  private final int handshakeTimeoutMillis;
+
+  /**
+   * Whether this factory starts the handshake of the sockets it connects.
+   */
+  private final boolean startHandshake;
+
   /**
    * Default constructor that delegates to the default SSL socket factory.
    *
@@ -37,8 +94,178 @@ public final class LegacyCompatibilitySSLSocketFactory extends SSLSocketFactory
    *                 not {@code null}
    */
   public LegacyCompatibilitySSLSocketFactory(SSLSocketFactory delegate) {
+    this(delegate, CertificateAdapterCache.getDefault());
+  }
+
+  /**
+   * Constructs a new LegacyCompatibilitySSLSocketFactory with a custom certificate adapter cache.
+   *
+   * @param delegate the SSLSocketFactory to delegate everything but {@link SSLSession#getPeerCertificateChain()} to,
+   *                 not {@code null}
+   * @param certificateAdapterCache the cache for the certificates returned by {@link SSLSession#getPeerCertificateChain()},
+   *                                not {@code null}
+   * @see CertificateAdapterCache#getDefault()
+   */
+  public LegacyCompatibilitySSLSocketFactory(SSLSocketFactory delegate, CertificateAdapterCache certificateAdapterCache) {
     Objects.requireNonNull(delegate, "delegate");
+    Objects.requireNonNull(certificateAdapterCache, "certificateAdapterCache");
     this.delegate = delegate;
+    this.socketSettings = new SocketSettings(certificateAdapterCache);
+    this.wrappingPolicy = null;
+    this.connectTimeoutMillis = -1;
+    this.hostResolver = HostResolver.getDefault();
+    this.connectionAttemptDelayMillis = 0;
+    this.handshakeTimeoutMillis = 0;
+    this.startHandshake = false;
+  }
+
+  /**
+   * Constructs a new LegacyCompatibilitySSLSocketFactory that notifies {@link HandshakeCompletedListener}s
+   * using an executor.
+   * <p>
+   * Every socket registers a single listener with the delegate socket that creates one
+   * {@link HandshakeCompletedEvent} per handshake and submits one task per listener to the executor.
+   * The other constructors notify the listeners one after the other on the thread delivering the
+   * event.
+   *
+   * @param delegate the SSLSocketFactory to delegate everything but {@link SSLSession#getPeerCertificateChain()} to,
+   *                 not {@code null}
+   * @param certificateAdapterCache the cache for the certificates returned by {@link SSLSession#getPeerCertificateChain()},
+   *                                not {@code null}
+   * @param handshakeCompletedListenerExecutor the executor to notify handshake completed listeners with,
+   *                                           not {@code null}
+   */
+  public LegacyCompatibilitySSLSocketFactory(SSLSocketFactory delegate, CertificateAdapterCache certificateAdapterCache,
+          Executor handshakeCompletedListenerExecutor) {
+    Objects.requireNonNull(delegate, "delegate");
+    Objects.requireNonNull(certificateAdapterCache, "certificateAdapterCache");
+    Objects.requireNonNull(handshakeCompletedListenerExecutor, "handshakeCompletedListenerExecutor");
+    this.delegate = delegate;
+    this.socketSettings = new SocketSettings(certificateAdapterCache, handshakeCompletedListenerExecutor, null, null);
+    this.wrappingPolicy = null;
+    this.connectTimeoutMillis = -1;
+    this.hostResolver = HostResolver.getDefault();
+    this.connectionAttemptDelayMillis = 0;
+    this.handshakeTimeoutMillis = 0;
+    this.startHandshake = false;
+  }
+
+  private LegacyCompatibilitySSLSocketFactory(Builder builder) {
+    this.delegate = builder.delegate;
+    this.socketSettings = new SocketSettings(builder.certificateAdapterCache, builder.handshakeCompletedListenerExecutor,
+            builder.metrics, builder.callSiteTracker);
+    this.wrappingPolicy = builder.wrappingPolicy;
+    boolean connect = builder.hostResolver != null || builder.connectionAttemptDelayMillis > 0;
+    this.connectTimeoutMillis = builder.connectTimeoutMillis == -1 && connect ? 0 : builder.connectTimeoutMillis;
+    this.hostResolver = builder.hostResolver != null ? builder.hostResolver : HostResolver.getDefault();
+    this.connectionAttemptDelayMillis = builder.connectionAttemptDelayMillis;
+    this.handshakeTimeoutMillis = builder.handshakeTimeoutMillis;
+    this.startHandshake = builder.startHandshake || builder.handshakeTimeoutMillis > 0;
+  }
+
+  /**
+   * Creates a builder for a LegacyCompatibilitySSLSocketFactory with options not covered by the
+   * constructors.
+   *
+   * @param delegate the SSLSocketFactory to delegate everything but {@link SSLSession#getPeerCertificateChain()} to,
+   *                 not {@code null}
+   * @return the new builder, not {@code null}
+   */
+  public static Builder builder(SSLSocketFactory delegate) {
+    return new Builder(delegate);
+  }
+
+  /**
+   * Returns the canonical instance for a delegate.
+   * <p>
+   * The keep-alive cache of {@link HttpsURLConnection} only reuses a connection for a
+   * connection with the same {@link SSLSocketFactory} instance. Setting a new instance of this
+   * class on every connection therefore causes a new TCP connection and TLS handshake for every
+   * request. This method returns the same instance for the same delegate as long as the
+   * instance is in use.
+   * <p>
+   * Delegates are compared by identity. {@link SSLSocketFactory#getDefault()} and
+   * {@link javax.net.ssl.SSLContext#getSocketFactory()} return a new instance on every call,
+   * so keep the delegate or use {@link #getDefault()} instead.
+   *
+   * @param delegate the SSLSocketFactory to delegate everything but {@link SSLSession#getPeerCertificateChain()} to,
+   *                 not {@code null}
+   * @return the canonical instance for {@code delegate}, using the default certificate adapter cache,
+   *         {@code delegate} itself if it already is an instance of this class
+   * @see HttpsURLConnection#setSSLSocketFactory(SSLSocketFactory)
+   */
+  public static LegacyCompatibilitySSLSocketFactory forDelegate(SSLSocketFactory delegate) {
+    Objects.requireNonNull(delegate, "delegate");
+    if (delegate instanceof LegacyCompatibilitySSLSocketFactory legacyCompatibilityFactory) {
+      return legacyCompatibilityFactory;
+    }
+    synchronized (CANONICAL_INSTANCES) {
+      expungeCollectedDelegates();
+      WeakReference<LegacyCompatibilitySSLSocketFactory> reference = CANONICAL_INSTANCES.get(new DelegateKey(delegate, null));
+      LegacyCompatibilitySSLSocketFactory instance = reference != null ? reference.get() : null;
+      if (instance == null) {
+        instance = new LegacyCompatibilitySSLSocketFactory(delegate);
+        CANONICAL_INSTANCES.put(new DelegateKey(delegate, COLLECTED_DELEGATES), new WeakReference<>(instance));
+      }
+      return instance;
+    }
+  }
+
+  private static void expungeCollectedDelegates() {
+    Reference<? extends SSLSocketFactory> collected = COLLECTED_DELEGATES.poll();
+    while (collected != null) {
+      CANONICAL_INSTANCES.remove(collected);
+      collected = COLLECTED_DELEGATES.poll();
+    }
+  }
+
+  /**
+   * Weakly references a delegate and compares it by identity, unlike {@link java.util.WeakHashMap}
+   * which uses {@link Object#equals(Object)}.
+   */
+  private static final class DelegateKey extends WeakReference<SSLSocketFactory> {
+
+    private final int hash;
+
+    DelegateKey(SSLSocketFactory delegate, ReferenceQueue<SSLSocketFactory> queue) {
+      super(delegate, queue);
+      this.hash = System.identityHashCode(delegate);
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof DelegateKey other)) {
+        return false;
+      }
+      // collected keys are only equal to themselves
+      SSLSocketFactory delegate = this.get();
+      return delegate != null && delegate == other.get();
+    }
+
+  }
+
+  /**
+   * Wraps the current {@link HttpsURLConnection#getDefaultSSLSocketFactory()} and installs the
+   * result as the new default.
+   * <p>
+   * Uses {@link #forDelegate(SSLSocketFactory)}, calling this method more than once
+   * installs the same instance.
+   *
+   * @return the installed instance, not {@code null}
+   * @see HttpsURLConnection#setDefaultSSLSocketFactory(SSLSocketFactory)
+   */
+  public static LegacyCompatibilitySSLSocketFactory installHttpsURLConnectionDefault() {
+    LegacyCompatibilitySSLSocketFactory factory = forDelegate(HttpsURLConnection.getDefaultSSLSocketFactory());
+    HttpsURLConnection.setDefaultSSLSocketFactory(factory);
+    return factory;
   }
 
   private static final class DefaultInstanceHolder {
@@ -49,13 +276,22 @@ public final class LegacyCompatibilitySSLSocketFactory extends SSLSocketFactory
   /**
    * Returns the default instance of this class.
    *
-   * @return the default instance of this class
+   * @return the default instance of this class, delegating to {@link SSLSocketFactory#getDefault()}
    * @see SocketFactory#getDefault()
    */
   public static SocketFactory getDefault() {
     return DefaultInstanceHolder.DEFAULT_INSTANCE;
   }
 
+  /**
+   * Returns the cache for the certificates returned by {@link SSLSession#getPeerCertificateChain()}.
+   *
+   * @return the certificate adapter cache, not {@code null}
+   */
+  public CertificateAdapterCache getCertificateAdapterCache() {
+    return this.socketSettings.certificateAdapterCache();
+  }
+
   @Override
   public String[] getDefaultCipherSuites() {
     return this.delegate.getDefaultCipherSuites();
@@ -63,7 +299,7 @@ public final class LegacyCompatibilitySSLSocketFactory extends SSLSocketFactory
 
   @Override
   public Socket createSocket() throws IOException {
-    return new LegacyCompatibilitySSLSocket((SSLSocket) this.delegate.createSocket());
+    return this.wrap(this.delegate.createSocket());
   }
 
   @Override
@@ -73,32 +309,366 @@ public final class LegacyCompatibilitySSLSocketFactory extends SSLSocketFactory
 
   @Override
   public Socket createSocket(String host, int port) throws IOException {
-    return new LegacyCompatibilitySSLSocket((SSLSocket) this.delegate.createSocket(host, port));
+    if (this.connectTimeoutMillis == -1) {
+      return this.startHandshake(this.wrap(this.delegate.createSocket(host, port), host, port));
+    }
+    return this.startHandshake(this.wrap(this.connect(host, null, port, null, 0, false), host, port));
   }
 
   @Override
   public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
-    return new LegacyCompatibilitySSLSocket((SSLSocket) this.delegate.createSocket(s, host, port, autoClose));
+    return this.wrap(this.delegate.createSocket(s, host, port, autoClose), host, port);
   }
 
   @Override
   public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
-    return new LegacyCompatibilitySSLSocket((SSLSocket) this.delegate.createSocket(host, port, localHost, localPort));
+    if (this.connectTimeoutMillis == -1) {
+      return this.startHandshake(this.wrap(this.delegate.createSocket(host, port, localHost, localPort), host, port));
+    }
+    return this.startHandshake(this.wrap(this.connect(host, null, port, localHost, localPort, true), host, port));
   }
 
   @Override
   public Socket createSocket(Socket s, InputStream consumed, boolean autoClose) throws IOException {
-    return new LegacyCompatibilitySSLSocket((SSLSocket) this.delegate.createSocket(s, consumed, autoClose));
+    return this.wrap(this.delegate.createSocket(s, consumed, autoClose));
   }
 
   @Override
   public Socket createSocket(InetAddress host, int port) throws IOException {
-    return new LegacyCompatibilitySSLSocket((SSLSocket) this.delegate.createSocket(host, port));
+    if (this.connectTimeoutMillis == -1) {
+      return this.startHandshake(this.wrap(this.delegate.createSocket(host, port), host, port));
+    }
+    return this.startHandshake(this.wrap(this.connect(null, host, port, null, 0, false), host, port));
   }
 
   @Override
   public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
-    return new LegacyCompatibilitySSLSocket((SSLSocket) this.delegate.createSocket(address, port, localAddress, localPort));
+    if (this.connectTimeoutMillis == -1) {
+      return this.startHandshake(this.wrap(this.delegate.createSocket(address, port, localAddress, localPort), address, port));
+    }
+    return this.startHandshake(this.wrap(this.connect(null, address, port, localAddress, localPort, true), address, port));
+  }
+
+  /**
+   * Connects a plain socket with the connect timeout and layers a socket of the delegate over it.
+   * Layering works with every delegate, unlike connecting an unconnected socket of the delegate.
+   */
+  private Socket connect(String host, InetAddress address, int port, InetAddress localAddress, int localPort, boolean bind)
+          throws IOException {
+    InetSocketAddress endpoint;
+    if (address != null) {
+      endpoint = new InetSocketAddress(address, port);
+    } else {
+      InetAddress[] addresses = this.hostResolver.resolve(host);
+      if (addresses == null || addresses.length == 0) {
+        throw new UnknownHostException(host);
+      }
+      if (this.connectionAttemptDelayMillis > 0 && addresses.length > 1) {
+        return this.connect(host, addresses, port, bind ? new InetSocketAddress(localAddress, localPort) : null);
+      }
+      endpoint = new InetSocketAddress(addresses[0], port);
+    }
+    Socket socket = new Socket();
+    try {
+      if (bind) {
+        socket.bind(new InetSocketAddress(localAddress, localPort));
+      }
+      socket.connect(endpoint, this.connectTimeoutMillis);
+      // does not do a reverse lookup
+      return this.delegate.createSocket(socket, host != null ? host : endpoint.getHostString(), port, true);
+    } catch (IOException | RuntimeException e) {
+      socket.close();
+      throw e;
+    }
+  }
+
+  private Socket connect(String host, InetAddress[] addresses, int port, InetSocketAddress localAddress) throws IOException {
+    SocketChannel channel = HappyEyeballs.connect(addresses, port, localAddress,
+            this.connectionAttemptDelayMillis, this.connectTimeoutMillis);
+    try {
+      return this.delegate.createSocket(channel.socket(), host, port, true);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private Socket startHandshake(Socket socket) throws IOException {
+    if (!this.startHandshake) {
+      return socket;
+    }
+    SSLSocket sslSocket = (SSLSocket) socket;
+    try {
+      if (this.handshakeTimeoutMillis > 0) {
+        int soTimeout = sslSocket.getSoTimeout();
+        sslSocket.setSoTimeout(this.handshakeTimeoutMillis);
+        sslSocket.startHandshake();
+        sslSocket.setSoTimeout(soTimeout);
+      } else {
+        sslSocket.startHandshake();
+      }
+    } catch (IOException | RuntimeException e) {
+      sslSocket.close();
+      throw e;
+    }
+    return sslSocket;
+  }
+
+  private Socket wrap(Socket socket, InetAddress address, int port) {
+    if (this.wrappingPolicy == null || address == null) {
+      return this.wrap(socket);
+    }
+    // does not do a reverse lookup
+    return this.wrap(socket, new InetSocketAddress(address, port).getHostString(), port);
+  }
+
+  private Socket wrap(Socket socket, String host, int port) {
+    WrappingPolicy policy = this.wrappingPolicy;
+    if (policy != null && host != null && !policy.shouldWrap(host, port)) {
+      return socket;
+    }
+    return this.wrap(socket);
+  }
+
+  private Socket wrap(Socket socket) {
+    LegacyCompatibilitySSLSocket wrapped = new LegacyCompatibilitySSLSocket((SSLSocket) socket, this.socketSettings);
+    if (JfrSupport.AVAILABLE) {
+      JfrEvents.socketCreated(socket);
+    }
+    LegacyCompatibilityMetrics metrics = this.socketSettings.metrics();
+    if (metrics != null) {
+      metrics.socketCreated();
+    }
+    return wrapped;
+  }
+
+  /**
+   * Builds a {@link LegacyCompatibilitySSLSocketFactory}.
+   *
+   * @see LegacyCompatibilitySSLSocketFactory#builder(SSLSocketFactory)
+   */
+  public static final class Builder {
+
+    private final SSLSocketFactory delegate;
+
+    private CertificateAdapterCache certificateAdapterCache;
+
+    private Executor handshakeCompletedListenerExecutor;
+
+    private LegacyCompatibilityMetrics metrics;
+
+    private CallSiteTracker callSiteTracker;
+
+    private WrappingPolicy wrappingPolicy;
+
+    private int connectTimeoutMillis;
+
+    private HostResolver hostResolver;
+
+    private int connectionAttemptDelayMillis;
+
+    private int handshakeTimeoutMillis;
+
+    private boolean startHandshake;
+
+    Builder(SSLSocketFactory delegate) {
+      Objects.requireNonNull(delegate, "delegate");
+      this.delegate = delegate;
+      this.certificateAdapterCache = CertificateAdapterCache.getDefault();
+      this.connectTimeoutMillis = -1;
+    }
+
+    /**
+     * Sets the cache for the certificates returned by {@link SSLSession#getPeerCertificateChain()},
+     * defaults to {@link CertificateAdapterCache#getDefault()}.
+     *
+     * @param certificateAdapterCache the certificate adapter cache, not {@code null}
+     * @return this builder
+     */
+    public Builder certificateAdapterCache(CertificateAdapterCache certificateAdapterCache) {
+      Objects.requireNonNull(certificateAdapterCache, "certificateAdapterCache");
+      this.certificateAdapterCache = certificateAdapterCache;
+      return this;
+    }
+
+    /**
+     * Sets the executor to notify {@link HandshakeCompletedListener}s with, by default they are
+     * notified on the thread delivering the event.
+     *
+     * @param handshakeCompletedListenerExecutor the executor, {@code null} to notify the listeners
+     *                                           on the thread delivering the event
+     * @return this builder
+     * @see LegacyCompatibilitySSLSocketFactory#LegacyCompatibilitySSLSocketFactory(SSLSocketFactory, CertificateAdapterCache, Executor)
+     */
+    public Builder handshakeCompletedListenerExecutor(Executor handshakeCompletedListenerExecutor) {
+      this.handshakeCompletedListenerExecutor = handshakeCompletedListenerExecutor;
+      return this;
+    }
+
+    /**
+     * Sets the metrics to record, by default no metrics are recorded.
+     * <p>
+     * Independently of this setting the sockets emit JFR events when they are enabled in a recording.
+     *
+     * @param metrics the metrics, {@code null} to record none
+     * @return this builder
+     */
+    public Builder metrics(LegacyCompatibilityMetrics metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
+    /**
+     * Sets the tracker for the callers of {@link SSLSession#getPeerCertificateChain()}, by default
+     * callers are not tracked.
+     *
+     * @param callSiteTracker the tracker, {@code null} to track no callers
+     * @return this builder
+     */
+    public Builder callSiteTracker(CallSiteTracker callSiteTracker) {
+      this.callSiteTracker = callSiteTracker;
+      return this;
+    }
+
+    /**
+     * Sets the policy deciding which sockets are wrapped, by default all sockets are wrapped.
+     *
+     * @param wrappingPolicy the policy, {@code null} to wrap all sockets
+     * @return this builder
+     * @see WrappingPolicy#matching(java.util.Collection)
+     */
+    public Builder wrappingPolicy(WrappingPolicy wrappingPolicy) {
+      this.wrappingPolicy = wrappingPolicy;
+      return this;
+    }
+
+    /**
+     * Sets the timeout for connecting the sockets created with a destination, by default the
+     * delegate connects them without a timeout.
+     * <p>
+     * The factory connects a plain socket and layers a socket of the delegate over it. Host
+     * names are resolved before connecting, the timeout does not include the lookup. The factory
+     * also connects the sockets itself, without a timeout, if a {@link #hostResolver(HostResolver)}
+     * or a {@link #connectionAttemptDelay(Duration)} is set.
+     *
+     * @param connectTimeout the connect timeout, {@code null} to let the delegate connect,
+     *                       {@link Duration#ZERO} for no timeout
+     * @return this builder
+     * @throws IllegalArgumentException if {@code connectTimeout} is negative
+     * @see Socket#connect(java.net.SocketAddress, int)
+     */
+    public Builder connectTimeout(Duration connectTimeout) {
+      this.connectTimeoutMillis = connectTimeout != null ? toMillis(connectTimeout, "connectTimeout") : -1;
+      return this;
+    }
+
+    /**
+     * Sets the resolver for the addresses of host names, by default the name service of the JDK
+     * is used.
+     * <p>
+     * Setting a resolver makes the factory connect the sockets created with a host name itself,
+     * see {@link #connectTimeout(Duration)}.
+     *
+     * @param hostResolver the resolver, {@code null} to use the name service of the JDK
+     * @return this builder
+     * @see HostResolver#getDefault()
+     */
+    public Builder hostResolver(HostResolver hostResolver) {
+      this.hostResolver = hostResolver;
+      return this;
+    }
+
+    /**
+     * Sets the delay between connection attempts to the addresses of a host name, by default
+     * only the first address is connected to.
+     * <p>
+     * All addresses of the host name are resolved and ordered alternating between IPv6 and
+     * IPv4. Connection attempts are started one after the other, the next one when the delay
+     * expires or the previous one fails, and are raced against each other as described in
+     * <a href="https://www.rfc-editor.org/rfc/rfc8305">RFC 8305</a>. The first connection
+     * is used and the others are closed. A dead first address therefore adds at most the delay
+     * instead of the connect timeout. The connect timeout applies to all attempts together.
+     * <p>
+     * The attempts are made with non-blocking connects on the calling thread. RFC 8305
+     * recommends a delay of 250 milliseconds.
+     * <p>
+     * When a local address is given only the addresses of its family are tried. With a fixed
+     * local port the attempts can not run concurrently, then each is given up after the delay
+     * and the next one is made.
+     *
+     * @param connectionAttemptDelay the delay, {@code null} to only connect to the first address
+     * @return this builder
+     * @throws IllegalArgumentException if {@code connectionAttemptDelay} is not positive
+     */
+    public Builder connectionAttemptDelay(Duration connectionAttemptDelay) {
+      if (connectionAttemptDelay != null && connectionAttemptDelay.isZero()) {
+        throw new IllegalArgumentException("connectionAttemptDelay must be positive");
+      }
+      this.connectionAttemptDelayMillis = connectionAttemptDelay != null ? toMillis(connectionAttemptDelay, "connectionAttemptDelay") : 0;
+      return this;
+    }
+
+    /**
+     * Sets the timeout for the handshake, by default the handshake uses the read timeout of
+     * the socket.
+     * <p>
+     * Setting a timeout starts the handshake when the socket is created, see
+     * {@link #startHandshake(boolean)}. The timeout is set as the read timeout of the socket
+     * during the handshake, a peer that accepts the connection but does not answer fails the
+     * handshake with a {@link java.net.SocketTimeoutException}.
+     *
+     * @param handshakeTimeout the handshake timeout, {@code null} or {@link Duration#ZERO} to use
+     *                         the read timeout of the socket
+     * @return this builder
+     * @throws IllegalArgumentException if {@code handshakeTimeout} is negative
+     * @see Socket#setSoTimeout(int)
+     */
+    public Builder handshakeTimeout(Duration handshakeTimeout) {
+      this.handshakeTimeoutMillis = handshakeTimeout != null ? toMillis(handshakeTimeout, "handshakeTimeout") : 0;
+      return this;
+    }
+
+    /**
+     * Sets whether the handshake is started when a socket is created, by default it is started
+     * on the first read or write.
+     * <p>
+     * Applies to the sockets created with a destination. Connection problems then surface
+     * from {@code createSocket} and a socket that is returned is ready to use. Sockets layered
+     * over an existing socket are not started because the caller usually configures them
+     * first, {@link HttpsURLConnection} has its own connect and read timeouts.
+     *
+     * @param startHandshake {@code true} to start the handshake when a socket is created
+     * @return this builder
+     * @see SSLSocket#startHandshake()
+     */
+    public Builder startHandshake(boolean startHandshake) {
+      this.startHandshake = startHandshake;
+      return this;
+    }
+
+    private static int toMillis(Duration timeout, String name) {
+      if (timeout.isNegative()) {
+        throw new IllegalArgumentException(name + " must not be negative");
+      }
+      if (timeout.isZero()) {
+        return 0;
+      }
+      if (timeout.compareTo(Duration.ofMillis(Integer.MAX_VALUE)) >= 0) {
+        return Integer.MAX_VALUE;
+      }
+      // round up so that small timeouts do not become infinite
+      return (int) timeout.plusNanos(999_999L).toMillis();
+    }
+
+    /**
+     * Builds a new socket factory with the current settings.
+     *
+     * @return the new socket factory, not {@code null}
+     */
+    public LegacyCompatibilitySSLSocketFactory build() {
+      return new LegacyCompatibilitySSLSocketFactory(this);
+    }
+
   }
 
 }
@@ -0,0 +1,66 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.spi.AbstractSelectionKey;
+
+/**
+ * A {@link SelectionKey} of a {@link LegacyCompatibilitySelector} that delegates the
+ * interest and ready set to the {@link SelectionKey} of the delegate selector.
+ */
+final class LegacyCompatibilitySelectionKey extends AbstractSelectionKey {
+
+  private final SelectableChannel channel;
+
+  private final Selector selector;
+
+  private final SelectionKey delegate;
+
+  LegacyCompatibilitySelectionKey(SelectableChannel channel, Selector selector, SelectionKey delegate) {
+    this.channel = channel;
+    this.selector = selector;
+    this.delegate = delegate;
+  }
+
+  SelectionKey getDelegate() {
+    return this.delegate;
+  }
+
+  @Override
+  public SelectableChannel channel() {
+    return this.channel;
+  }
+
+  @Override
+  public Selector selector() {
+    return this.selector;
+  }
+
+  @Override
+  public int interestOps() {
+    this.ensureValid();
+    return this.delegate.interestOps();
+  }
+
+  @Override
+  public SelectionKey interestOps(int ops) {
+    this.ensureValid();
+    this.delegate.interestOps(ops);
+    return this;
+  }
+
+  @Override
+  public int readyOps() {
+    this.ensureValid();
+    return this.delegate.readyOps();
+  }
+
+  private void ensureValid() {
+    if (!this.isValid()) {
+      throw new CancelledKeyException();
+    }
+  }
+
+}
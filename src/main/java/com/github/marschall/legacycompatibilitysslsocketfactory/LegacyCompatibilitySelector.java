@@ -0,0 +1,207 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.IllegalSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.spi.AbstractSelectableChannel;
+import java.nio.channels.spi.AbstractSelectionKey;
+import java.nio.channels.spi.AbstractSelector;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link Selector} that registers the delegate channels of {@link LegacyCompatibilitySocketChannel}s
+ * with a {@link Selector} of the delegate provider.
+ * <p>
+ * Selecting is done entirely by the delegate selector, the key sets are views of the key sets
+ * of the delegate selector. Channels of the delegate provider can be registered as well.
+ */
+final class LegacyCompatibilitySelector extends AbstractSelector {
+
+  private final Selector delegate;
+
+  private final Set<SelectionKey> keys;
+
+  private final Set<SelectionKey> selectedKeys;
+
+  LegacyCompatibilitySelector(LegacyCompatibilitySelectorProvider provider, Selector delegate) {
+    super(provider);
+    this.delegate = delegate;
+    this.keys = Collections.unmodifiableSet(new AdaptedKeySet(this, delegate.keys()));
+    this.selectedKeys = new AdaptedKeySet(this, delegate.selectedKeys());
+  }
+
+  @Override
+  protected SelectionKey register(AbstractSelectableChannel ch, int ops, Object att) {
+    SelectableChannel delegateChannel;
+    if (ch instanceof LegacyCompatibilitySocketChannel legacyCompatibilityChannel) {
+      delegateChannel = legacyCompatibilityChannel.getDelegateChannel();
+    } else {
+      delegateChannel = ch;
+    }
+    if (delegateChannel.provider() != this.delegate.provider()) {
+      throw new IllegalSelectorException();
+    }
+    SelectionKey delegateKey;
+    try {
+      // register without interest until the adapter is attached so it is never selected without one
+      delegateKey = delegateChannel.register(this.delegate, 0);
+    } catch (ClosedChannelException e) {
+      throw new IllegalStateException("delegate channel closed", e);
+    }
+    LegacyCompatibilitySelectionKey key = new LegacyCompatibilitySelectionKey(ch, this, delegateKey);
+    delegateKey.attach(key);
+    delegateKey.interestOps(ops);
+    key.attach(att);
+    return key;
+  }
+
+  @Override
+  public Set<SelectionKey> keys() {
+    this.ensureOpen();
+    return this.keys;
+  }
+
+  @Override
+  public Set<SelectionKey> selectedKeys() {
+    this.ensureOpen();
+    return this.selectedKeys;
+  }
+
+  @Override
+  public int selectNow() throws IOException {
+    this.ensureOpen();
+    this.processCancelledKeys();
+    return this.delegate.selectNow();
+  }
+
+  @Override
+  public int select(long timeout) throws IOException {
+    if (timeout < 0L) {
+      throw new IllegalArgumentException("negative timeout");
+    }
+    this.ensureOpen();
+    this.processCancelledKeys();
+    this.begin();
+    try {
+      return this.delegate.select(timeout);
+    } finally {
+      this.end();
+    }
+  }
+
+  @Override
+  public int select() throws IOException {
+    return this.select(0L);
+  }
+
+  @Override
+  public Selector wakeup() {
+    this.delegate.wakeup();
+    return this;
+  }
+
+  @Override
+  protected void implCloseSelector() throws IOException {
+    List<SelectionKey> delegateKeys = new ArrayList<>(this.delegate.keys());
+    this.delegate.close();
+    for (SelectionKey delegateKey : delegateKeys) {
+      this.deregister((AbstractSelectionKey) delegateKey.attachment());
+    }
+  }
+
+  private void processCancelledKeys() {
+    Set<SelectionKey> cancelledKeys = this.cancelledKeys();
+    synchronized (cancelledKeys) {
+      for (Iterator<SelectionKey> iterator = cancelledKeys.iterator(); iterator.hasNext();) {
+        LegacyCompatibilitySelectionKey key = (LegacyCompatibilitySelectionKey) iterator.next();
+        key.getDelegate().cancel();
+        this.deregister(key);
+        iterator.remove();
+      }
+    }
+  }
+
+  private void ensureOpen() {
+    if (!this.isOpen()) {
+      throw new ClosedSelectorException();
+    }
+  }
+
+  /**
+   * A view of a key set of the delegate selector that contains the adapted keys.
+   */
+  static final class AdaptedKeySet extends AbstractSet<SelectionKey> {
+
+    private final Selector selector;
+
+    private final Set<SelectionKey> delegateKeys;
+
+    AdaptedKeySet(Selector selector, Set<SelectionKey> delegateKeys) {
+      this.selector = selector;
+      this.delegateKeys = delegateKeys;
+    }
+
+    @Override
+    public int size() {
+      return this.delegateKeys.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return this.delegateKeys.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return o instanceof LegacyCompatibilitySelectionKey key
+              && key.selector() == this.selector
+              && this.delegateKeys.contains(key.getDelegate());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      return o instanceof LegacyCompatibilitySelectionKey key
+              && key.selector() == this.selector
+              && this.delegateKeys.remove(key.getDelegate());
+    }
+
+    @Override
+    public void clear() {
+      this.delegateKeys.clear();
+    }
+
+    @Override
+    public Iterator<SelectionKey> iterator() {
+      Iterator<SelectionKey> delegateIterator = this.delegateKeys.iterator();
+      return new Iterator<>() {
+
+        @Override
+        public boolean hasNext() {
+          return delegateIterator.hasNext();
+        }
+
+        @Override
+        public SelectionKey next() {
+          return (SelectionKey) delegateIterator.next().attachment();
+        }
+
+        @Override
+        public void remove() {
+          delegateIterator.remove();
+        }
+
+      };
+    }
+
+  }
+
+}
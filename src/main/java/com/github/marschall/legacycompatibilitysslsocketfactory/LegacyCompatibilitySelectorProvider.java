@@ -0,0 +1,99 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.net.ProtocolFamily;
+import java.nio.channels.Channel;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.spi.AbstractSelector;
+import java.nio.channels.spi.SelectorProvider;
+
+/**
+ * A {@link SelectorProvider} that delegates to a {@link SelectorProvider} but opens
+ * {@link LegacyCompatibilitySelector}s so that {@link LegacyCompatibilitySocketChannel}s
+ * can be registered.
+ * <p>
+ * All channels are opened by the delegate and are not wrapped, they can be registered
+ * with the same selectors as the wrapped channels.
+ */
+final class LegacyCompatibilitySelectorProvider extends SelectorProvider {
+
+  private final SelectorProvider delegate;
+
+  private LegacyCompatibilitySelectorProvider(SelectorProvider delegate) {
+    this.delegate = delegate;
+  }
+
+  private static final class DefaultInstanceHolder {
+
+    static final SelectorProvider DELEGATE = SelectorProvider.provider();
+
+    static final SelectorProvider DEFAULT_INSTANCE = new LegacyCompatibilitySelectorProvider(DELEGATE);
+  }
+
+  /**
+   * Returns a provider that delegates to the given provider, the instance for the default
+   * provider is shared.
+   *
+   * @param delegate the provider of the delegate channel, not {@code null}
+   * @return the adapted provider
+   */
+  static SelectorProvider adapt(SelectorProvider delegate) {
+    if (delegate == DefaultInstanceHolder.DELEGATE) {
+      return DefaultInstanceHolder.DEFAULT_INSTANCE;
+    }
+    return new LegacyCompatibilitySelectorProvider(delegate);
+  }
+
+  SelectorProvider getDelegate() {
+    return this.delegate;
+  }
+
+  @Override
+  public AbstractSelector openSelector() throws IOException {
+    return new LegacyCompatibilitySelector(this, this.delegate.openSelector());
+  }
+
+  @Override
+  public DatagramChannel openDatagramChannel() throws IOException {
+    return this.delegate.openDatagramChannel();
+  }
+
+  @Override
+  public DatagramChannel openDatagramChannel(ProtocolFamily family) throws IOException {
+    return this.delegate.openDatagramChannel(family);
+  }
+
+  @Override
+  public Pipe openPipe() throws IOException {
+    return this.delegate.openPipe();
+  }
+
+  @Override
+  public ServerSocketChannel openServerSocketChannel() throws IOException {
+    return this.delegate.openServerSocketChannel();
+  }
+
+  @Override
+  public ServerSocketChannel openServerSocketChannel(ProtocolFamily family) throws IOException {
+    return this.delegate.openServerSocketChannel(family);
+  }
+
+  @Override
+  public SocketChannel openSocketChannel() throws IOException {
+    return this.delegate.openSocketChannel();
+  }
+
+  @Override
+  public SocketChannel openSocketChannel(ProtocolFamily family) throws IOException {
+    return this.delegate.openSocketChannel(family);
+  }
+
+  @Override
+  public Channel inheritedChannel() throws IOException {
+    return this.delegate.inheritedChannel();
+  }
+
+}
@@ -6,20 +6,31 @@ import java.net.SocketAddress;
 import java.net.SocketOption;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
-import java.nio.channels.spi.SelectorProvider;
 import java.util.Set;
 
+/**
+ * A {@link SocketChannel} that delegates to a {@link SocketChannel} but returns a
+ * {@link LegacyCompatibilitySSLSocket} from {@link #socket()}.
+ * <p>
+ * Selectors of the default provider only accept their own channels so this channel has to be
+ * registered with a selector opened from {@link #provider()}. Reads and writes, including
+ * scatter and gather, pass the buffers directly to the delegate.
+ */
 final class LegacyCompatibilitySocketChannel extends SocketChannel {
 
   private final SocketChannel delegateChannel;
   private final Socket delegateSocket;
 
-  LegacyCompatibilitySocketChannel(SelectorProvider provider, SocketChannel delegateChannel, Socket socket) {
-    super(provider);
+  LegacyCompatibilitySocketChannel(SocketChannel delegateChannel, Socket socket) {
+    super(LegacyCompatibilitySelectorProvider.adapt(delegateChannel.provider()));
     this.delegateChannel = delegateChannel;
     this.delegateSocket = socket;
   }
 
+  SocketChannel getDelegateChannel() {
+    return this.delegateChannel;
+  }
+
   @Override
   public <T> T getOption(SocketOption<T> name) throws IOException {
     return this.delegateChannel.getOption(name);
@@ -0,0 +1,26 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted when {@link javax.net.ssl.SSLSession#getPeerCertificateChain()} returns, the duration
+ * of the event includes the conversion of the certificates.
+ */
+@Name("com.github.marschall.legacycompatibilitysslsocketfactory.PeerCertificateChain")
+@Label("Peer Certificate Chain")
+@Description("A call to SSLSession.getPeerCertificateChain()")
+@Category({"Java Application", "Legacy Compatibility SSL"})
+final class PeerCertificateChainEvent extends Event {
+
+  @Label("Chain Length")
+  int chainLength;
+
+  @Label("Cached")
+  @Description("The chain had already been converted by an earlier call")
+  boolean cached;
+
+}
@@ -0,0 +1,363 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Maps destinations to values using compiled host name, domain and address patterns.
+ * <p>
+ * Host names are looked up in a hash map. Domain patterns are looked up in a second hash map
+ * once for every parent domain of the host name, the longest domain wins. Address blocks are
+ * looked up in a hash map once for every prefix length in use, the longest prefix wins. The
+ * time for a lookup therefore does not depend on the number of routes.
+ *
+ * @param <T> the type of the values
+ * @see RoutingSSLSocketFactory.Builder#route(String, javax.net.ssl.SSLSocketFactory)
+ */
+final class RouteTable<T> {
+
+  private final Map<String, T> hosts;
+
+  /**
+   * The values by domain, without the leading {@code *.}.
+   */
+  private final Map<String, T> domains;
+
+  /**
+   * Bit {@code n} is set if a domain has {@code n} labels.
+   *
+   * @see HostPortMatcher#labelCountBit(String, int)
+   */
+  private final long domainLabelCounts;
+
+  /**
+   * The values by IPv4 prefix length in the upper and masked address in the lower 32 bits.
+   */
+  private final Map<Long, T> ipv4Blocks;
+
+  /**
+   * The prefix lengths of {@link #ipv4Blocks} in descending order.
+   */
+  private final int[] ipv4PrefixLengths;
+
+  private final Map<Ipv6Block, T> ipv6Blocks;
+
+  /**
+   * The prefix lengths of {@link #ipv6Blocks} in descending order.
+   */
+  private final int[] ipv6PrefixLengths;
+
+  private final int size;
+
+  /**
+   * Compiles a route table.
+   *
+   * @param routes the values by destination pattern, not {@code null}
+   * @throws IllegalArgumentException if a pattern is invalid or two patterns are equivalent
+   */
+  RouteTable(Map<String, T> routes) {
+    Objects.requireNonNull(routes, "routes");
+    this.hosts = new HashMap<>();
+    this.domains = new HashMap<>();
+    this.ipv4Blocks = new HashMap<>();
+    this.ipv6Blocks = new HashMap<>();
+    TreeSet<Integer> ipv4Lengths = new TreeSet<>();
+    TreeSet<Integer> ipv6Lengths = new TreeSet<>();
+    long labelCounts = 0L;
+    for (Map.Entry<String, T> route : routes.entrySet()) {
+      String pattern = route.getKey();
+      T value = route.getValue();
+      Objects.requireNonNull(pattern, "pattern");
+      Objects.requireNonNull(value, "value");
+      T previous;
+      int slash = pattern.indexOf('/');
+      if (slash != -1) {
+        previous = this.putBlock(pattern.substring(0, slash), parsePrefixLength(pattern.substring(slash + 1), pattern),
+                pattern, value, ipv4Lengths, ipv6Lengths);
+      } else if (pattern.startsWith("*.")) {
+        String domain = parseHost(pattern.substring(2), pattern);
+        labelCounts |= HostPortMatcher.labelCountBit(domain, 0);
+        previous = this.domains.putIfAbsent(domain, value);
+      } else if (parseIPv4(pattern) != -1L || pattern.indexOf(':') != -1) {
+        // a single address
+        previous = this.putBlock(pattern, -1, pattern, value, ipv4Lengths, ipv6Lengths);
+      } else {
+        previous = this.hosts.putIfAbsent(parseHost(pattern, pattern), value);
+      }
+      if (previous != null) {
+        throw new IllegalArgumentException("duplicate route: " + pattern);
+      }
+    }
+    this.domainLabelCounts = labelCounts;
+    this.ipv4PrefixLengths = ipv4Lengths.descendingSet().stream().mapToInt(Integer::intValue).toArray();
+    this.ipv6PrefixLengths = ipv6Lengths.descendingSet().stream().mapToInt(Integer::intValue).toArray();
+    this.size = routes.size();
+  }
+
+  private T putBlock(String address, int prefixLength, String pattern, T value,
+          TreeSet<Integer> ipv4Lengths, TreeSet<Integer> ipv6Lengths) {
+    long ipv4 = parseIPv4(address);
+    if (ipv4 != -1L) {
+      int length = prefixLength == -1 ? 32 : prefixLength;
+      if (length > 32 || (ipv4 & ~ipv4Mask(length) & 0xFFFFFFFFL) != 0L) {
+        throw new IllegalArgumentException("invalid address block: " + pattern);
+      }
+      ipv4Lengths.add(length);
+      return this.ipv4Blocks.putIfAbsent(ipv4Key(length, (int) ipv4), value);
+    }
+    byte[] ipv6 = parseIPv6(address, pattern);
+    int length = prefixLength == -1 ? 128 : prefixLength;
+    if (length > 128) {
+      throw new IllegalArgumentException("invalid address block: " + pattern);
+    }
+    Ipv6Block block = Ipv6Block.of(ipv6, length);
+    if (!Arrays.equals(block.toAddress(), ipv6)) {
+      // host bits set
+      throw new IllegalArgumentException("invalid address block: " + pattern);
+    }
+    ipv6Lengths.add(length);
+    return this.ipv6Blocks.putIfAbsent(block, value);
+  }
+
+  private static int parsePrefixLength(String prefixLength, String pattern) {
+    int value;
+    try {
+      value = Integer.parseInt(prefixLength);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("invalid prefix length in pattern: " + pattern, e);
+    }
+    if (value < 0 || prefixLength.charAt(0) == '+') {
+      throw new IllegalArgumentException("invalid prefix length in pattern: " + pattern);
+    }
+    return value;
+  }
+
+  private static String parseHost(String host, String pattern) {
+    String normalized = HostPortMatcher.normalize(host);
+    if (normalized.isEmpty() || normalized.indexOf('*') != -1 || normalized.indexOf(':') != -1
+            || parseIPv4(normalized) != -1L) {
+      throw new IllegalArgumentException("invalid host in pattern: " + pattern);
+    }
+    return normalized;
+  }
+
+  private static byte[] parseIPv6(String address, String pattern) {
+    String literal = address;
+    if (literal.startsWith("[") && literal.endsWith("]")) {
+      literal = literal.substring(1, literal.length() - 1);
+    }
+    if (literal.indexOf(':') == -1 || !HostPortMatcher.isIPv6Literal(literal)) {
+      throw new IllegalArgumentException("invalid address in pattern: " + pattern);
+    }
+    try {
+      // parsing a literal does no lookup
+      InetAddress parsed = InetAddress.getByName(literal);
+      if (parsed instanceof Inet4Address) {
+        // IPv4-mapped, InetAddress does not keep them as IPv6 addresses
+        throw new IllegalArgumentException("invalid address in pattern: " + pattern);
+      }
+      return parsed.getAddress();
+    } catch (UnknownHostException e) {
+      throw new IllegalArgumentException("invalid address in pattern: " + pattern, e);
+    }
+  }
+
+  /**
+   * Parses an IPv4 address in dotted decimal notation with four parts.
+   *
+   * @return the address as an unsigned int, {@code -1} if {@code s} is no such address
+   */
+  static long parseIPv4(String s) {
+    int length = s.length();
+    if (length < 7 || length > 15) {
+      return -1L;
+    }
+    long address = 0L;
+    int part = 0;
+    int digits = 0;
+    int parts = 0;
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (c >= '0' && c <= '9') {
+        part = part * 10 + (c - '0');
+        digits += 1;
+        if (digits > 3 || part > 255) {
+          return -1L;
+        }
+      } else if (c == '.' && digits > 0 && parts < 3) {
+        address = (address << 8) | part;
+        parts += 1;
+        part = 0;
+        digits = 0;
+      } else {
+        return -1L;
+      }
+    }
+    if (digits == 0 || parts != 3) {
+      return -1L;
+    }
+    return (address << 8) | part;
+  }
+
+  private static int ipv4Mask(int prefixLength) {
+    return prefixLength == 0 ? 0 : -1 << (32 - prefixLength);
+  }
+
+  private static Long ipv4Key(int prefixLength, int address) {
+    return ((long) prefixLength << 32) | (address & ipv4Mask(prefixLength) & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Looks up the value for a host name or literal IP address.
+   *
+   * @param host the host name or literal IP address, not {@code null}
+   * @return the value of the most specific route, {@code null} if none matches
+   */
+  T get(String host) {
+    String normalized = HostPortMatcher.normalize(host);
+    T value = this.hosts.get(normalized);
+    if (value != null) {
+      return value;
+    }
+    if (!this.ipv4Blocks.isEmpty()) {
+      long ipv4 = parseIPv4(normalized);
+      if (ipv4 != -1L) {
+        return this.getIPv4((int) ipv4);
+      }
+    }
+    if (!this.ipv6Blocks.isEmpty() && normalized.indexOf(':') != -1 && HostPortMatcher.isIPv6Literal(normalized)) {
+      try {
+        return this.get(InetAddress.getByName(normalized));
+      } catch (UnknownHostException | SecurityException e) {
+        return null;
+      }
+    }
+    return this.getDomain(normalized);
+  }
+
+  /**
+   * Looks up the value for an address. If no address block matches the address the host name
+   * of the address, if it has one, is looked up.
+   *
+   * @param address the address, not {@code null}
+   * @return the value of the most specific route, {@code null} if none matches
+   */
+  T get(InetAddress address) {
+    T value = null;
+    if (address instanceof Inet4Address) {
+      if (this.ipv4PrefixLengths.length > 0) {
+        byte[] bytes = address.getAddress();
+        value = this.getIPv4((bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF));
+      }
+    } else if (this.ipv6PrefixLengths.length > 0) {
+      value = this.getIPv6(address.getAddress());
+    }
+    if (value != null || (this.hosts.isEmpty() && this.domains.isEmpty())) {
+      return value;
+    }
+    // does not do a reverse lookup, returns the literal if the address has no host name
+    String hostString = new InetSocketAddress(address, 0).getHostString();
+    String normalized = HostPortMatcher.normalize(hostString);
+    value = this.hosts.get(normalized);
+    if (value != null) {
+      return value;
+    }
+    return this.getDomain(normalized);
+  }
+
+  private T getDomain(String normalized) {
+    if (this.domainLabelCounts == 0L) {
+      return null;
+    }
+    // from the longest to the shortest parent domain
+    for (int dot = normalized.indexOf('.'); dot != -1; dot = normalized.indexOf('.', dot + 1)) {
+      if ((this.domainLabelCounts & HostPortMatcher.labelCountBit(normalized, dot + 1)) == 0L) {
+        // no domain with as many labels, avoids creating the substring
+        continue;
+      }
+      T value = this.domains.get(normalized.substring(dot + 1));
+      if (value != null) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  private T getIPv4(int address) {
+    for (int prefixLength : this.ipv4PrefixLengths) {
+      T value = this.ipv4Blocks.get(ipv4Key(prefixLength, address));
+      if (value != null) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  private T getIPv6(byte[] address) {
+    for (int prefixLength : this.ipv6PrefixLengths) {
+      T value = this.ipv6Blocks.get(Ipv6Block.of(address, prefixLength));
+      if (value != null) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the number of routes.
+   *
+   * @return the number of routes
+   */
+  int size() {
+    return this.size;
+  }
+
+  @Override
+  public String toString() {
+    return this.getClass().getSimpleName() + "[routes=" + this.size + ']';
+  }
+
+  /**
+   * An IPv6 address block, the address bits after the prefix are zero.
+   */
+  record Ipv6Block(long high, long low, int prefixLength) {
+
+    static Ipv6Block of(byte[] address, int prefixLength) {
+      long high = 0L;
+      long low = 0L;
+      for (int i = 0; i < 8; i++) {
+        high = (high << 8) | (address[i] & 0xFFL);
+        low = (low << 8) | (address[i + 8] & 0xFFL);
+      }
+      return new Ipv6Block(high & mask(prefixLength), low & mask(prefixLength - 64), prefixLength);
+    }
+
+    private static long mask(int prefixLength) {
+      if (prefixLength <= 0) {
+        return 0L;
+      }
+      if (prefixLength >= 64) {
+        return -1L;
+      }
+      return -1L << (64 - prefixLength);
+    }
+
+    byte[] toAddress() {
+      byte[] address = new byte[16];
+      for (int i = 0; i < 8; i++) {
+        address[i] = (byte) (this.high >>> (56 - i * 8));
+        address[i + 8] = (byte) (this.low >>> (56 - i * 8));
+      }
+      return address;
+    }
+
+  }
+
+}
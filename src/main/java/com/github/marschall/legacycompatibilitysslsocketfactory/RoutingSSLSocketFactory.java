@@ -0,0 +1,238 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * A {@link SSLSocketFactory} that chooses the delegate factory by the destination of a socket.
+ * <p>
+ * Allows one factory to connect to destinations that need different trust stores or client
+ * certificates. The delegate is chosen when the socket is created using the most specific
+ * route for the destination:
+ * <ol>
+ *  <li>a route for the host name</li>
+ *  <li>a route for the longest domain containing the host name</li>
+ *  <li>a route for the address block with the longest prefix containing the address, if the
+ *  destination is an {@link InetAddress} or a literal IP address</li>
+ *  <li>the default delegate</li>
+ * </ol>
+ * If no address block matches an {@link InetAddress} with a host name the host name is routed.
+ * The time to choose a delegate does not depend on the number of routes.
+ * <p>
+ * Unconnected sockets are not supported because their destination is not known when they are
+ * created. {@link HttpsURLConnection} then connects a plain socket and layers the TLS socket
+ * over it. Server side sockets are created by the default delegate.
+ * <p>
+ * The sockets are the sockets of the delegates. To create sockets that implement
+ * {@link javax.net.ssl.SSLSession#getPeerCertificateChain()} wrap this factory, for example
+ * with {@link LegacyCompatibilitySSLSocketFactory#forDelegate(SSLSocketFactory)}.
+ *
+ * @see #builder(SSLContext)
+ */
+public final class RoutingSSLSocketFactory extends SSLSocketFactory {
+
+  private final SSLSocketFactory defaultDelegate;
+
+  private final RouteTable<SSLSocketFactory> routes;
+
+  private RoutingSSLSocketFactory(SSLSocketFactory defaultDelegate, RouteTable<SSLSocketFactory> routes) {
+    this.defaultDelegate = defaultDelegate;
+    this.routes = routes;
+  }
+
+  /**
+   * Creates a builder for a RoutingSSLSocketFactory.
+   *
+   * @param defaultDelegate the delegate for destinations without a route, not {@code null}
+   * @return the new builder, not {@code null}
+   */
+  public static Builder builder(SSLSocketFactory defaultDelegate) {
+    Objects.requireNonNull(defaultDelegate, "defaultDelegate");
+    return new Builder(defaultDelegate);
+  }
+
+  /**
+   * Creates a builder for a RoutingSSLSocketFactory.
+   *
+   * @param defaultContext the context for destinations without a route, not {@code null}
+   * @return the new builder, not {@code null}
+   */
+  public static Builder builder(SSLContext defaultContext) {
+    Objects.requireNonNull(defaultContext, "defaultContext");
+    return new Builder(defaultContext);
+  }
+
+  SSLSocketFactory getDelegate(String host) {
+    if (host == null) {
+      return this.defaultDelegate;
+    }
+    SSLSocketFactory delegate = this.routes.get(host);
+    return delegate != null ? delegate : this.defaultDelegate;
+  }
+
+  SSLSocketFactory getDelegate(InetAddress address) {
+    if (address == null) {
+      return this.defaultDelegate;
+    }
+    SSLSocketFactory delegate = this.routes.get(address);
+    return delegate != null ? delegate : this.defaultDelegate;
+  }
+
+  /**
+   * Returns the default cipher suites of the default delegate.
+   *
+   * @return the default cipher suites of the default delegate
+   */
+  @Override
+  public String[] getDefaultCipherSuites() {
+    return this.defaultDelegate.getDefaultCipherSuites();
+  }
+
+  /**
+   * Returns the supported cipher suites of the default delegate.
+   *
+   * @return the supported cipher suites of the default delegate
+   */
+  @Override
+  public String[] getSupportedCipherSuites() {
+    return this.defaultDelegate.getSupportedCipherSuites();
+  }
+
+  /**
+   * Unconnected sockets are not supported because the delegate depends on the destination.
+   *
+   * @return never returns
+   * @throws java.net.SocketException always, with an {@link UnsupportedOperationException} as the cause
+   */
+  @Override
+  public Socket createSocket() throws IOException {
+    return super.createSocket();
+  }
+
+  @Override
+  public Socket createSocket(String host, int port) throws IOException {
+    return this.getDelegate(host).createSocket(host, port);
+  }
+
+  @Override
+  public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+    return this.getDelegate(host).createSocket(s, host, port, autoClose);
+  }
+
+  @Override
+  public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+    return this.getDelegate(host).createSocket(host, port, localHost, localPort);
+  }
+
+  @Override
+  public Socket createSocket(Socket s, InputStream consumed, boolean autoClose) throws IOException {
+    return this.defaultDelegate.createSocket(s, consumed, autoClose);
+  }
+
+  @Override
+  public Socket createSocket(InetAddress host, int port) throws IOException {
+    return this.getDelegate(host).createSocket(host, port);
+  }
+
+  @Override
+  public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+    return this.getDelegate(address).createSocket(address, port, localAddress, localPort);
+  }
+
+  @Override
+  public String toString() {
+    return this.getClass().getSimpleName() + "[routes=" + this.routes.size() + ']';
+  }
+
+  /**
+   * Builds a {@link RoutingSSLSocketFactory}.
+   * <p>
+   * The socket factory of a {@link SSLContext} is only created once, all routes to the same
+   * context share it. The TLS sessions of a context are cached in the context, so create
+   * every context only once and route all destinations that need it to the same instance.
+   *
+   * @see RoutingSSLSocketFactory#builder(SSLContext)
+   */
+  public static final class Builder {
+
+    private final SSLSocketFactory defaultDelegate;
+
+    private final Map<String, SSLSocketFactory> routes;
+
+    private final Map<SSLContext, SSLSocketFactory> socketFactories;
+
+    Builder(SSLSocketFactory defaultDelegate) {
+      this.routes = new LinkedHashMap<>();
+      this.socketFactories = new IdentityHashMap<>();
+      this.defaultDelegate = defaultDelegate;
+    }
+
+    Builder(SSLContext defaultContext) {
+      this.routes = new LinkedHashMap<>();
+      this.socketFactories = new IdentityHashMap<>();
+      this.defaultDelegate = this.getSocketFactory(defaultContext);
+    }
+
+    private SSLSocketFactory getSocketFactory(SSLContext context) {
+      return this.socketFactories.computeIfAbsent(context, SSLContext::getSocketFactory);
+    }
+
+    /**
+     * Routes a destination to a delegate.
+     * <p>
+     * A destination is either a host name, {@code *.} followed by a domain to route all hosts
+     * in the domain, a literal IP address or an address block in CIDR notation like
+     * {@code 192.0.2.0/24} or {@code 2001:db8::/32}. Host names are compared case insensitively.
+     *
+     * @param destination the destination, not {@code null}
+     * @param delegate the delegate for the destination, not {@code null}
+     * @return this builder
+     * @throws IllegalArgumentException if the destination is already routed
+     */
+    public Builder route(String destination, SSLSocketFactory delegate) {
+      Objects.requireNonNull(destination, "destination");
+      Objects.requireNonNull(delegate, "delegate");
+      if (this.routes.putIfAbsent(destination, delegate) != null) {
+        throw new IllegalArgumentException("duplicate route: " + destination);
+      }
+      return this;
+    }
+
+    /**
+     * Routes a destination to the socket factory of a context.
+     *
+     * @param destination the destination, not {@code null}
+     * @param context the context for the destination, not {@code null}
+     * @return this builder
+     * @throws IllegalArgumentException if the destination is already routed
+     * @see #route(String, SSLSocketFactory)
+     */
+    public Builder route(String destination, SSLContext context) {
+      Objects.requireNonNull(context, "context");
+      return this.route(destination, this.getSocketFactory(context));
+    }
+
+    /**
+     * Builds a new socket factory with the current routes.
+     *
+     * @return the new socket factory, not {@code null}
+     * @throws IllegalArgumentException if a destination is invalid or two destinations are
+     *                                  equivalent, like host names differing only in case
+     */
+    public RoutingSSLSocketFactory build() {
+      return new RoutingSSLSocketFactory(this.defaultDelegate, new RouteTable<>(this.routes));
+    }
+
+  }
+
+}
@@ -0,0 +1,71 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.lang.invoke.VarHandle;
+
+import javax.net.ssl.ExtendedSSLSession;
+import javax.net.ssl.SSLSession;
+
+/**
+ * Creates and caches {@link LegacyCompatibilitySSLSession} and {@link LegacyCompatibilityExtendedSSLSession}
+ * wrappers.
+ * <p>
+ * A wrapper is cached together with the session it wraps. As long as the delegate returns the
+ * same session the cached wrapper is returned. Once the delegate returns a different session,
+ * for example after a renegotiation or resumption, a new wrapper is created.
+ */
+final class SessionAdapters {
+
+  private SessionAdapters() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Returns the wrapper for a session.
+   *
+   * @param owner the object holding the cached wrapper
+   * @param handle the {@link AdaptedSession} field of {@code owner} holding the cached wrapper
+   * @param delegateSession the current session of the delegate, {@code null} clears the cached wrapper
+   * @param settings the settings for a new wrapper
+   * @return the wrapper of {@code delegateSession}, {@code null} if {@code delegateSession} is {@code null}
+   */
+  static SSLSession adaptedSession(Object owner, VarHandle handle, SSLSession delegateSession,
+          SocketSettings settings) {
+    AdaptedSession current = (AdaptedSession) handle.getAcquire(owner);
+    if (delegateSession == null) {
+      if (current != null) {
+        // don't pin the session any longer than necessary
+        handle.compareAndSet(owner, current, null);
+      }
+      return null;
+    }
+    if (current != null && current.delegate() == delegateSession) {
+      return current.adapted();
+    }
+    AdaptedSession adapted = new AdaptedSession(delegateSession, adaptSSLSession(delegateSession, settings));
+    AdaptedSession witness = (AdaptedSession) handle.compareAndExchange(owner, current, adapted);
+    if (witness != current && witness != null && witness.delegate() == delegateSession) {
+      // an other thread installed a wrapper for the same session first
+      return witness.adapted();
+    }
+    return adapted.adapted();
+  }
+
+  static SSLSession adaptSSLSession(SSLSession delegate, SocketSettings settings) {
+    if (delegate instanceof ExtendedSSLSession extendedSSLSession) {
+      return new LegacyCompatibilityExtendedSSLSession(extendedSSLSession, settings);
+    } else {
+      return new LegacyCompatibilitySSLSession(delegate, settings);
+    }
+  }
+
+  /**
+   * A session wrapper together with the session it wraps.
+   *
+   * @param delegate the wrapped session
+   * @param adapted the wrapper
+   */
+  record AdaptedSession(SSLSession delegate, SSLSession adapted) {
+
+  }
+
+}
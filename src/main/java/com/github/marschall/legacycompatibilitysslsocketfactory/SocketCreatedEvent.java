@@ -0,0 +1,26 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted when a {@link LegacyCompatibilitySSLSocketFactory} creates a socket.
+ */
+@Name("com.github.marschall.legacycompatibilitysslsocketfactory.SocketCreated")
+@Label("Socket Created")
+@Description("A legacy compatibility SSL socket was created")
+@Category({"Java Application", "Legacy Compatibility SSL"})
+@StackTrace(false)
+final class SocketCreatedEvent extends Event {
+
+  @Label("Remote Address")
+  String address;
+
+  @Label("Remote Port")
+  int port;
+
+}
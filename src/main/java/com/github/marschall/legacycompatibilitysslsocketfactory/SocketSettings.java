@@ -0,0 +1,36 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * The settings of a socket factory, shared by all the sockets it creates so that every
+ * socket needs only a single reference to them.
+ *
+ * @param certificateAdapterCache the cache for the adapted certificates, not {@code null}
+ * @param handshakeCompletedListenerExecutor the executor for the handshake completed listeners,
+ *                                           {@code null} to notify them on the thread delivering the event
+ * @param metrics the metrics to record, {@code null} to record none
+ * @param callSiteTracker the tracker for the callers of {@code getPeerCertificateChain()}, {@code null} to track none
+ */
+record SocketSettings(CertificateAdapterCache certificateAdapterCache, Executor handshakeCompletedListenerExecutor,
+        LegacyCompatibilityMetrics metrics, CallSiteTracker callSiteTracker) {
+
+  SocketSettings {
+    Objects.requireNonNull(certificateAdapterCache, "certificateAdapterCache");
+  }
+
+  SocketSettings(CertificateAdapterCache certificateAdapterCache) {
+    this(certificateAdapterCache, null, null, null);
+  }
+
+  /**
+   * Whether calls to {@code getPeerCertificateChain()} have to be instrumented independently of JFR.
+   *
+   * @return {@code true} if {@link #metrics()} or {@link #callSiteTracker()} is not {@code null}
+   */
+  boolean instrumentPeerCertificateChain() {
+    return this.metrics != null || this.callSiteTracker != null;
+  }
+
+}
@@ -0,0 +1,67 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Decides which sockets created by a {@link LegacyCompatibilitySSLSocketFactory} are wrapped.
+ * <p>
+ * Sockets that are not wrapped are the sockets of the delegate factory. They have no overhead
+ * but their sessions do not implement {@link javax.net.ssl.SSLSession#getPeerCertificateChain()}.
+ * Sockets whose destination is not known when they are created, like unconnected sockets and
+ * server side sockets, are always wrapped.
+ * <p>
+ * Implementations are called concurrently for every socket created and should return quickly.
+ * By default all sockets are wrapped.
+ *
+ * @see LegacyCompatibilitySSLSocketFactory.Builder#wrappingPolicy(WrappingPolicy)
+ */
+@FunctionalInterface
+public interface WrappingPolicy {
+
+  /**
+   * Decides whether a socket to a destination should be wrapped.
+   *
+   * @param host the host name or the literal IP address of the destination, not {@code null}
+   * @param port the port of the destination
+   * @return {@code true} if the socket should be wrapped
+   */
+  boolean shouldWrap(String host, int port);
+
+  /**
+   * Creates a policy that wraps the sockets to destinations matching any of the given patterns.
+   * <p>
+   * A pattern consists of a host and an optional port separated by a colon. The host is
+   * either a host name, a literal IP address, {@code *.} followed by a domain to match all
+   * hosts in the domain or {@code *} to match all hosts. IPv6 addresses with a port have to be
+   * enclosed in square brackets. The port is either a port number or {@code *} to match all
+   * ports, which is also the default. Host names are compared case insensitively.
+   * <p>
+   * Examples: {@code legacy.example.com}, {@code legacy.example.com:8443},
+   * {@code *.legacy.example.com:443}, {@code 192.0.2.1}, {@code [2001:db8::1]:443},
+   * {@code *:8443}.
+   * <p>
+   * The patterns are compiled so that the time to match a destination depends on the number
+   * of labels in its host name but not on the number of patterns.
+   *
+   * @param patterns the patterns, not {@code null}
+   * @return the policy, not {@code null}
+   * @throws IllegalArgumentException if a pattern is invalid
+   */
+  static WrappingPolicy matching(Collection<String> patterns) {
+    return new HostPortMatcher(patterns);
+  }
+
+  /**
+   * Creates a policy that wraps the sockets to destinations matching any of the given patterns.
+   *
+   * @param patterns the patterns, not {@code null}
+   * @return the policy, not {@code null}
+   * @throws IllegalArgumentException if a pattern is invalid
+   * @see #matching(Collection)
+   */
+  static WrappingPolicy matching(String... patterns) {
+    return matching(List.of(patterns));
+  }
+
+}
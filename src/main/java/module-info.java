@@ -1,5 +1,7 @@
 module com.github.marschall.legacycompatibilitysslsocketfactory {
 
+  requires static jdk.jfr;
+
   exports com.github.marschall.legacycompatibilitysslsocketfactory;
 
 }
\ No newline at end of file
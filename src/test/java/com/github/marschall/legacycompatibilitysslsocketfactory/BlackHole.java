@@ -0,0 +1,84 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A local stand-in for an unroutable address, a listener that does not accept connections
+ * and whose backlog is full so that further connection attempts hang.
+ */
+final class BlackHole implements AutoCloseable {
+
+  private final ServerSocket serverSocket;
+
+  private final List<Socket> backlog;
+
+  private final boolean full;
+
+  /**
+   * Binds a listener and fills its backlog.
+   *
+   * @param address the address to bind to
+   * @param port the port to bind to, {@code 0} for an ephemeral port
+   * @throws IOException if the listener can not be bound
+   */
+  BlackHole(InetAddress address, int port) throws IOException {
+    this.serverSocket = new ServerSocket(port, 1, address);
+    this.backlog = new ArrayList<>();
+    InetSocketAddress endpoint = new InetSocketAddress(address, this.serverSocket.getLocalPort());
+    boolean backlogFull = false;
+    for (int i = 0; i < 16 && !backlogFull; i++) {
+      Socket socket = new Socket();
+      try {
+        socket.connect(endpoint, 200);
+        this.backlog.add(socket);
+      } catch (SocketTimeoutException e) {
+        socket.close();
+        backlogFull = true;
+      }
+    }
+    this.full = backlogFull;
+  }
+
+  /**
+   * Whether connection attempts hang, depends on the operating system.
+   *
+   * @return {@code true} if connection attempts hang
+   */
+  boolean isFull() {
+    return this.full;
+  }
+
+  /**
+   * Returns the address the listener is bound to.
+   *
+   * @return the bound address
+   */
+  InetAddress getAddress() {
+    return this.serverSocket.getInetAddress();
+  }
+
+  /**
+   * Returns the port the listener is bound to.
+   *
+   * @return the bound port
+   */
+  int getPort() {
+    return this.serverSocket.getLocalPort();
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (Socket socket : this.backlog) {
+      socket.close();
+    }
+    this.serverSocket.close();
+  }
+
+}
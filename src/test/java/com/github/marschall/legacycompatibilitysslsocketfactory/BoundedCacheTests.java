@@ -0,0 +1,69 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+class BoundedCacheTests {
+
+  @Test
+  void evictsOldest() {
+    BoundedCache<Integer, String> cache = new BoundedCache<>(2);
+    assertNull(cache.putIfAbsent(1, "1"));
+    assertNull(cache.putIfAbsent(2, "2"));
+    assertNull(cache.putIfAbsent(3, "3"));
+    assertEquals(2, cache.size());
+    assertEquals(1L, cache.getEvictionCount());
+    assertNull(cache.get(1));
+    assertEquals("3", cache.get(3));
+  }
+
+  @Test
+  void concurrentClear() throws InterruptedException {
+    int maximumSize = 16;
+    BoundedCache<Integer, String> cache = new BoundedCache<>(maximumSize);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      int offset = i * 100_000;
+      threads.add(new Thread(() -> {
+        awaitUninterruptibly(start);
+        for (int j = 0; j < 100_000; j++) {
+          cache.putIfAbsent(offset + j, "value");
+        }
+      }));
+    }
+    threads.add(new Thread(() -> {
+      awaitUninterruptibly(start);
+      for (int j = 0; j < 10_000; j++) {
+        cache.clear();
+      }
+    }));
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    // entries that lost their insertion order slot to clear() are evicted as well
+    cache.putIfAbsent(-1, "value");
+    assertTrue(cache.size() <= maximumSize, "size: " + cache.size());
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
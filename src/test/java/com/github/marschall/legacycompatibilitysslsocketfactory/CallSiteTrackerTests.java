@@ -0,0 +1,129 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CallSiteTrackerTests {
+
+  private static X509Certificate root;
+
+  @BeforeAll
+  static void generateCertificates() throws GeneralSecurityException {
+    KeyPair rootKeyPair = TestCertificates.generateKeyPair("EC");
+    root = TestCertificates.selfSigned("CN=Test Root", rootKeyPair);
+  }
+
+  private static SSLSession trackedSession(CallSiteTracker tracker) {
+    SocketSettings settings = new SocketSettings(new CertificateAdapterCache(0), null, null, tracker);
+    return new LegacyCompatibilityExtendedSSLSession(new StubSSLSession(root), settings);
+  }
+
+  private static void firstCaller(SSLSession session) throws SSLPeerUnverifiedException {
+    session.getPeerCertificateChain();
+  }
+
+  private static void secondCaller(SSLSession session) throws SSLPeerUnverifiedException {
+    session.getPeerCertificateChain();
+  }
+
+  @Test
+  void callSites() throws SSLPeerUnverifiedException {
+    CallSiteTracker tracker = new CallSiteTracker(1, 16, 2);
+    SSLSession session = trackedSession(tracker);
+    for (int i = 0; i < 2; i++) {
+      // the same line, otherwise the second frames differ
+      firstCaller(session);
+    }
+    secondCaller(session);
+
+    Map<String, Long> callSites = tracker.getCallSites();
+    assertEquals(2, callSites.size());
+    assertEquals(3L, tracker.getSampleCount());
+    callSites.forEach((callSite, count) -> {
+      String[] frames = callSite.split(" <- ");
+      assertEquals(2, frames.length, callSite);
+      assertTrue(frames[1].startsWith(CallSiteTrackerTests.class.getName() + ".callSites("), callSite);
+      if (frames[0].startsWith(CallSiteTrackerTests.class.getName() + ".firstCaller(")) {
+        assertEquals(2L, count);
+      } else {
+        assertTrue(frames[0].startsWith(CallSiteTrackerTests.class.getName() + ".secondCaller("), callSite);
+        assertEquals(1L, count);
+      }
+    });
+
+    tracker.reset();
+    assertEquals(Map.of(), tracker.getCallSites());
+    assertEquals(0L, tracker.getSampleCount());
+  }
+
+  @Test
+  void bounded() throws SSLPeerUnverifiedException {
+    CallSiteTracker tracker = new CallSiteTracker(1, 1, 1);
+    SSLSession session = trackedSession(tracker);
+    firstCaller(session);
+    secondCaller(session);
+    firstCaller(session);
+
+    Map<String, Long> callSites = tracker.getCallSites();
+    assertEquals(1, callSites.size());
+    Map.Entry<String, Long> callSite = callSites.entrySet().iterator().next();
+    assertTrue(callSite.getKey().startsWith(CallSiteTrackerTests.class.getName() + ".firstCaller("), callSite.getKey());
+    assertEquals(2L, callSite.getValue());
+    assertEquals(3L, tracker.getSampleCount());
+    assertEquals(1L, tracker.getDroppedSampleCount());
+  }
+
+  @Test
+  void sampling() throws SSLPeerUnverifiedException {
+    CallSiteTracker tracker = new CallSiteTracker(10, 16, 1);
+    SSLSession session = trackedSession(tracker);
+    for (int i = 0; i < 10_000; i++) {
+      firstCaller(session);
+    }
+    long sampleCount = tracker.getSampleCount();
+    // expected 1000, way more than five standard deviations
+    assertTrue(sampleCount > 800L && sampleCount < 1200L, () -> "sample count: " + sampleCount);
+  }
+
+  @Test
+  void invalidArguments() {
+    assertThrows(IllegalArgumentException.class, () -> new CallSiteTracker(0, 16, 1));
+    assertThrows(IllegalArgumentException.class, () -> new CallSiteTracker(1, 0, 1));
+    assertThrows(IllegalArgumentException.class, () -> new CallSiteTracker(1, 16, 0));
+  }
+
+  @Test
+  void mxBean() throws Exception {
+    CallSiteTracker tracker = new CallSiteTracker(1, 16, 1);
+    firstCaller(trackedSession(tracker));
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("com.github.marschall.legacycompatibilitysslsocketfactory:type=CallSiteTracker");
+    server.registerMBean(tracker, name);
+    try {
+      assertEquals(1L, server.getAttribute(name, "SampleCount"));
+      TabularData callSites = (TabularData) server.getAttribute(name, "CallSites");
+      assertEquals(1, callSites.size());
+      server.invoke(name, "reset", null, null);
+      assertEquals(0L, tracker.getSampleCount());
+    } finally {
+      server.unregisterMBean(name);
+    }
+  }
+
+}
@@ -0,0 +1,98 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CertificateAdapterCacheTests {
+
+  private static KeyPair rootKeyPair;
+
+  private static X509Certificate root;
+
+  private static X509Certificate leaf;
+
+  @BeforeAll
+  static void generateCertificates() throws GeneralSecurityException {
+    rootKeyPair = TestCertificates.generateKeyPair("EC");
+    root = TestCertificates.selfSigned("CN=Test Root", rootKeyPair);
+    leaf = issueLeaf("CN=localhost");
+  }
+
+  private static X509Certificate issueLeaf(String subject) throws GeneralSecurityException {
+    KeyPair leafKeyPair = TestCertificates.generateKeyPair("EC");
+    return TestCertificates.issueLeaf(subject, leafKeyPair.getPublic(), List.of("localhost"), root, rootKeyPair.getPrivate());
+  }
+
+  @Test
+  void sharedAcrossSessions() throws SSLPeerUnverifiedException {
+    CertificateAdapterCache cache = new CertificateAdapterCache(16);
+    SSLSession first = new LegacyCompatibilityExtendedSSLSession(new StubSSLSession(leaf, root), cache);
+    SSLSession second = new LegacyCompatibilitySSLSession(new StubSSLSession(leaf, root), cache);
+
+    javax.security.cert.X509Certificate[] firstChain = first.getPeerCertificateChain();
+    javax.security.cert.X509Certificate[] secondChain = second.getPeerCertificateChain();
+    assertNotSame(firstChain, secondChain);
+    assertSame(firstChain[0], secondChain[0]);
+    assertSame(firstChain[1], secondChain[1]);
+
+    assertEquals(2L, cache.getMissCount());
+    assertEquals(2L, cache.getHitCount());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  void equalCertificatesHit() {
+    CertificateAdapterCache cache = new CertificateAdapterCache(16);
+    X509Certificate equal = new ForwardingX509Certificate(leaf);
+    assertEquals(leaf, equal);
+
+    assertSame(cache.adapt(leaf), cache.adapt(equal));
+    assertEquals(1L, cache.getMissCount());
+    assertEquals(1L, cache.getHitCount());
+  }
+
+  @Test
+  void eviction() throws GeneralSecurityException {
+    CertificateAdapterCache cache = new CertificateAdapterCache(2);
+    X509Certificate other = issueLeaf("CN=other");
+
+    javax.security.cert.X509Certificate leafAdapter = cache.adapt(leaf);
+    cache.adapt(root);
+    cache.adapt(other);
+    assertEquals(2, cache.size());
+    assertEquals(1L, cache.getEvictionCount());
+
+    // the eldest entry was evicted
+    assertNotSame(leafAdapter, cache.adapt(leaf));
+    assertEquals(4L, cache.getMissCount());
+    assertEquals(0L, cache.getHitCount());
+  }
+
+  @Test
+  void disabled() {
+    CertificateAdapterCache cache = new CertificateAdapterCache(0);
+    assertNotSame(cache.adapt(leaf), cache.adapt(leaf));
+    assertEquals(0, cache.size());
+    assertEquals(2L, cache.getMissCount());
+    assertEquals(0L, cache.getEvictionCount());
+  }
+
+  @Test
+  void negativeMaximumSize() {
+    assertThrows(IllegalArgumentException.class, () -> new CertificateAdapterCache(-1));
+  }
+
+}
@@ -0,0 +1,99 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CertificateAdapterTests {
+
+  private static X509Certificate root;
+
+  private static X509Certificate leaf;
+
+  @BeforeAll
+  static void generateCertificates() throws GeneralSecurityException {
+    KeyPair rootKeyPair = TestCertificates.generateKeyPair("EC");
+    root = TestCertificates.selfSigned("CN=Test Root", rootKeyPair);
+    KeyPair leafKeyPair = TestCertificates.generateKeyPair("EC");
+    leaf = TestCertificates.issueLeaf("CN=localhost", leafKeyPair.getPublic(), List.of("localhost"), root, rootKeyPair.getPrivate());
+  }
+
+  @Test
+  void derivedValuesAreKept() {
+    CertificateAdapter adapter = new CertificateAdapter(leaf);
+    assertSame(adapter.getSubjectDN(), adapter.getSubjectDN());
+    assertSame(adapter.getIssuerDN(), adapter.getIssuerDN());
+    assertSame(adapter.toString(), adapter.toString());
+    assertEquals(leaf.getSubjectDN(), adapter.getSubjectDN());
+    assertEquals(leaf.getIssuerDN(), adapter.getIssuerDN());
+    assertEquals(leaf.toString(), adapter.toString());
+  }
+
+  @Test
+  void encodedIsCopied() throws Exception {
+    CertificateAdapter adapter = new CertificateAdapter(leaf);
+    byte[] encoded = adapter.getEncoded();
+    assertArrayEquals(leaf.getEncoded(), encoded);
+    assertNotSame(encoded, adapter.getEncoded());
+    encoded[0] = (byte) ~encoded[0];
+    assertArrayEquals(leaf.getEncoded(), adapter.getEncoded());
+  }
+
+  @Test
+  void equalsAndHashCode() throws Exception {
+    CertificateAdapter adapter = new CertificateAdapter(leaf);
+    CertificateAdapter sameCertificate = new CertificateAdapter(leaf);
+
+    assertEquals(adapter, sameCertificate);
+    assertEquals(adapter.hashCode(), sameCertificate.hashCode());
+    assertNotEquals(adapter, new CertificateAdapter(root));
+
+    // consistent with javax.security.cert.Certificate#hashCode() for other implementations
+    byte[] encoded = leaf.getEncoded();
+    int expectedHash = 0;
+    for (int i = 1; i < encoded.length; i++) {
+      expectedHash += encoded[i] * i;
+    }
+    assertEquals(expectedHash, adapter.hashCode());
+  }
+
+  @Test
+  void checkValidity() throws Exception {
+    CertificateAdapter adapter = new CertificateAdapter(leaf);
+    adapter.checkValidity();
+    adapter.checkValidity(leaf.getNotBefore());
+    adapter.checkValidity(leaf.getNotAfter());
+    assertEquals(leaf.getNotBefore(), adapter.getNotBefore());
+    assertEquals(leaf.getNotAfter(), adapter.getNotAfter());
+
+    Date beforeValidity = new Date(leaf.getNotBefore().getTime() - 1L);
+    java.security.cert.CertificateNotYetValidException jdkNotYetValid = assertThrows(java.security.cert.CertificateNotYetValidException.class,
+        () -> leaf.checkValidity(beforeValidity));
+    javax.security.cert.CertificateNotYetValidException notYetValid = assertThrows(javax.security.cert.CertificateNotYetValidException.class,
+        () -> adapter.checkValidity(beforeValidity));
+    assertEquals(jdkNotYetValid.getMessage(), notYetValid.getMessage());
+    assertEquals(0, notYetValid.getStackTrace().length);
+
+    Date afterValidity = new Date(leaf.getNotAfter().getTime() + 1L);
+    java.security.cert.CertificateExpiredException jdkExpired = assertThrows(java.security.cert.CertificateExpiredException.class,
+        () -> leaf.checkValidity(afterValidity));
+    javax.security.cert.CertificateExpiredException expired = assertThrows(javax.security.cert.CertificateExpiredException.class,
+        () -> adapter.checkValidity(afterValidity));
+    assertEquals(jdkExpired.getMessage(), expired.getMessage());
+    assertEquals(0, expired.getStackTrace().length);
+    assertNotSame(expired, assertThrows(javax.security.cert.CertificateExpiredException.class, () -> adapter.checkValidity(afterValidity)));
+  }
+
+}
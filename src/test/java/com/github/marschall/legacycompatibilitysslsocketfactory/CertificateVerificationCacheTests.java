@@ -0,0 +1,103 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.SignatureException;
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CertificateVerificationCacheTests {
+
+  private static KeyPair rootKeyPair;
+
+  private static X509Certificate root;
+
+  private static X509Certificate leaf;
+
+  private static X509Certificate otherLeaf;
+
+  @BeforeAll
+  static void generateCertificates() throws GeneralSecurityException {
+    rootKeyPair = TestCertificates.generateKeyPair("EC");
+    root = TestCertificates.selfSigned("CN=Test Root", rootKeyPair);
+    leaf = TestCertificates.issueLeaf("CN=localhost", TestCertificates.generateKeyPair("EC").getPublic(), List.of("localhost"),
+            root, rootKeyPair.getPrivate());
+    otherLeaf = TestCertificates.issueLeaf("CN=other", TestCertificates.generateKeyPair("EC").getPublic(), List.of("other"),
+            root, rootKeyPair.getPrivate());
+  }
+
+  @Test
+  void repeatedVerification() throws Exception {
+    CertificateVerificationCache cache = new CertificateVerificationCache(16);
+    CertificateAdapter adapter = new CertificateAdapter(leaf, cache);
+
+    adapter.verify(root.getPublicKey());
+    assertEquals(0L, cache.getHitCount());
+    assertEquals(1L, cache.getMissCount());
+
+    adapter.verify(root.getPublicKey());
+    // an other adapter for the same certificate
+    new CertificateAdapter(leaf, cache).verify(root.getPublicKey());
+    assertEquals(2L, cache.getHitCount());
+    assertEquals(1L, cache.getMissCount());
+
+    // the provider is part of the key
+    adapter.verify(root.getPublicKey(), "SunEC");
+    assertEquals(2L, cache.getMissCount());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  void failuresAreNotCached() throws Exception {
+    CertificateVerificationCache cache = new CertificateVerificationCache(16);
+    CertificateAdapter adapter = new CertificateAdapter(leaf, cache);
+
+    // the leaf is not self signed
+    for (int i = 0; i < 2; i++) {
+      assertThrows(SignatureException.class, () -> adapter.verify(leaf.getPublicKey()));
+    }
+    assertEquals(0, cache.size());
+    assertEquals(0L, cache.getHitCount());
+    assertEquals(0L, cache.getMissCount());
+  }
+
+  @Test
+  void eviction() throws Exception {
+    CertificateVerificationCache cache = new CertificateVerificationCache(1);
+    new CertificateAdapter(leaf, cache).verify(root.getPublicKey());
+    new CertificateAdapter(otherLeaf, cache).verify(root.getPublicKey());
+    assertEquals(1, cache.size());
+    assertEquals(1L, cache.getEvictionCount());
+
+    new CertificateAdapter(leaf, cache).verify(root.getPublicKey());
+    assertEquals(0L, cache.getHitCount());
+    assertEquals(3L, cache.getMissCount());
+  }
+
+  @Test
+  void disabled() throws Exception {
+    CertificateVerificationCache cache = new CertificateVerificationCache(0);
+    CertificateAdapter adapter = new CertificateAdapter(leaf, cache);
+    adapter.verify(root.getPublicKey());
+    adapter.verify(root.getPublicKey());
+    assertEquals(0, cache.size());
+    assertEquals(0L, cache.getHitCount());
+    assertEquals(2L, cache.getMissCount());
+  }
+
+  @Test
+  void sharedThroughAdapterCache() throws Exception {
+    CertificateVerificationCache verificationCache = new CertificateVerificationCache(16);
+    CertificateAdapterCache adapterCache = new CertificateAdapterCache(0, verificationCache);
+    adapterCache.adapt(leaf).verify(root.getPublicKey());
+    adapterCache.adapt(leaf).verify(root.getPublicKey());
+    assertEquals(1L, verificationCache.getHitCount());
+  }
+
+}
@@ -0,0 +1,158 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.SignatureException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Date;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.github.marschall.legacycompatibilitysslsocketfactory.TestCertificates.Der;
+
+class EncodedCertificateTests {
+
+  @ParameterizedTest
+  @ValueSource(strings = {"RSA", "EC"})
+  void sameAsAdapter(String keyAlgorithm) throws Exception {
+    TestPki pki = TestPki.create(keyAlgorithm, 1);
+    X509Certificate[] chain = Arrays.copyOf(pki.getChain(), pki.getChain().length + 1);
+    chain[chain.length - 1] = pki.getRoot();
+    for (int i = 0; i < chain.length; i++) {
+      X509Certificate certificate = chain[i];
+      CertificateAdapter adapter = new CertificateAdapter(certificate);
+      javax.security.cert.X509Certificate encoded = LegacyCertificates.fromEncoded(certificate.getEncoded());
+
+      assertEquals(adapter.getVersion(), encoded.getVersion());
+      assertEquals(adapter.getSerialNumber(), encoded.getSerialNumber());
+      assertEquals(certificate.getSubjectX500Principal(), encoded.getSubjectDN());
+      assertEquals(certificate.getIssuerX500Principal(), encoded.getIssuerDN());
+      assertEquals(adapter.getNotBefore(), encoded.getNotBefore());
+      assertEquals(adapter.getNotAfter(), encoded.getNotAfter());
+      assertEquals(adapter.getSigAlgName(), encoded.getSigAlgName());
+      assertEquals(adapter.getSigAlgOID(), encoded.getSigAlgOID());
+      assertArrayEquals(adapter.getSigAlgParams(), encoded.getSigAlgParams());
+      assertEquals(adapter.getPublicKey(), encoded.getPublicKey());
+      assertArrayEquals(adapter.getEncoded(), encoded.getEncoded());
+      assertEquals(adapter.toString(), encoded.toString());
+
+      assertEquals(adapter, encoded);
+      assertEquals(encoded, adapter);
+      assertEquals(adapter.hashCode(), encoded.hashCode());
+
+      // signed by the next certificate in the chain, the root by itself
+      encoded.verify(chain[Math.min(i + 1, chain.length - 1)].getPublicKey());
+    }
+    assertThrows(SignatureException.class, () -> LegacyCertificates.fromEncoded(chain[0].getEncoded()).verify(chain[0].getPublicKey()));
+  }
+
+  @Test
+  void derivedValuesAreKept() throws Exception {
+    KeyPair keyPair = TestCertificates.generateKeyPair("EC");
+    X509Certificate root = TestCertificates.selfSigned("CN=Test Root", keyPair);
+    javax.security.cert.X509Certificate encoded = LegacyCertificates.fromEncoded(root.getEncoded());
+    assertSame(encoded.getSerialNumber(), encoded.getSerialNumber());
+    assertSame(encoded.getSubjectDN(), encoded.getSubjectDN());
+    assertSame(encoded.getIssuerDN(), encoded.getIssuerDN());
+    assertSame(encoded.getSigAlgOID(), encoded.getSigAlgOID());
+    assertSame(encoded.getPublicKey(), encoded.getPublicKey());
+    assertSame(encoded.toString(), encoded.toString());
+  }
+
+  @Test
+  void encodedIsCopied() throws Exception {
+    KeyPair keyPair = TestCertificates.generateKeyPair("EC");
+    byte[] original = TestCertificates.selfSigned("CN=Test Root", keyPair).getEncoded();
+    byte[] input = original.clone();
+    javax.security.cert.X509Certificate encoded = LegacyCertificates.fromEncoded(input);
+    input[input.length - 1] = (byte) ~input[input.length - 1];
+    byte[] output = encoded.getEncoded();
+    assertArrayEquals(original, output);
+    output[output.length - 1] = (byte) ~output[output.length - 1];
+    assertArrayEquals(original, encoded.getEncoded());
+  }
+
+  @Test
+  void checkValidity() throws Exception {
+    KeyPair keyPair = TestCertificates.generateKeyPair("EC");
+    X509Certificate root = TestCertificates.selfSigned("CN=Test Root", keyPair);
+    javax.security.cert.X509Certificate encoded = LegacyCertificates.fromEncoded(root.getEncoded());
+    encoded.checkValidity();
+    encoded.checkValidity(root.getNotBefore());
+    encoded.checkValidity(root.getNotAfter());
+    Date beforeValidity = new Date(root.getNotBefore().getTime() - 1L);
+    assertEquals(assertThrows(java.security.cert.CertificateNotYetValidException.class, () -> root.checkValidity(beforeValidity)).getMessage(),
+        assertThrows(javax.security.cert.CertificateNotYetValidException.class, () -> encoded.checkValidity(beforeValidity)).getMessage());
+    Date afterValidity = new Date(root.getNotAfter().getTime() + 1L);
+    assertEquals(assertThrows(java.security.cert.CertificateExpiredException.class, () -> root.checkValidity(afterValidity)).getMessage(),
+        assertThrows(javax.security.cert.CertificateExpiredException.class, () -> encoded.checkValidity(afterValidity)).getMessage());
+  }
+
+  @Test
+  void generalizedTime() throws Exception {
+    // from 2050 on GeneralizedTime has to be used, the signature is never checked
+    byte[] signatureAlgorithm = Der.sequence(Der.oid("1.2.840.10045.4.3.2"));
+    byte[] tbsCertificate = Der.sequence(
+            Der.explicit(0, Der.integer(BigInteger.valueOf(2L))),
+            Der.integer(BigInteger.valueOf(1234L)),
+            signatureAlgorithm,
+            new X500Principal("CN=Issuer").getEncoded(),
+            Der.sequence(generalizedTime("20491231235959Z"), generalizedTime("20991231235959Z")),
+            new X500Principal("CN=Subject").getEncoded(),
+            TestCertificates.generateKeyPair("EC").getPublic().getEncoded());
+    byte[] certificate = Der.sequence(tbsCertificate, signatureAlgorithm, Der.bitString(new byte[8]));
+
+    X509Certificate parsed = (X509Certificate) CertificateFactory.getInstance("X.509")
+            .generateCertificate(new ByteArrayInputStream(certificate));
+    javax.security.cert.X509Certificate encoded = LegacyCertificates.fromEncoded(certificate);
+    assertEquals(parsed.getNotBefore(), encoded.getNotBefore());
+    assertEquals(parsed.getNotAfter(), encoded.getNotAfter());
+    assertEquals(BigInteger.valueOf(1234L), encoded.getSerialNumber());
+    assertEquals(new X500Principal("CN=Subject"), encoded.getSubjectDN());
+  }
+
+  private static byte[] generalizedTime(String time) {
+    return Der.tlv(0x18, time.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  void malformed() throws GeneralSecurityException {
+    KeyPair keyPair = TestCertificates.generateKeyPair("EC");
+    byte[] encoded = TestCertificates.selfSigned("CN=Test Root", keyPair).getEncoded();
+
+    assertThrows(javax.security.cert.CertificateException.class, () -> LegacyCertificates.fromEncoded(new byte[0]));
+    assertThrows(javax.security.cert.CertificateException.class, () -> LegacyCertificates.fromEncoded(Der.sequence()));
+    assertThrows(javax.security.cert.CertificateException.class,
+        () -> LegacyCertificates.fromEncoded(Arrays.copyOf(encoded, encoded.length - 1)));
+    assertThrows(javax.security.cert.CertificateException.class,
+        () -> LegacyCertificates.fromEncoded(Arrays.copyOf(encoded, encoded.length + 1)));
+    assertThrows(javax.security.cert.CertificateException.class,
+        () -> LegacyCertificates.fromEncoded(Der.sequence(Der.integer(BigInteger.ONE))));
+    assertThrows(NullPointerException.class, () -> LegacyCertificates.fromEncoded(null));
+  }
+
+  @Test
+  void differentCertificates() throws Exception {
+    KeyPair keyPair = TestCertificates.generateKeyPair("EC");
+    javax.security.cert.X509Certificate first = LegacyCertificates.fromEncoded(TestCertificates.selfSigned("CN=First", keyPair).getEncoded());
+    javax.security.cert.X509Certificate second = LegacyCertificates.fromEncoded(TestCertificates.selfSigned("CN=Second", keyPair).getEncoded());
+    assertNotEquals(first, second);
+    assertEquals(first, LegacyCertificates.fromEncoded(first.getEncoded()));
+  }
+
+}
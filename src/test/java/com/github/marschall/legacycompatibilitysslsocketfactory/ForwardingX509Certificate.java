@@ -0,0 +1,159 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.math.BigInteger;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.Principal;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateExpiredException;
+import java.security.cert.CertificateNotYetValidException;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * A {@link X509Certificate} that is equal to but not the same as an other {@link X509Certificate}.
+ */
+final class ForwardingX509Certificate extends X509Certificate {
+
+  private final X509Certificate delegate;
+
+  ForwardingX509Certificate(X509Certificate delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public boolean hasUnsupportedCriticalExtension() {
+    return this.delegate.hasUnsupportedCriticalExtension();
+  }
+
+  @Override
+  public Set<String> getCriticalExtensionOIDs() {
+    return this.delegate.getCriticalExtensionOIDs();
+  }
+
+  @Override
+  public Set<String> getNonCriticalExtensionOIDs() {
+    return this.delegate.getNonCriticalExtensionOIDs();
+  }
+
+  @Override
+  public byte[] getExtensionValue(String oid) {
+    return this.delegate.getExtensionValue(oid);
+  }
+
+  @Override
+  public void checkValidity() throws CertificateExpiredException, CertificateNotYetValidException {
+    this.delegate.checkValidity();
+  }
+
+  @Override
+  public void checkValidity(Date date) throws CertificateExpiredException, CertificateNotYetValidException {
+    this.delegate.checkValidity(date);
+  }
+
+  @Override
+  public int getVersion() {
+    return this.delegate.getVersion();
+  }
+
+  @Override
+  public BigInteger getSerialNumber() {
+    return this.delegate.getSerialNumber();
+  }
+
+  @Override
+  public Principal getIssuerDN() {
+    return this.delegate.getIssuerDN();
+  }
+
+  @Override
+  public Principal getSubjectDN() {
+    return this.delegate.getSubjectDN();
+  }
+
+  @Override
+  public Date getNotBefore() {
+    return this.delegate.getNotBefore();
+  }
+
+  @Override
+  public Date getNotAfter() {
+    return this.delegate.getNotAfter();
+  }
+
+  @Override
+  public byte[] getTBSCertificate() throws CertificateEncodingException {
+    return this.delegate.getTBSCertificate();
+  }
+
+  @Override
+  public byte[] getSignature() {
+    return this.delegate.getSignature();
+  }
+
+  @Override
+  public String getSigAlgName() {
+    return this.delegate.getSigAlgName();
+  }
+
+  @Override
+  public String getSigAlgOID() {
+    return this.delegate.getSigAlgOID();
+  }
+
+  @Override
+  public byte[] getSigAlgParams() {
+    return this.delegate.getSigAlgParams();
+  }
+
+  @Override
+  public boolean[] getIssuerUniqueID() {
+    return this.delegate.getIssuerUniqueID();
+  }
+
+  @Override
+  public boolean[] getSubjectUniqueID() {
+    return this.delegate.getSubjectUniqueID();
+  }
+
+  @Override
+  public boolean[] getKeyUsage() {
+    return this.delegate.getKeyUsage();
+  }
+
+  @Override
+  public int getBasicConstraints() {
+    return this.delegate.getBasicConstraints();
+  }
+
+  @Override
+  public byte[] getEncoded() throws CertificateEncodingException {
+    return this.delegate.getEncoded();
+  }
+
+  @Override
+  public void verify(PublicKey key) throws CertificateException, NoSuchAlgorithmException, InvalidKeyException, NoSuchProviderException, SignatureException {
+    this.delegate.verify(key);
+  }
+
+  @Override
+  public void verify(PublicKey key, String sigProvider) throws CertificateException, NoSuchAlgorithmException, InvalidKeyException, NoSuchProviderException, SignatureException {
+    this.delegate.verify(key, sigProvider);
+  }
+
+  @Override
+  public String toString() {
+    return this.delegate.toString();
+  }
+
+  @Override
+  public PublicKey getPublicKey() {
+    return this.delegate.getPublicKey();
+  }
+
+}
@@ -0,0 +1,115 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class HappyEyeballsTests {
+
+  private static final InetAddress IPV4_LOOPBACK = address("127.0.0.1");
+
+  private static final InetAddress IPV6_LOOPBACK = address("::1");
+
+  private static InetAddress address(String literal) {
+    try {
+      return InetAddress.getByName(literal);
+    } catch (UnknownHostException e) {
+      throw new AssertionError("literal not parsed", e);
+    }
+  }
+
+  @Test
+  void interleave() {
+    InetAddress a4 = address("192.0.2.1");
+    InetAddress b4 = address("192.0.2.2");
+    InetAddress c4 = address("192.0.2.3");
+    InetAddress a6 = address("2001:db8::1");
+    InetAddress b6 = address("2001:db8::2");
+
+    assertArrayEquals(new InetAddress[] {a6, a4, b6, b4, c4}, HappyEyeballs.interleave(new InetAddress[] {a6, b6, a4, b4, c4}));
+    assertArrayEquals(new InetAddress[] {a4, a6, b4, b6, c4}, HappyEyeballs.interleave(new InetAddress[] {a4, b4, c4, a6, b6}));
+    assertArrayEquals(new InetAddress[] {a4, b4}, HappyEyeballs.interleave(new InetAddress[] {a4, b4}));
+  }
+
+  @Test
+  void sameFamily() {
+    InetAddress a4 = address("192.0.2.1");
+    InetAddress b4 = address("192.0.2.2");
+    InetAddress a6 = address("2001:db8::1");
+    InetAddress[] addresses = {a6, a4, b4};
+
+    assertArrayEquals(new InetAddress[] {a4, b4}, HappyEyeballs.sameFamily(addresses, IPV4_LOOPBACK));
+    assertArrayEquals(new InetAddress[] {a6}, HappyEyeballs.sameFamily(addresses, IPV6_LOOPBACK));
+    assertArrayEquals(addresses, HappyEyeballs.sameFamily(addresses, address("0.0.0.0")));
+    assertArrayEquals(new InetAddress[] {a4}, HappyEyeballs.sameFamily(new InetAddress[] {a4}, IPV6_LOOPBACK));
+  }
+
+  @Test
+  void fixedLocalPort() throws Exception {
+    int localPort;
+    try (var serverSocket = new ServerSocket(0, 16, IPV4_LOOPBACK)) {
+      localPort = serverSocket.getLocalPort();
+    }
+    try (var serverSocket = new ServerSocket(0, 16, IPV4_LOOPBACK);
+         var blackHole = new BlackHole(address("127.0.0.2"), serverSocket.getLocalPort())) {
+      assumeTrue(blackHole.isFull(), "connection attempts do not hang when the backlog is full");
+      // a pending attempt holding the local port must not make the others fail to bind
+      try (SocketChannel channel = HappyEyeballs.connect(new InetAddress[] {blackHole.getAddress(), IPV4_LOOPBACK},
+              serverSocket.getLocalPort(), new InetSocketAddress(IPV4_LOOPBACK, localPort), 100, 10_000)) {
+        assertEquals(IPV4_LOOPBACK, channel.socket().getInetAddress());
+        assertEquals(localPort, channel.socket().getLocalPort());
+      }
+    }
+  }
+
+  @Test
+  void firstFails() throws Exception {
+    try (var serverSocket = new ServerSocket(0, 16, IPV4_LOOPBACK)) {
+      long start = System.nanoTime();
+      // nothing listens on ::1, without IPv6 the attempt fails as well
+      try (SocketChannel channel = HappyEyeballs.connect(new InetAddress[] {IPV6_LOOPBACK, IPV4_LOOPBACK},
+              serverSocket.getLocalPort(), null, 10_000, 0)) {
+        // the next attempt is started when the first fails, not after the delay
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5L), "waited for the attempt delay");
+        assertTrue(channel.isBlocking());
+        assertEquals(IPV4_LOOPBACK, channel.socket().getInetAddress());
+      }
+    }
+  }
+
+  @Test
+  void allFail() throws Exception {
+    int port;
+    try (var serverSocket = new ServerSocket(0, 16, IPV4_LOOPBACK)) {
+      port = serverSocket.getLocalPort();
+    }
+    ConnectException exception = assertThrows(ConnectException.class,
+        () -> HappyEyeballs.connect(new InetAddress[] {IPV4_LOOPBACK, address("127.0.0.2")}, port, null, 10_000, 0));
+    assertEquals(1, exception.getSuppressed().length);
+  }
+
+  @Test
+  void timeout() throws Exception {
+    try (var blackHole = new BlackHole(IPV4_LOOPBACK, 0)) {
+      assumeTrue(blackHole.isFull(), "connection attempts do not hang when the backlog is full");
+      long start = System.nanoTime();
+      assertThrows(SocketTimeoutException.class, () -> HappyEyeballs.connect(
+          new InetAddress[] {blackHole.getAddress(), blackHole.getAddress()}, blackHole.getPort(), null, 50, 300));
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5L), "connect not bounded");
+    }
+  }
+
+}
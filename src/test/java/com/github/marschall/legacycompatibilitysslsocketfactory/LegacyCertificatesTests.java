@@ -0,0 +1,91 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class LegacyCertificatesTests {
+
+  private static X509Certificate root;
+
+  private static X509Certificate intermediate;
+
+  private static List<X509Certificate> leaves;
+
+  @BeforeAll
+  static void generateCertificates() throws GeneralSecurityException {
+    KeyPair rootKeyPair = TestCertificates.generateKeyPair("EC");
+    root = TestCertificates.selfSigned("CN=Test Root", rootKeyPair);
+    KeyPair intermediateKeyPair = TestCertificates.generateKeyPair("EC");
+    intermediate = TestCertificates.issueCa("CN=Test Intermediate", intermediateKeyPair.getPublic(), root, rootKeyPair.getPrivate());
+    KeyPair leafKeyPair = TestCertificates.generateKeyPair("EC");
+    leaves = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      String host = "host" + i;
+      leaves.add(TestCertificates.issueLeaf("CN=" + host, leafKeyPair.getPublic(), List.of(host), intermediate, intermediateKeyPair.getPrivate()));
+    }
+  }
+
+  private static List<Certificate[]> chains(int count) {
+    List<Certificate[]> chains = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      // equal but not identical intermediates and roots are shared as well
+      X509Certificate chainIntermediate = i % 2 == 0 ? intermediate : new ForwardingX509Certificate(intermediate);
+      chains.add(new Certificate[] {leaves.get(i % leaves.size()), chainIntermediate, root});
+    }
+    return chains;
+  }
+
+  @Test
+  void adaptChains() throws Exception {
+    List<Certificate[]> chains = chains(8);
+    List<javax.security.cert.X509Certificate[]> adaptedChains = LegacyCertificates.adaptChains(chains);
+    assertAdapted(chains, adaptedChains);
+
+    assertThrows(UnsupportedOperationException.class, () -> adaptedChains.set(0, null));
+    assertEquals(List.of(), LegacyCertificates.adaptChains(List.of()));
+    assertThrows(NullPointerException.class, () -> LegacyCertificates.adaptChains(List.<Certificate[]>of(new Certificate[] {root, null})));
+  }
+
+  @Test
+  void adaptChainsInParallel() throws Exception {
+    List<Certificate[]> chains = chains(2_000);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      assertAdapted(chains, LegacyCertificates.adaptChains(chains, pool));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static void assertAdapted(List<Certificate[]> chains, List<javax.security.cert.X509Certificate[]> adaptedChains) throws Exception {
+    assertEquals(chains.size(), adaptedChains.size());
+    for (int i = 0; i < chains.size(); i++) {
+      Certificate[] chain = chains.get(i);
+      javax.security.cert.X509Certificate[] adaptedChain = adaptedChains.get(i);
+      assertEquals(chain.length, adaptedChain.length);
+      for (int j = 0; j < chain.length; j++) {
+        assertArrayEquals(chain[j].getEncoded(), adaptedChain[j].getEncoded());
+      }
+      // every distinct certificate is adapted once
+      assertSame(adaptedChains.get(i % leaves.size())[0], adaptedChain[0]);
+      assertSame(adaptedChains.get(0)[1], adaptedChain[1]);
+      assertSame(adaptedChains.get(0)[2], adaptedChain[2]);
+    }
+    assertNotSame(adaptedChains.get(0)[0], adaptedChains.get(1)[0]);
+  }
+
+}
@@ -0,0 +1,89 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.security.GeneralSecurityException;
+import java.util.Enumeration;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpsServer;
+
+class LegacyCompatibilitySSLContextTests {
+
+  private static TestPki pki;
+
+  @BeforeAll
+  static void generatePki() throws GeneralSecurityException {
+    pki = TestPki.create("EC");
+  }
+
+  @Test
+  void httpClient() throws GeneralSecurityException, IOException, InterruptedException {
+    HttpsServer server = LegacyCompatibilitySSLSocketFactoryTests.startHttpsServer(pki.newServerContext());
+    try {
+      SSLContext sslContext = new LegacyCompatibilitySSLContext(pki.newClientContext());
+      HttpClient httpClient = HttpClient.newBuilder()
+              .sslContext(sslContext)
+              .build();
+      HttpRequest request = HttpRequest.newBuilder(URI.create("https://localhost:" + server.getAddress().getPort() + "/")).build();
+      HttpResponse<String> response = httpClient.send(request, BodyHandlers.ofString());
+
+      assertEquals(200, response.statusCode());
+      assertEquals("Hello World", response.body());
+      assertTrue(response.sslSession().isPresent());
+      // HttpResponse#sslSession() is an immutable copy that does not delegate #getPeerCertificateChain()
+      assertSessionContextAdapted(sslContext.getClientSessionContext());
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  void factories() throws GeneralSecurityException {
+    SSLContext sslContext = new LegacyCompatibilitySSLContext(pki.newClientContext());
+    assertSame(LegacyCompatibilitySSLSocketFactory.class, sslContext.getSocketFactory().getClass());
+    assertSame(LegacyCompatibilitySSLServerSocketFactory.class, sslContext.getServerSocketFactory().getClass());
+    assertSame(LegacyCompatibilitySSLEngine.class, sslContext.createSSLEngine().getClass());
+    assertSame(LegacyCompatibilitySSLEngine.class, sslContext.createSSLEngine("localhost", 443).getClass());
+    assertEquals("TLS", sslContext.getProtocol());
+    assertNotNull(sslContext.getDefaultSSLParameters());
+    assertNotNull(sslContext.getSupportedSSLParameters());
+  }
+
+  @Test
+  void clientSessionContext() throws GeneralSecurityException, IOException {
+    SSLContext sslContext = new LegacyCompatibilitySSLContext(pki.newClientContext());
+    try (var server = new LoopbackTlsServer(pki.newServerContext());
+         var sslSocket = (SSLSocket) sslContext.getSocketFactory().createSocket(server.getAddress(), server.getPort())) {
+      sslSocket.startHandshake();
+    }
+
+    assertSessionContextAdapted(sslContext.getClientSessionContext());
+  }
+
+  private static void assertSessionContextAdapted(SSLSessionContext sessionContext) throws SSLPeerUnverifiedException {
+    Enumeration<byte[]> ids = sessionContext.getIds();
+    assertTrue(ids.hasMoreElements());
+    SSLSession sslSession = sessionContext.getSession(ids.nextElement());
+    assertSame(LegacyCompatibilityExtendedSSLSession.class, sslSession.getClass());
+    assertEquals(pki.getChain().length, sslSession.getPeerCertificateChain().length);
+  }
+
+}
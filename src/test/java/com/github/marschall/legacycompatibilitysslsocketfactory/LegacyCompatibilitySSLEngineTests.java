@@ -0,0 +1,85 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLSession;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class LegacyCompatibilitySSLEngineTests {
+
+  private static TestPki pki;
+
+  @BeforeAll
+  static void generatePki() throws GeneralSecurityException {
+    pki = TestPki.create("EC");
+  }
+
+  private static SSLEngine newClientEngine() throws GeneralSecurityException {
+    SSLEngine clientEngine = pki.newClientContext().createSSLEngine("localhost", 443);
+    clientEngine.setUseClientMode(true);
+    return new LegacyCompatibilitySSLEngine(clientEngine);
+  }
+
+  private static SSLEngine newServerEngine() throws GeneralSecurityException {
+    SSLEngine serverEngine = pki.newServerContext().createSSLEngine();
+    serverEngine.setUseClientMode(false);
+    return serverEngine;
+  }
+
+  @Test
+  void getSession() throws Exception {
+    SSLEngine client = newClientEngine();
+    SSLEngine server = newServerEngine();
+    TestSSLEngines.handshake(client, server);
+
+    SSLSession session = client.getSession();
+    assertSame(LegacyCompatibilityExtendedSSLSession.class, session.getClass());
+    assertSame(session, client.getSession());
+    assertNull(client.getHandshakeSession());
+
+    javax.security.cert.X509Certificate[] peerCertificateChain = session.getPeerCertificateChain();
+    java.security.cert.X509Certificate[] expectedChain = pki.getChain();
+    assertEquals(expectedChain.length, peerCertificateChain.length);
+    for (int i = 0; i < expectedChain.length; i++) {
+      assertArrayEquals(expectedChain[i].getEncoded(), peerCertificateChain[i].getEncoded());
+    }
+    assertEquals("localhost", client.getPeerHost());
+    assertEquals(443, client.getPeerPort());
+  }
+
+  @Test
+  void wrapAndUnwrap() throws Exception {
+    SSLEngine client = newClientEngine();
+    SSLEngine server = newServerEngine();
+    TestSSLEngines.handshake(client, server);
+
+    byte[] message = "Hello World".getBytes(StandardCharsets.US_ASCII);
+    ByteBuffer network = ByteBuffer.allocateDirect(client.getSession().getPacketBufferSize());
+    SSLEngineResult wrapResult = client.wrap(new ByteBuffer[] {ByteBuffer.wrap(message)}, 0, 1, network);
+    assertEquals(SSLEngineResult.Status.OK, wrapResult.getStatus());
+    assertEquals(message.length, wrapResult.bytesConsumed());
+
+    network.flip();
+    ByteBuffer application = ByteBuffer.allocate(server.getSession().getApplicationBufferSize());
+    // server may first have to consume post handshake messages
+    while (network.hasRemaining()) {
+      server.unwrap(network, application);
+    }
+    application.flip();
+    byte[] received = new byte[application.remaining()];
+    application.get(received);
+    assertArrayEquals(message, received);
+  }
+
+}
@@ -0,0 +1,74 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.security.cert.X509Certificate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class LegacyCompatibilitySSLServerSocketFactoryTests {
+
+  @ParameterizedTest
+  @ValueSource(strings = {"RSA", "EC"})
+  void mutualTls(String keyAlgorithm) throws Exception {
+    TestPki pki = TestPki.create(keyAlgorithm);
+    SSLServerSocketFactory serverSocketFactory = new LegacyCompatibilitySSLServerSocketFactory(pki.newServerContext().getServerSocketFactory());
+    SSLSocketFactory clientSocketFactory = pki.newClientAuthContext().getSocketFactory();
+    try (var serverSocket = (SSLServerSocket) serverSocketFactory.createServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      serverSocket.setNeedClientAuth(true);
+      CompletableFuture<Void> client = CompletableFuture.runAsync(() -> {
+        try (var socket = (SSLSocket) clientSocketFactory.createSocket(serverSocket.getInetAddress(), serverSocket.getLocalPort())) {
+          socket.startHandshake();
+          socket.getOutputStream().write(1);
+          socket.getInputStream().read();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+
+      try (var socket = (SSLSocket) serverSocket.accept()) {
+        assertSame(LegacyCompatibilitySSLSocket.class, socket.getClass());
+        assertEquals(1, socket.getInputStream().read());
+        SSLSession sslSession = socket.getSession();
+        assertSame(sslSession, socket.getSession());
+        X509Certificate[] peerCertificateChain = sslSession.getPeerCertificateChain();
+        java.security.cert.X509Certificate[] expectedChain = pki.getChain();
+        assertEquals(expectedChain.length, peerCertificateChain.length);
+        for (int i = 0; i < expectedChain.length; i++) {
+          assertArrayEquals(expectedChain[i].getEncoded(), peerCertificateChain[i].getEncoded());
+        }
+        socket.getOutputStream().write(1);
+      }
+      client.get(1L, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  void load() throws GeneralSecurityException, IOException, InterruptedException {
+    TestPki pki = TestPki.create("EC");
+    SSLServerSocketFactory serverSocketFactory = new LegacyCompatibilitySSLServerSocketFactory(pki.newServerContext().getServerSocketFactory());
+    try (var server = new LoopbackTlsServer(serverSocketFactory)) {
+      LoadGenerator.Result result = LoadGenerator.run(pki.newClientContext().getSocketFactory(), server.getAddress(), server.getPort(), 4, 10, 1024);
+      assertEquals(40, result.connections());
+      assertEquals(0, result.failures());
+      assertEquals(40L * 2L * 1024L, result.bytesTransferred());
+    }
+  }
+
+}
@@ -0,0 +1,99 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class LegacyCompatibilitySSLSessionTests {
+
+  private static X509Certificate root;
+
+  private static X509Certificate leaf;
+
+  @BeforeAll
+  static void generateCertificates() throws GeneralSecurityException {
+    KeyPair rootKeyPair = TestCertificates.generateKeyPair("EC");
+    root = TestCertificates.selfSigned("CN=Test Root", rootKeyPair);
+    KeyPair leafKeyPair = TestCertificates.generateKeyPair("EC");
+    leaf = TestCertificates.issueLeaf("CN=localhost", leafKeyPair.getPublic(), List.of("localhost"), root, rootKeyPair.getPrivate());
+  }
+
+  static Stream<Function<StubSSLSession, SSLSession>> sessionAdapters() {
+    return Stream.of(
+            session -> new LegacyCompatibilitySSLSession(session, new CertificateAdapterCache(0)),
+            session -> new LegacyCompatibilityExtendedSSLSession(session, new CertificateAdapterCache(0)));
+  }
+
+  @ParameterizedTest
+  @MethodSource("sessionAdapters")
+  void peerCertificateChainIsReused(Function<StubSSLSession, SSLSession> sessionAdapter) throws SSLPeerUnverifiedException {
+    SSLSession session = sessionAdapter.apply(new StubSSLSession(leaf, root));
+
+    javax.security.cert.X509Certificate[] peerCertificateChain = session.getPeerCertificateChain();
+    assertEquals(2, peerCertificateChain.length);
+    assertEquals(leaf.getSubjectX500Principal().getName(), peerCertificateChain[0].getSubjectDN().getName());
+    assertEquals(root.getSubjectX500Principal().getName(), peerCertificateChain[1].getSubjectDN().getName());
+
+    assertSame(peerCertificateChain, session.getPeerCertificateChain());
+  }
+
+  @ParameterizedTest
+  @MethodSource("sessionAdapters")
+  void peerCertificateChainSameAcrossThreads(Function<StubSSLSession, SSLSession> sessionAdapter) throws InterruptedException {
+    SSLSession session = sessionAdapter.apply(new StubSSLSession(leaf, root));
+    int threadCount = 8;
+    Object[] results = new Object[threadCount];
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      int index = i;
+      threads[i] = new Thread(() -> {
+        try {
+          results[index] = session.getPeerCertificateChain();
+        } catch (SSLPeerUnverifiedException e) {
+          results[index] = e;
+        }
+      });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (Object result : results) {
+      assertSame(results[0], result);
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("sessionAdapters")
+  void unverifiedPeer(Function<StubSSLSession, SSLSession> sessionAdapter) {
+    SSLSession session = sessionAdapter.apply(new StubSSLSession());
+    assertThrows(SSLPeerUnverifiedException.class, session::getPeerCertificateChain);
+  }
+
+  @ParameterizedTest
+  @MethodSource("sessionAdapters")
+  void peerCertificateChainEncoding(Function<StubSSLSession, SSLSession> sessionAdapter) throws Exception {
+    SSLSession session = sessionAdapter.apply(new StubSSLSession(leaf, root));
+    javax.security.cert.X509Certificate[] peerCertificateChain = session.getPeerCertificateChain();
+    assertArrayEquals(leaf.getEncoded(), peerCertificateChain[0].getEncoded());
+    assertArrayEquals(root.getEncoded(), peerCertificateChain[1].getEncoded());
+  }
+
+}
@@ -1,58 +1,184 @@
 package com.github.marschall.legacycompatibilitysslsocketfactory;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.net.ssl.HandshakeCompletedEvent;
 import javax.net.ssl.HandshakeCompletedListener;
 import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import javax.security.cert.X509Certificate;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 class LegacyCompatibilitySSLSocketFactoryTests {
 
+  private static final byte[] RESPONSE = "Hello World".getBytes(StandardCharsets.US_ASCII);
+
+  @Test
+  void urlConnection() throws IOException, GeneralSecurityException {
+    TestPki pki = TestPki.create("EC");
+    HttpsServer server = startHttpsServer(pki.newServerContext());
+    try {
+      URL url = new URL("https://localhost:" + server.getAddress().getPort() + "/");
+      HttpsURLConnection urlConnection = (HttpsURLConnection) url.openConnection();
+      SSLSocketFactory socketFactory = new LegacyCompatibilitySSLSocketFactory(pki.newClientContext().getSocketFactory());
+      urlConnection.setSSLSocketFactory(socketFactory);
+      urlConnection.connect();
+      try (InputStream inputStream = urlConnection.getInputStream()) {
+        Optional<SSLSession> maybeSslSession = urlConnection.getSSLSession();
+        assertTrue(maybeSslSession.isPresent());
+        SSLSession sslSession = maybeSslSession.get();
+        assertSame(LegacyCompatibilityExtendedSSLSession.class, sslSession.getClass(), "SSLSession class");
+        X509Certificate[] peerCertificateChain = sslSession.getPeerCertificateChain();
+        assertNotNull(peerCertificateChain);
+        assertTrue(peerCertificateChain.length > 0);
+
+        byte[] allBytes = inputStream.readAllBytes();
+        assertArrayEquals(RESPONSE, allBytes);
+      }
+    } finally {
+      server.stop(0);
+    }
+  }
+
   @Test
-  void urlConnection() throws IOException {
-    URL badssl = new URL("https://badssl.com");
-    HttpsURLConnection urlConnection = (HttpsURLConnection) badssl.openConnection();
-    SSLSocketFactory socketFactory = new LegacyCompatibilitySSLSocketFactory();
+  void keepAlive() throws IOException, GeneralSecurityException {
+    TestPki pki = TestPki.create("EC");
+    HttpsServer server = startHttpsServer(pki.newServerContext());
+    try {
+      URL url = new URL("https://localhost:" + server.getAddress().getPort() + "/");
+      CountingSSLSocketFactory delegate = new CountingSSLSocketFactory(pki.newClientContext().getSocketFactory());
+
+      SSLSession firstSession = request(url, LegacyCompatibilitySSLSocketFactory.forDelegate(delegate));
+      SSLSession secondSession = request(url, LegacyCompatibilitySSLSocketFactory.forDelegate(delegate));
+      // the second request reused the connection and therefore the LegacyCompatibilitySSLSocket
+      assertEquals(1, delegate.socketsCreated.get());
+      assertSame(firstSession, secondSession);
+
+      // a new factory for every connection defeats the keep-alive cache
+      request(url, new LegacyCompatibilitySSLSocketFactory(delegate));
+      assertEquals(2, delegate.socketsCreated.get());
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  private static SSLSession request(URL url, SSLSocketFactory socketFactory) throws IOException {
+    HttpsURLConnection urlConnection = (HttpsURLConnection) url.openConnection();
     urlConnection.setSSLSocketFactory(socketFactory);
-    urlConnection.connect();
+    // the response has to be read completely for the connection to be reused
     try (InputStream inputStream = urlConnection.getInputStream()) {
-      Optional<SSLSession> maybeSslSession = urlConnection.getSSLSession();
-      assertTrue(maybeSslSession.isPresent());
-      SSLSession sslSession = maybeSslSession.get();
-      assertSame(LegacyCompatibilityExtendedSSLSession.class, sslSession.getClass(), "SSLSession class");
-      X509Certificate[] peerCertificateChain = sslSession.getPeerCertificateChain();
-      assertNotNull(peerCertificateChain);
-      assertTrue(peerCertificateChain.length > 0);
-
-      byte[] allBytes = inputStream.readAllBytes();
-      assertNotNull(allBytes);
-      assertTrue(allBytes.length > 0);
+      assertArrayEquals(RESPONSE, inputStream.readAllBytes());
+      return urlConnection.getSSLSession().orElseThrow();
     }
   }
 
   @Test
-  void createSocket() throws Exception {
-    SSLSocketFactory socketFactory = new LegacyCompatibilitySSLSocketFactory();
+  void forDelegate() {
+    SSLSocketFactory delegate = (SSLSocketFactory) SSLSocketFactory.getDefault();
+    LegacyCompatibilitySSLSocketFactory factory = LegacyCompatibilitySSLSocketFactory.forDelegate(delegate);
+    assertSame(factory, LegacyCompatibilitySSLSocketFactory.forDelegate(delegate));
+    assertSame(factory, LegacyCompatibilitySSLSocketFactory.forDelegate(factory));
+    assertThrows(NullPointerException.class, () -> LegacyCompatibilitySSLSocketFactory.forDelegate(null));
+  }
+
+  @Test
+  void forDelegateComparesIdentity() {
+    SSLSocketFactory first = new AllEqualSSLSocketFactory((SSLSocketFactory) SSLSocketFactory.getDefault());
+    SSLSocketFactory second = new AllEqualSSLSocketFactory((SSLSocketFactory) SSLSocketFactory.getDefault());
+    assertEquals(first, second);
+    LegacyCompatibilitySSLSocketFactory factory = LegacyCompatibilitySSLSocketFactory.forDelegate(first);
+    assertNotSame(factory, LegacyCompatibilitySSLSocketFactory.forDelegate(second));
+    assertSame(factory, LegacyCompatibilitySSLSocketFactory.forDelegate(first));
+  }
+
+  @Test
+  void installHttpsURLConnectionDefault() {
+    SSLSocketFactory previousDefault = HttpsURLConnection.getDefaultSSLSocketFactory();
+    try {
+      LegacyCompatibilitySSLSocketFactory installed = LegacyCompatibilitySSLSocketFactory.installHttpsURLConnectionDefault();
+      assertSame(installed, HttpsURLConnection.getDefaultSSLSocketFactory());
+      assertSame(installed, LegacyCompatibilitySSLSocketFactory.forDelegate(previousDefault));
+      // installing again does not wrap twice
+      assertSame(installed, LegacyCompatibilitySSLSocketFactory.installHttpsURLConnectionDefault());
+    } finally {
+      HttpsURLConnection.setDefaultSSLSocketFactory(previousDefault);
+    }
+  }
+
+  static HttpsServer startHttpsServer(SSLContext serverContext) throws IOException {
+    HttpsServer server = HttpsServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.setHttpsConfigurator(new HttpsConfigurator(serverContext));
+    server.createContext("/", exchange -> {
+      try (exchange) {
+        exchange.getRequestBody().readAllBytes();
+        exchange.sendResponseHeaders(200, RESPONSE.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+          responseBody.write(RESPONSE);
+        }
+      }
+    });
+    server.start();
+    return server;
+  }
+
+  @ParameterizedTest
+  @CsvSource({
+    "RSA, 0",
+    "RSA, 2",
+    "EC, 0",
+    "EC, 2"})
+  void createSocket(String keyAlgorithm, int intermediateCount) throws Exception {
+    TestPki pki = TestPki.create(keyAlgorithm, intermediateCount);
+    SSLSocketFactory socketFactory = new LegacyCompatibilitySSLSocketFactory(pki.newClientContext().getSocketFactory());
     EventHolder eventHolder = new EventHolder();
-    try (var sslSocket = (SSLSocket) socketFactory.createSocket("badssl.com", 443)) {
+    try (var server = new LoopbackTlsServer(pki.newServerContext());
+         var sslSocket = (SSLSocket) socketFactory.createSocket(server.getAddress(), server.getPort())) {
       HandshakeCompletedListener listener = eventHolder::set;
       sslSocket.addHandshakeCompletedListener(listener);
       sslSocket.startHandshake();
@@ -60,7 +186,11 @@ class LegacyCompatibilitySSLSocketFactoryTests {
       assertSame(sslSession, sslSocket.getSession());
       X509Certificate[] peerCertificateChain = sslSession.getPeerCertificateChain();
       assertNotNull(peerCertificateChain);
-      assertTrue(peerCertificateChain.length > 0);
+      assertEquals(intermediateCount + 1, peerCertificateChain.length);
+      java.security.cert.X509Certificate[] expectedChain = pki.getChain();
+      for (int i = 0; i < expectedChain.length; i++) {
+        assertArrayEquals(expectedChain[i].getEncoded(), peerCertificateChain[i].getEncoded());
+      }
 
       HandshakeCompletedEvent event = eventHolder.get();
       assertNotNull(event);
@@ -72,6 +202,382 @@ class LegacyCompatibilitySSLSocketFactoryTests {
     }
   }
 
+  @Test
+  void handshakeCompletedListenerExecutor() throws Exception {
+    TestPki pki = TestPki.create("EC");
+    AtomicInteger executed = new AtomicInteger();
+    Executor executor = command -> {
+      executed.incrementAndGet();
+      command.run();
+    };
+    SSLSocketFactory socketFactory = new LegacyCompatibilitySSLSocketFactory(pki.newClientContext().getSocketFactory(),
+            CertificateAdapterCache.getDefault(), executor);
+    EventHolder first = new EventHolder();
+    EventHolder second = new EventHolder();
+    try (var server = new LoopbackTlsServer(pki.newServerContext());
+         var sslSocket = (SSLSocket) socketFactory.createSocket(server.getAddress(), server.getPort())) {
+      HandshakeCompletedListener firstListener = first::set;
+      HandshakeCompletedListener secondListener = second::set;
+      HandshakeCompletedListener removedListener = event -> fail("removed listener notified");
+      sslSocket.addHandshakeCompletedListener(firstListener);
+      // registering twice has no effect
+      sslSocket.addHandshakeCompletedListener(firstListener);
+      sslSocket.addHandshakeCompletedListener(removedListener);
+      sslSocket.addHandshakeCompletedListener(secondListener);
+      sslSocket.removeHandshakeCompletedListener(removedListener);
+      assertThrows(IllegalArgumentException.class, () -> sslSocket.removeHandshakeCompletedListener(removedListener));
+      sslSocket.startHandshake();
+
+      HandshakeCompletedEvent event = first.get();
+      assertSame(event, second.get());
+      assertSame(sslSocket, event.getSocket());
+      assertSame(sslSocket.getSession(), event.getSession());
+      assertEquals(2, executed.get());
+    }
+  }
+
+  @Test
+  void metrics() throws Exception {
+    TestPki pki = TestPki.create("EC", 1);
+    CountingMetrics metrics = new CountingMetrics();
+    SSLSocketFactory socketFactory = LegacyCompatibilitySSLSocketFactory.builder(pki.newClientContext().getSocketFactory())
+            .metrics(metrics)
+            .build();
+    try (var server = new LoopbackTlsServer(pki.newServerContext());
+         var sslSocket = (SSLSocket) socketFactory.createSocket(server.getAddress(), server.getPort())) {
+      assertEquals(1, metrics.socketsCreated.get());
+      sslSocket.startHandshake();
+      assertEquals(1, metrics.handshakesCompleted.get());
+      SSLSession sslSession = sslSocket.getSession();
+      sslSession.getPeerCertificateChain();
+      sslSession.getPeerCertificateChain();
+      assertEquals(2, metrics.chainsRequested.get());
+      assertEquals(1, metrics.chainsCached.get());
+      assertEquals(4, metrics.certificatesReturned.get());
+    }
+  }
+
+  @Test
+  void wrappingPolicy() throws Exception {
+    TestPki pki = TestPki.create("EC");
+    CountingMetrics metrics = new CountingMetrics();
+    try (var server = new LoopbackTlsServer(pki.newServerContext())) {
+      SSLSocketFactory socketFactory = LegacyCompatibilitySSLSocketFactory.builder(pki.newClientContext().getSocketFactory())
+              .wrappingPolicy(WrappingPolicy.matching("localhost:" + server.getPort()))
+              .metrics(metrics)
+              .build();
+      try (Socket socket = socketFactory.createSocket("localhost", server.getPort())) {
+        assertSame(LegacyCompatibilitySSLSocket.class, socket.getClass());
+      }
+      // the literal address does not match
+      InetAddress literal = InetAddress.getByAddress(server.getAddress().getAddress());
+      try (Socket socket = socketFactory.createSocket(literal, server.getPort())) {
+        assertFalse(socket instanceof LegacyCompatibilitySSLSocket);
+        assertTrue(socket instanceof SSLSocket);
+      }
+      // the destination of unconnected sockets is not known
+      try (Socket socket = socketFactory.createSocket()) {
+        assertSame(LegacyCompatibilitySSLSocket.class, socket.getClass());
+      }
+      assertEquals(2, metrics.socketsCreated.get());
+    }
+  }
+
+  @Test
+  void handshakeTimeout() throws Exception {
+    TestPki pki = TestPki.create("EC");
+    SSLSocketFactory socketFactory = LegacyCompatibilitySSLSocketFactory.builder(pki.newClientContext().getSocketFactory())
+            .connectTimeout(Duration.ofSeconds(5L))
+            .handshakeTimeout(Duration.ofMillis(200L))
+            .build();
+    try (var server = new SilentServer()) {
+      long start = System.nanoTime();
+      assertThrows(SocketTimeoutException.class, () -> socketFactory.createSocket("localhost", server.getPort()));
+      assertThrows(SocketTimeoutException.class, () -> socketFactory.createSocket(server.getAddress(), server.getPort()));
+      assertThrows(SocketTimeoutException.class,
+          () -> socketFactory.createSocket(server.getAddress(), server.getPort(), InetAddress.getLoopbackAddress(), 0));
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5L), "handshake not bounded");
+    }
+  }
+
+  @Test
+  void startHandshake() throws Exception {
+    TestPki pki = TestPki.create("EC");
+    CountingMetrics metrics = new CountingMetrics();
+    SSLSocketFactory socketFactory = LegacyCompatibilitySSLSocketFactory.builder(pki.newClientContext().getSocketFactory())
+            .connectTimeout(Duration.ofSeconds(5L))
+            .handshakeTimeout(Duration.ofSeconds(5L))
+            .metrics(metrics)
+            .build();
+    try (var server = new LoopbackTlsServer(pki.newServerContext())) {
+      try (SSLSocket socket = (SSLSocket) socketFactory.createSocket("localhost", server.getPort())) {
+        // the handshake is timed by the wrapped socket
+        assertEquals(1, metrics.handshakesCompleted.get());
+        assertEquals(0, socket.getSoTimeout());
+        assertEquals("localhost", socket.getSession().getPeerHost());
+        assertNotNull(socket.getSession().getPeerCertificateChain());
+        socket.getOutputStream().write(RESPONSE);
+        assertArrayEquals(RESPONSE, socket.getInputStream().readNBytes(RESPONSE.length));
+      }
+    }
+    try (var server = new SilentServer()) {
+      SSLSocketFactory lazyFactory = LegacyCompatibilitySSLSocketFactory.builder(pki.newClientContext().getSocketFactory())
+              .connectTimeout(Duration.ofSeconds(5L))
+              .build();
+      // the handshake starts on the first read or write
+      try (Socket socket = lazyFactory.createSocket("localhost", server.getPort())) {
+        assertTrue(socket.isConnected());
+      }
+    }
+  }
+
+  @Test
+  void connectTimeout() throws Exception {
+    TestPki pki = TestPki.create("EC");
+    SSLSocketFactory socketFactory = LegacyCompatibilitySSLSocketFactory.builder(pki.newClientContext().getSocketFactory())
+            .connectTimeout(Duration.ofMillis(200L))
+            .build();
+    try (var blackHole = new BlackHole(InetAddress.getLoopbackAddress(), 0)) {
+      assumeTrue(blackHole.isFull(), "connection attempts do not hang when the backlog is full");
+      long start = System.nanoTime();
+      assertThrows(SocketTimeoutException.class, () -> socketFactory.createSocket(blackHole.getAddress(), blackHole.getPort()));
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5L), "connect not bounded");
+    }
+  }
+
+  @Test
+  void connectionAttemptDelay() throws Exception {
+    TestPki pki = TestPki.create("EC");
+    InetAddress ipv4Loopback = InetAddress.getByAddress(new byte[] {127, 0, 0, 1});
+    try (var server = new LoopbackTlsServer(pki.newServerContext());
+         var blackHole = new BlackHole(InetAddress.getByAddress(new byte[] {127, 0, 0, 2}), server.getPort())) {
+      assumeTrue(blackHole.isFull(), "connection attempts do not hang when the backlog is full");
+      List<String> resolved = new ArrayList<>();
+      SSLSocketFactory socketFactory = LegacyCompatibilitySSLSocketFactory.builder(pki.newClientContext().getSocketFactory())
+              .hostResolver(host -> {
+                resolved.add(host);
+                // the first address does not answer
+                return new InetAddress[] {blackHole.getAddress(), ipv4Loopback};
+              })
+              .connectionAttemptDelay(Duration.ofMillis(100L))
+              .connectTimeout(Duration.ofSeconds(10L))
+              .startHandshake(true)
+              .build();
+      long start = System.nanoTime();
+      try (SSLSocket socket = (SSLSocket) socketFactory.createSocket("localhost", server.getPort())) {
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5L), "waited for the first address");
+        assertEquals(List.of("localhost"), resolved);
+        assertEquals(ipv4Loopback, socket.getInetAddress());
+        assertEquals("localhost", socket.getSession().getPeerHost());
+        assertNotNull(socket.getSession().getPeerCertificateChain());
+        socket.getOutputStream().write(RESPONSE);
+        assertArrayEquals(RESPONSE, socket.getInputStream().readNBytes(RESPONSE.length));
+      }
+    }
+  }
+
+  @Test
+  void connectionAttemptDelayWithLocalPort() throws Exception {
+    TestPki pki = TestPki.create("EC");
+    InetAddress ipv4Loopback = InetAddress.getByAddress(new byte[] {127, 0, 0, 1});
+    int localPort;
+    try (var serverSocket = new ServerSocket(0, 1, ipv4Loopback)) {
+      localPort = serverSocket.getLocalPort();
+    }
+    try (var server = new LoopbackTlsServer(pki.newServerContext());
+         var blackHole = new BlackHole(InetAddress.getByAddress(new byte[] {127, 0, 0, 2}), server.getPort())) {
+      assumeTrue(blackHole.isFull(), "connection attempts do not hang when the backlog is full");
+      SSLSocketFactory socketFactory = LegacyCompatibilitySSLSocketFactory.builder(pki.newClientContext().getSocketFactory())
+              // the IPv6 address can not be reached from an IPv4 local address, the second does not answer
+              .hostResolver(host -> new InetAddress[] {InetAddress.getByName("::1"), blackHole.getAddress(), ipv4Loopback})
+              .connectionAttemptDelay(Duration.ofMillis(100L))
+              .connectTimeout(Duration.ofSeconds(10L))
+              .startHandshake(true)
+              .build();
+      long start = System.nanoTime();
+      // concurrent attempts can not all bind the same local port
+      try (SSLSocket socket = (SSLSocket) socketFactory.createSocket("localhost", server.getPort(), ipv4Loopback, localPort)) {
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5L), "waited for the second address");
+        assertEquals(ipv4Loopback, socket.getInetAddress());
+        assertEquals(localPort, socket.getLocalPort());
+        socket.getOutputStream().write(RESPONSE);
+        assertArrayEquals(RESPONSE, socket.getInputStream().readNBytes(RESPONSE.length));
+      }
+    }
+  }
+
+  @Test
+  void invalidTimeouts() {
+    LegacyCompatibilitySSLSocketFactory.Builder builder = LegacyCompatibilitySSLSocketFactory.builder((SSLSocketFactory) SSLSocketFactory.getDefault());
+    assertThrows(IllegalArgumentException.class, () -> builder.connectTimeout(Duration.ofMillis(-1L)));
+    assertThrows(IllegalArgumentException.class, () -> builder.handshakeTimeout(Duration.ofMillis(-1L)));
+  }
+
+  @Test
+  void jfrEvents() throws Exception {
+    TestPki pki = TestPki.create("EC", 1);
+    SSLSocketFactory socketFactory = new LegacyCompatibilitySSLSocketFactory(pki.newClientContext().getSocketFactory());
+    Path recordingFile = Files.createTempFile("legacy-compatibility", ".jfr");
+    try {
+      try (var recording = new Recording()) {
+        recording.enable(SocketCreatedEvent.class);
+        recording.enable(HandshakeEvent.class);
+        recording.enable(PeerCertificateChainEvent.class);
+        recording.start();
+        try (var server = new LoopbackTlsServer(pki.newServerContext());
+             var sslSocket = (SSLSocket) socketFactory.createSocket(server.getAddress(), server.getPort())) {
+          sslSocket.startHandshake();
+          sslSocket.getSession().getPeerCertificateChain();
+        }
+        recording.stop();
+        recording.dump(recordingFile);
+      }
+      List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+      RecordedEvent socketCreated = findEvent(events, "SocketCreated");
+      assertNotNull(socketCreated.getString("address"));
+      RecordedEvent handshake = findEvent(events, "Handshake");
+      assertEquals("TLSv1.3", handshake.getString("protocol"));
+      assertTrue(handshake.getDuration().toNanos() > 0L);
+      RecordedEvent peerCertificateChain = findEvent(events, "PeerCertificateChain");
+      assertEquals(2, peerCertificateChain.getInt("chainLength"));
+      assertFalse(peerCertificateChain.getBoolean("cached"));
+    } finally {
+      Files.delete(recordingFile);
+    }
+  }
+
+  private static RecordedEvent findEvent(List<RecordedEvent> events, String simpleName) {
+    String name = "com.github.marschall.legacycompatibilitysslsocketfactory." + simpleName;
+    return events.stream()
+            .filter(event -> event.getEventType().getName().equals(name))
+            .findFirst()
+            .orElseThrow(() -> new AssertionError("no event " + name));
+  }
+
+  @Test
+  void load() throws GeneralSecurityException, IOException, InterruptedException {
+    TestPki pki = TestPki.create("EC");
+    SSLSocketFactory socketFactory = new LegacyCompatibilitySSLSocketFactory(pki.newClientContext().getSocketFactory());
+    try (var server = new LoopbackTlsServer(pki.newServerContext())) {
+      LoadGenerator.Result result = LoadGenerator.run(socketFactory, server.getAddress(), server.getPort(), 4, 10, 1024);
+      assertEquals(40, result.connections());
+      assertEquals(0, result.failures());
+      assertEquals(40L * 2L * 1024L, result.bytesTransferred());
+    }
+  }
+
+  static final class CountingMetrics implements LegacyCompatibilityMetrics {
+
+    final AtomicInteger socketsCreated = new AtomicInteger();
+    final AtomicInteger handshakesCompleted = new AtomicInteger();
+    final AtomicInteger chainsRequested = new AtomicInteger();
+    final AtomicInteger chainsCached = new AtomicInteger();
+    final AtomicInteger certificatesReturned = new AtomicInteger();
+
+    @Override
+    public void socketCreated() {
+      this.socketsCreated.incrementAndGet();
+    }
+
+    @Override
+    public void handshakeCompleted(long durationNanos) {
+      assertTrue(durationNanos > 0L);
+      this.handshakesCompleted.incrementAndGet();
+    }
+
+    @Override
+    public void peerCertificateChainRequested(int chainLength, boolean cached, long durationNanos) {
+      this.chainsRequested.incrementAndGet();
+      if (cached) {
+        this.chainsCached.incrementAndGet();
+      }
+      this.certificatesReturned.addAndGet(chainLength);
+    }
+
+  }
+
+  /**
+   * A {@link SSLSocketFactory} that is equal to all other instances of its class.
+   */
+  static final class AllEqualSSLSocketFactory extends CountingSSLSocketFactory {
+
+    AllEqualSSLSocketFactory(SSLSocketFactory delegate) {
+      super(delegate);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof AllEqualSSLSocketFactory;
+    }
+
+    @Override
+    public int hashCode() {
+      return AllEqualSSLSocketFactory.class.hashCode();
+    }
+
+  }
+
+  /**
+   * Counts the sockets created by a {@link SSLSocketFactory}.
+   */
+  static class CountingSSLSocketFactory extends SSLSocketFactory {
+
+    final AtomicInteger socketsCreated = new AtomicInteger();
+
+    private final SSLSocketFactory delegate;
+
+    CountingSSLSocketFactory(SSLSocketFactory delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+      return this.delegate.getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+      return this.delegate.getSupportedCipherSuites();
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+      this.socketsCreated.incrementAndGet();
+      return this.delegate.createSocket();
+    }
+
+    @Override
+    public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+      this.socketsCreated.incrementAndGet();
+      return this.delegate.createSocket(s, host, port, autoClose);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+      this.socketsCreated.incrementAndGet();
+      return this.delegate.createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+      this.socketsCreated.incrementAndGet();
+      return this.delegate.createSocket(host, port, localHost, localPort);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+      this.socketsCreated.incrementAndGet();
+      return this.delegate.createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+      this.socketsCreated.incrementAndGet();
+      return this.delegate.createSocket(address, port, localAddress, localPort);
+    }
+
+  }
+
   static final class EventHolder {
 
     private HandshakeCompletedEvent event;
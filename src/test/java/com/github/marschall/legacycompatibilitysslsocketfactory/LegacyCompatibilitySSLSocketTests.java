@@ -0,0 +1,78 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.junit.jupiter.api.Test;
+
+class LegacyCompatibilitySSLSocketTests {
+
+  @Test
+  void concurrentListenerRegistration() throws Exception {
+    int threads = 4;
+    int listenersPerThread = 250;
+    try (var delegate = (SSLSocket) SSLSocketFactory.getDefault().createSocket()) {
+      var socket = new LegacyCompatibilitySSLSocket(delegate, CertificateAdapterCache.getDefault());
+      AtomicInteger notified = new AtomicInteger();
+      CountDownLatch start = new CountDownLatch(1);
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+        List<Future<?>> futures = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+          futures.add(executor.submit(() -> {
+            start.await();
+            List<HandshakeCompletedListener> listeners = new ArrayList<>(listenersPerThread);
+            for (int j = 0; j < listenersPerThread; j++) {
+              HandshakeCompletedListener listener = event -> notified.incrementAndGet();
+              listeners.add(listener);
+              socket.addHandshakeCompletedListener(listener);
+            }
+            // remove every other listener
+            for (int j = 0; j < listenersPerThread; j += 2) {
+              socket.removeHandshakeCompletedListener(listeners.get(j));
+            }
+            return null;
+          }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } finally {
+        executor.shutdown();
+      }
+
+      socket.handshakeCompleted();
+      assertEquals(threads * listenersPerThread / 2, notified.get());
+    }
+  }
+
+  @Test
+  void removeUnregisteredListener() throws IOException {
+    try (var delegate = (SSLSocket) SSLSocketFactory.getDefault().createSocket()) {
+      var socket = new LegacyCompatibilitySSLSocket(delegate, CertificateAdapterCache.getDefault());
+      HandshakeCompletedListener listener = event -> {
+        // ignore
+      };
+      assertThrows(IllegalArgumentException.class, () -> socket.removeHandshakeCompletedListener(listener));
+      socket.addHandshakeCompletedListener(listener);
+      socket.removeHandshakeCompletedListener(listener);
+      assertThrows(IllegalArgumentException.class, () -> socket.removeHandshakeCompletedListener(listener));
+      assertThrows(IllegalArgumentException.class, () -> socket.addHandshakeCompletedListener(null));
+    }
+  }
+
+}
@@ -0,0 +1,179 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.IllegalSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LegacyCompatibilitySocketChannelTests {
+
+  private ServerSocketChannel serverChannel;
+
+  private SocketChannel clientChannel;
+
+  private SocketChannel peerChannel;
+
+  private LegacyCompatibilitySocketChannel channel;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    this.serverChannel = ServerSocketChannel.open();
+    this.serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    this.clientChannel = SocketChannel.open(this.serverChannel.getLocalAddress());
+    this.peerChannel = this.serverChannel.accept();
+    this.channel = new LegacyCompatibilitySocketChannel(this.clientChannel, this.clientChannel.socket());
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    this.channel.close();
+    this.peerChannel.close();
+    this.serverChannel.close();
+  }
+
+  @Test
+  void selectorReadiness() throws IOException {
+    this.channel.configureBlocking(false);
+    try (Selector selector = this.channel.provider().openSelector()) {
+      Object attachment = new Object();
+      SelectionKey key = this.channel.register(selector, SelectionKey.OP_READ, attachment);
+      assertSame(key, this.channel.keyFor(selector));
+      assertSame(this.channel, key.channel());
+      assertSame(selector, key.selector());
+      assertSame(attachment, key.attachment());
+      assertEquals(Set.of(key), selector.keys());
+
+      assertEquals(0, selector.selectNow());
+      assertTrue(selector.selectedKeys().isEmpty());
+
+      this.peerChannel.write(ByteBuffer.wrap(new byte[] {1, 2, 3}));
+      assertEquals(1, selector.select(1000L));
+      Set<SelectionKey> selectedKeys = selector.selectedKeys();
+      assertTrue(selectedKeys.contains(key));
+      Iterator<SelectionKey> iterator = selectedKeys.iterator();
+      assertSame(key, iterator.next());
+      assertTrue(key.isReadable());
+      iterator.remove();
+      assertTrue(selectedKeys.isEmpty());
+
+      ByteBuffer buffer = ByteBuffer.allocateDirect(8);
+      assertEquals(3, this.channel.read(buffer));
+
+      key.interestOps(SelectionKey.OP_WRITE);
+      assertEquals(1, selector.selectNow());
+      assertTrue(key.isWritable());
+
+      key.cancel();
+      assertFalse(key.isValid());
+      selector.selectNow();
+      assertNull(this.channel.keyFor(selector));
+      assertTrue(selector.keys().isEmpty());
+    }
+  }
+
+  @Test
+  void mixedChannels() throws IOException {
+    this.channel.configureBlocking(false);
+    this.serverChannel.configureBlocking(false);
+    try (Selector selector = this.channel.provider().openSelector()) {
+      SelectionKey channelKey = this.channel.register(selector, SelectionKey.OP_WRITE);
+      SelectionKey serverKey = this.serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+      assertSame(this.serverChannel, serverKey.channel());
+      assertEquals(Set.of(channelKey, serverKey), selector.keys());
+
+      try (SocketChannel other = SocketChannel.open(this.serverChannel.getLocalAddress())) {
+        assertEquals(2, selector.select(1000L));
+        assertEquals(Set.of(channelKey, serverKey), selector.selectedKeys());
+        assertTrue(serverKey.isAcceptable());
+        this.serverChannel.accept().close();
+      }
+    }
+  }
+
+  @Test
+  void defaultSelector() throws IOException {
+    this.channel.configureBlocking(false);
+    try (Selector selector = Selector.open()) {
+      assertThrows(IllegalSelectorException.class, () -> this.channel.register(selector, SelectionKey.OP_READ));
+    }
+  }
+
+  @Test
+  void close() throws IOException {
+    this.channel.configureBlocking(false);
+    Selector selector = this.channel.provider().openSelector();
+    SelectionKey key = this.channel.register(selector, SelectionKey.OP_READ);
+    selector.close();
+    assertFalse(key.isValid());
+    assertFalse(this.channel.isRegistered());
+  }
+
+  @Test
+  void scatterGather() throws IOException {
+    // avoid dead locks if the socket buffers are smaller than the data
+    this.channel.configureBlocking(false);
+    this.peerChannel.configureBlocking(false);
+    byte[] data = new byte[64 * 1024];
+    ThreadLocalRandom.current().nextBytes(data);
+    ByteBuffer[] sources = {
+      ByteBuffer.allocateDirect(16 * 1024),
+      ByteBuffer.allocateDirect(48 * 1024)
+    };
+    sources[0].put(data, 0, 16 * 1024).flip();
+    sources[1].put(data, 16 * 1024, 48 * 1024).flip();
+
+    ByteBuffer[] destinations = {
+      ByteBuffer.allocateDirect(32 * 1024),
+      ByteBuffer.allocateDirect(32 * 1024)
+    };
+    long remaining = data.length;
+    while (remaining > 0L) {
+      if (sources[1].hasRemaining()) {
+        this.channel.write(sources);
+      }
+      remaining -= this.peerChannel.read(destinations);
+    }
+
+    byte[] received = new byte[data.length];
+    destinations[0].flip().get(received, 0, 32 * 1024);
+    destinations[1].flip().get(received, 32 * 1024, 32 * 1024);
+    assertEquals(ByteBuffer.wrap(data), ByteBuffer.wrap(received));
+
+    // and back
+    destinations[0].flip();
+    destinations[1].flip();
+    sources[0].clear();
+    sources[1].clear();
+    remaining = data.length;
+    while (remaining > 0L) {
+      if (destinations[1].hasRemaining()) {
+        this.peerChannel.write(destinations);
+      }
+      remaining -= this.channel.read(sources);
+    }
+    sources[0].flip();
+    sources[1].flip();
+    assertEquals(ByteBuffer.wrap(data, 0, 16 * 1024), sources[0]);
+    assertEquals(ByteBuffer.wrap(data, 16 * 1024, 48 * 1024), sources[1]);
+  }
+
+}
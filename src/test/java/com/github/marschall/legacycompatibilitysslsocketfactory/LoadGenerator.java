@@ -0,0 +1,172 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Generates load against a {@link LoopbackTlsServer}.
+ * <p>
+ * Every client runs in its own thread and opens its connections one after the other.
+ * For every connection the handshake is completed, a message is sent and the echo
+ * is read back.
+ */
+final class LoadGenerator {
+
+  private LoadGenerator() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Runs the load and waits for all clients to finish.
+   *
+   * @param socketFactory the factory to create the client sockets with
+   * @param address the address of the server
+   * @param port the port of the server
+   * @param clients the number of concurrent clients
+   * @param connectionsPerClient the number of connections every client opens
+   * @param messageSize the number of bytes to send on every connection
+   * @return the result of the run
+   * @throws InterruptedException if interrupted while waiting for the clients
+   */
+  static Result run(SSLSocketFactory socketFactory, InetAddress address, int port,
+          int clients, int connectionsPerClient, int messageSize) throws InterruptedException {
+    byte[] message = new byte[messageSize];
+    ThreadLocalRandom.current().nextBytes(message);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger failures = new AtomicInteger();
+    LongAdder bytesTransferred = new LongAdder();
+
+    Thread[] threads = new Thread[clients];
+    for (int i = 0; i < clients; i++) {
+      threads[i] = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        for (int j = 0; j < connectionsPerClient; j++) {
+          try {
+            connection(socketFactory, address, port, message);
+            bytesTransferred.add(2L * messageSize);
+          } catch (IOException e) {
+            failures.incrementAndGet();
+          }
+        }
+      }, "load-generator-" + i);
+      threads[i].start();
+    }
+
+    long startTime = System.nanoTime();
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Duration duration = Duration.ofNanos(System.nanoTime() - startTime);
+    return new Result(clients * connectionsPerClient, failures.get(), duration, bytesTransferred.sum());
+  }
+
+  private static void connection(SSLSocketFactory socketFactory, InetAddress address, int port, byte[] message) throws IOException {
+    try (SSLSocket socket = (SSLSocket) socketFactory.createSocket(address, port)) {
+      socket.setTcpNoDelay(true);
+      socket.startHandshake();
+      if (socket.getSession().getPeerCertificates().length == 0) {
+        throw new IOException("no peer certificates");
+      }
+      OutputStream outputStream = socket.getOutputStream();
+      outputStream.write(message);
+      outputStream.flush();
+      InputStream inputStream = socket.getInputStream();
+      byte[] echo = inputStream.readNBytes(message.length);
+      if (!Arrays.equals(message, echo)) {
+        throw new IOException("echo does not match");
+      }
+    }
+  }
+
+  /**
+   * Runs the load generator against a new loopback server, once with the JDK socket factory
+   * and once with {@link LegacyCompatibilitySSLSocketFactory}. Then runs the JDK socket factory
+   * against a loopback server using {@link LegacyCompatibilitySSLServerSocketFactory} to compare
+   * the accept rate.
+   *
+   * @param args optionally the number of clients, connections per client and message size
+   */
+  public static void main(String[] args) throws GeneralSecurityException, IOException, InterruptedException {
+    int clients = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+    int connectionsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+    int messageSize = args.length > 2 ? Integer.parseInt(args[2]) : 16384;
+
+    TestPki pki = TestPki.create("EC");
+    SSLContext clientContext = pki.newClientContext();
+    try (LoopbackTlsServer server = new LoopbackTlsServer(pki.newServerContext())) {
+      SSLSocketFactory raw = clientContext.getSocketFactory();
+      SSLSocketFactory wrapped = new LegacyCompatibilitySSLSocketFactory(raw);
+      // warm up
+      run(raw, server.getAddress(), server.getPort(), clients, connectionsPerClient, messageSize);
+      run(wrapped, server.getAddress(), server.getPort(), clients, connectionsPerClient, messageSize);
+
+      System.out.println("raw:     " + run(raw, server.getAddress(), server.getPort(), clients, connectionsPerClient, messageSize));
+      System.out.println("wrapped: " + run(wrapped, server.getAddress(), server.getPort(), clients, connectionsPerClient, messageSize));
+    }
+
+    SSLServerSocketFactory rawServer = pki.newServerContext().getServerSocketFactory();
+    SSLServerSocketFactory wrappedServer = new LegacyCompatibilitySSLServerSocketFactory(rawServer);
+    SSLSocketFactory client = clientContext.getSocketFactory();
+    try (LoopbackTlsServer raw = new LoopbackTlsServer(rawServer);
+         LoopbackTlsServer wrapped = new LoopbackTlsServer(wrappedServer)) {
+      // warm up
+      run(client, raw.getAddress(), raw.getPort(), clients, connectionsPerClient, messageSize);
+      run(client, wrapped.getAddress(), wrapped.getPort(), clients, connectionsPerClient, messageSize);
+
+      System.out.println("raw server:     " + run(client, raw.getAddress(), raw.getPort(), clients, connectionsPerClient, messageSize));
+      System.out.println("wrapped server: " + run(client, wrapped.getAddress(), wrapped.getPort(), clients, connectionsPerClient, messageSize));
+    }
+  }
+
+  /**
+   * The result of a load generator run.
+   *
+   * @param connections the number of attempted connections
+   * @param failures the number of failed connections
+   * @param duration the wall clock time of the run
+   * @param bytesTransferred the number of application bytes sent and received
+   */
+  record Result(int connections, int failures, Duration duration, long bytesTransferred) {
+
+    double handshakesPerSecond() {
+      return (this.connections - this.failures) / seconds(this.duration);
+    }
+
+    double bytesPerSecond() {
+      return this.bytesTransferred / seconds(this.duration);
+    }
+
+    private static double seconds(Duration duration) {
+      return duration.toNanos() / 1_000_000_000.0d;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d connections, %d failures in %d ms, %.1f handshakes/s, %.1f MiB/s",
+              this.connections, this.failures, this.duration.toMillis(),
+              this.handshakesPerSecond(), this.bytesPerSecond() / (1024.0d * 1024.0d));
+    }
+
+  }
+
+}
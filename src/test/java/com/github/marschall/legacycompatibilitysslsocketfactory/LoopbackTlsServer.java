@@ -0,0 +1,142 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLServerSocketFactory;
+
+/**
+ * A TLS server on the loopback interface that echoes everything it receives.
+ * <p>
+ * Every connection is served by its own daemon thread.
+ */
+final class LoopbackTlsServer implements AutoCloseable {
+
+  private final SSLServerSocket serverSocket;
+
+  private final ExecutorService executor;
+
+  private final Set<Socket> connections;
+
+  private volatile boolean closed;
+
+  /**
+   * Starts a new server on an ephemeral port.
+   *
+   * @param serverContext the context for the server sockets
+   * @throws IOException if the server socket can not be bound
+   */
+  LoopbackTlsServer(SSLContext serverContext) throws IOException {
+    this(serverContext.getServerSocketFactory());
+  }
+
+  /**
+   * Starts a new server on an ephemeral port.
+   *
+   * @param serverSocketFactory the factory for the server socket
+   * @throws IOException if the server socket can not be bound
+   */
+  LoopbackTlsServer(SSLServerSocketFactory serverSocketFactory) throws IOException {
+    this.serverSocket = (SSLServerSocket) serverSocketFactory
+            .createServerSocket(0, 128, InetAddress.getLoopbackAddress());
+    this.connections = ConcurrentHashMap.newKeySet();
+    this.executor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "loopback-tls-server");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executor.execute(this::acceptLoop);
+  }
+
+  /**
+   * Returns the address the server is bound to.
+   *
+   * @return the loopback address
+   */
+  InetAddress getAddress() {
+    return this.serverSocket.getInetAddress();
+  }
+
+  /**
+   * Returns the port the server is bound to.
+   *
+   * @return the ephemeral port
+   */
+  int getPort() {
+    return this.serverSocket.getLocalPort();
+  }
+
+  private void acceptLoop() {
+    while (!this.closed) {
+      Socket socket;
+      try {
+        socket = this.serverSocket.accept();
+      } catch (IOException e) {
+        // closed
+        return;
+      }
+      this.connections.add(socket);
+      try {
+        socket.setTcpNoDelay(true);
+      } catch (IOException e) {
+        // ignore, only affects latency
+      }
+      try {
+        this.executor.execute(() -> this.echo(socket));
+      } catch (RejectedExecutionException e) {
+        // accepted while closing
+        this.connections.remove(socket);
+        try {
+          socket.close();
+        } catch (IOException closeException) {
+          // ignore, closing anyway
+        }
+        return;
+      }
+    }
+  }
+
+  private void echo(Socket socket) {
+    try (socket;
+         InputStream inputStream = socket.getInputStream();
+         OutputStream outputStream = socket.getOutputStream()) {
+      byte[] buffer = new byte[16384];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        outputStream.write(buffer, 0, read);
+        outputStream.flush();
+      }
+    } catch (IOException e) {
+      // client went away or server closed, the client will report any errors
+    } finally {
+      this.connections.remove(socket);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.closed = true;
+    this.serverSocket.close();
+    for (Socket connection : this.connections) {
+      connection.close();
+    }
+    this.executor.shutdownNow();
+    try {
+      this.executor.awaitTermination(1L, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
@@ -0,0 +1,221 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.sun.net.httpserver.HttpsServer;
+
+class RoutingSSLSocketFactoryTests {
+
+  private static SSLSocketFactory newDelegate() {
+    // a new instance on every call
+    return (SSLSocketFactory) SSLSocketFactory.getDefault();
+  }
+
+  @Test
+  void hosts() {
+    SSLSocketFactory defaultDelegate = newDelegate();
+    SSLSocketFactory host = newDelegate();
+    SSLSocketFactory domain = newDelegate();
+    SSLSocketFactory subdomain = newDelegate();
+    RoutingSSLSocketFactory factory = RoutingSSLSocketFactory.builder(defaultDelegate)
+            .route("partner.example.com", host)
+            .route("*.example.com", domain)
+            .route("*.legacy.example.com", subdomain)
+            .build();
+
+    assertSame(host, factory.getDelegate("partner.example.com"));
+    assertSame(host, factory.getDelegate("Partner.Example.COM."));
+    assertSame(domain, factory.getDelegate("www.example.com"));
+    assertSame(domain, factory.getDelegate("www.partner.example.com"));
+    assertSame(subdomain, factory.getDelegate("www.legacy.example.com"));
+    assertSame(subdomain, factory.getDelegate("a.b.legacy.example.com"));
+    assertSame(domain, factory.getDelegate("legacy.example.com"));
+    assertSame(defaultDelegate, factory.getDelegate("example.com"));
+    assertSame(defaultDelegate, factory.getDelegate("www.example.org"));
+    assertSame(defaultDelegate, factory.getDelegate((String) null));
+  }
+
+  @Test
+  void addresses() throws Exception {
+    SSLSocketFactory defaultDelegate = newDelegate();
+    SSLSocketFactory network = newDelegate();
+    SSLSocketFactory subnet = newDelegate();
+    SSLSocketFactory single = newDelegate();
+    SSLSocketFactory ipv6 = newDelegate();
+    SSLSocketFactory name = newDelegate();
+    RoutingSSLSocketFactory factory = RoutingSSLSocketFactory.builder(defaultDelegate)
+            .route("10.0.0.0/8", network)
+            .route("10.1.0.0/16", subnet)
+            .route("10.1.2.3", single)
+            .route("2001:db8::/32", ipv6)
+            .route("partner.example.com", name)
+            .build();
+
+    assertSame(network, factory.getDelegate(address(10, 2, 3, 4)));
+    assertSame(subnet, factory.getDelegate(address(10, 1, 3, 4)));
+    assertSame(single, factory.getDelegate(address(10, 1, 2, 3)));
+    assertSame(defaultDelegate, factory.getDelegate(address(192, 0, 2, 1)));
+    assertSame(ipv6, factory.getDelegate(InetAddress.getByName("2001:db8:1::1")));
+    assertSame(defaultDelegate, factory.getDelegate(InetAddress.getByName("2001:db9::1")));
+
+    // literal addresses as host names
+    assertSame(subnet, factory.getDelegate("10.1.3.4"));
+    assertSame(ipv6, factory.getDelegate("[2001:DB8::1]"));
+    assertSame(defaultDelegate, factory.getDelegate("10.1.2"));
+
+    // the host name of an address is routed if no address block matches, without a lookup
+    InetAddress withName = InetAddress.getByAddress("partner.example.com", new byte[] {(byte) 192, 0, 2, 1});
+    assertSame(name, factory.getDelegate(withName));
+    withName = InetAddress.getByAddress("partner.example.com", new byte[] {10, 1, 2, 3});
+    assertSame(single, factory.getDelegate(withName));
+  }
+
+  private static InetAddress address(int a, int b, int c, int d) throws Exception {
+    return InetAddress.getByAddress(new byte[] {(byte) a, (byte) b, (byte) c, (byte) d});
+  }
+
+  @Test
+  void everything() throws Exception {
+    SSLSocketFactory ipv4 = newDelegate();
+    SSLSocketFactory ipv6 = newDelegate();
+    RoutingSSLSocketFactory factory = RoutingSSLSocketFactory.builder(newDelegate())
+            .route("0.0.0.0/0", ipv4)
+            .route("::/0", ipv6)
+            .build();
+    assertSame(ipv4, factory.getDelegate(address(192, 0, 2, 1)));
+    assertSame(ipv6, factory.getDelegate(InetAddress.getByName("::1")));
+  }
+
+  @Test
+  void sharedContext() throws Exception {
+    SSLContext context = SSLContext.getInstance("TLS");
+    context.init(null, null, null);
+    RoutingSSLSocketFactory factory = RoutingSSLSocketFactory.builder(context)
+            .route("partner.example.com", context)
+            .route("*.partner.example.com", context)
+            .build();
+    SSLSocketFactory delegate = factory.getDelegate("partner.example.com");
+    assertSame(delegate, factory.getDelegate("www.partner.example.com"));
+    assertSame(delegate, factory.getDelegate("www.example.com"));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"", "*", "*.", "*.*.example.com", "partner.*.com", "partner.example.com:443",
+    "10.0.0.0/33", "10.0.0.1/8", "10.0.0.0/", "10.0.0.0/-1", "10.0.0.0/+8", "10.0.0.0/a", "example.com/8",
+    "2001:db8::/129", "2001:db8::1/32", "[2001:db8::1", "2001:db8::g", "*.10.0.0.1"})
+  void invalidRoutes(String destination) {
+    RoutingSSLSocketFactory.Builder builder = RoutingSSLSocketFactory.builder(newDelegate())
+            .route(destination, newDelegate());
+    assertThrows(IllegalArgumentException.class, builder::build);
+  }
+
+  @Test
+  void duplicateRoutes() {
+    RoutingSSLSocketFactory.Builder builder = RoutingSSLSocketFactory.builder(newDelegate())
+            .route("partner.example.com", newDelegate());
+    assertThrows(IllegalArgumentException.class, () -> builder.route("partner.example.com", newDelegate()));
+
+    builder.route("Partner.Example.com", newDelegate());
+    assertThrows(IllegalArgumentException.class, builder::build);
+  }
+
+  @Test
+  void manyRoutes() throws Exception {
+    SSLSocketFactory domain = newDelegate();
+    SSLSocketFactory network = newDelegate();
+    RoutingSSLSocketFactory.Builder builder = RoutingSSLSocketFactory.builder(newDelegate());
+    for (int i = 0; i < 10_000; i++) {
+      builder.route("host" + i + ".example.com", newDelegate());
+      builder.route("*.zone" + i + ".example.net", domain);
+      builder.route("10." + (i >> 8) + '.' + (i & 0xFF) + ".0/24", network);
+    }
+    RoutingSSLSocketFactory factory = builder.build();
+    SSLSocketFactory host = factory.getDelegate("host9999.example.com");
+    assertSame(host, factory.getDelegate("HOST9999.example.com"));
+    assertSame(domain, factory.getDelegate("www.zone9999.example.net"));
+    assertSame(network, factory.getDelegate(address(10, 39, 15, 1)));
+    assertSame(factory.getDelegate("www.example.org"), factory.getDelegate("www.zone10000.example.net"));
+  }
+
+  @Test
+  void createSocket() throws Exception {
+    TestPki pki = TestPki.create("EC");
+    // does not trust the server
+    SSLContext defaultContext = TestPki.create("EC").newClientContext();
+    try (var server = new LoopbackTlsServer(pki.newServerContext())) {
+      SSLSocketFactory socketFactory = LegacyCompatibilitySSLSocketFactory.forDelegate(RoutingSSLSocketFactory.builder(defaultContext)
+              .route("localhost", pki.newClientContext())
+              .route("127.0.0.0/8", pki.newClientContext())
+              .build());
+
+      try (SSLSocket socket = (SSLSocket) socketFactory.createSocket("localhost", server.getPort())) {
+        assertEcho(socket);
+        assertNotNull(socket.getSession().getPeerCertificateChain());
+      }
+      try (SSLSocket socket = (SSLSocket) socketFactory.createSocket(InetAddress.getByAddress(new byte[] {127, 0, 0, 1}), server.getPort())) {
+        assertEcho(socket);
+      }
+      try (SSLSocket socket = (SSLSocket) RoutingSSLSocketFactory.builder(defaultContext).build().createSocket("localhost", server.getPort())) {
+        assertThrows(SSLHandshakeException.class, socket::startHandshake);
+      }
+
+      SocketException exception = assertThrows(SocketException.class, socketFactory::createSocket);
+      assertTrue(exception.getCause() instanceof UnsupportedOperationException);
+    }
+  }
+
+  private static void assertEcho(Socket socket) throws Exception {
+    byte[] message = "Hello World".getBytes(StandardCharsets.US_ASCII);
+    OutputStream outputStream = socket.getOutputStream();
+    outputStream.write(message);
+    outputStream.flush();
+    InputStream inputStream = socket.getInputStream();
+    assertArrayEquals(message, inputStream.readNBytes(message.length));
+  }
+
+  @Test
+  void urlConnection() throws Exception {
+    TestPki pki = TestPki.create("EC");
+    HttpsServer server = LegacyCompatibilitySSLSocketFactoryTests.startHttpsServer(pki.newServerContext());
+    try {
+      SSLSocketFactory socketFactory = LegacyCompatibilitySSLSocketFactory.forDelegate(RoutingSSLSocketFactory.builder(TestPki.create("EC").newClientContext())
+              .route("localhost", pki.newClientContext())
+              .build());
+      URL url = new URL("https://localhost:" + server.getAddress().getPort() + "/");
+      HttpsURLConnection urlConnection = (HttpsURLConnection) url.openConnection();
+      // falls back from an unconnected socket to a layered socket
+      urlConnection.setSSLSocketFactory(socketFactory);
+      try (InputStream inputStream = urlConnection.getInputStream()) {
+        assertEquals(200, urlConnection.getResponseCode());
+        inputStream.readAllBytes();
+        assertNotNull(urlConnection.getSSLSession().orElseThrow().getPeerCertificateChain());
+      }
+    } finally {
+      server.stop(0);
+    }
+  }
+
+}
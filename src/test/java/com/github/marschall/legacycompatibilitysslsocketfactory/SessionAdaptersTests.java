@@ -0,0 +1,74 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import javax.net.ssl.SSLSession;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.marschall.legacycompatibilitysslsocketfactory.SessionAdapters.AdaptedSession;
+
+class SessionAdaptersTests {
+
+  private static final VarHandle SESSION;
+
+  static {
+    try {
+      SESSION = MethodHandles.lookup().findVarHandle(SessionHolder.class, "session", AdaptedSession.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final SocketSettings settings = new SocketSettings(new CertificateAdapterCache(0));
+
+  private SSLSession adaptedSession(SessionHolder holder, SSLSession delegateSession) {
+    return SessionAdapters.adaptedSession(holder, SESSION, delegateSession, this.settings);
+  }
+
+  @Test
+  void sameSessionSameWrapper() {
+    SessionHolder holder = new SessionHolder();
+    SSLSession delegateSession = new StubSSLSession();
+
+    SSLSession adapted = this.adaptedSession(holder, delegateSession);
+    assertSame(LegacyCompatibilityExtendedSSLSession.class, adapted.getClass());
+    assertSame(adapted, this.adaptedSession(holder, delegateSession));
+  }
+
+  @Test
+  void newSessionNewWrapper() {
+    SessionHolder holder = new SessionHolder();
+    SSLSession first = this.adaptedSession(holder, new StubSSLSession());
+    // for example after a renegotiation or resumption
+    SSLSession second = this.adaptedSession(holder, new StubSSLSession());
+
+    assertNotNull(second);
+    assertNotSame(first, second);
+    assertSame(second, holder.session.adapted());
+  }
+
+  @Test
+  void noSessionClearsWrapper() {
+    SessionHolder holder = new SessionHolder();
+    this.adaptedSession(holder, new StubSSLSession());
+    assertNotNull(holder.session);
+
+    // for example once the handshake is done
+    assertNull(this.adaptedSession(holder, null));
+    assertNull(holder.session);
+  }
+
+  static final class SessionHolder {
+
+    volatile AdaptedSession session;
+
+  }
+
+}
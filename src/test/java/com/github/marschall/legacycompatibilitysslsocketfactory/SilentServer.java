@@ -0,0 +1,78 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A server on the loopback interface that accepts connections but never answers, like a
+ * backend that hangs.
+ */
+final class SilentServer implements AutoCloseable {
+
+  private final ServerSocket serverSocket;
+
+  private final Set<Socket> connections;
+
+  private final Thread acceptThread;
+
+  /**
+   * Starts a new server on an ephemeral port.
+   *
+   * @throws IOException if the server socket can not be bound
+   */
+  SilentServer() throws IOException {
+    this.serverSocket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+    this.connections = ConcurrentHashMap.newKeySet();
+    this.acceptThread = new Thread(this::acceptLoop, "silent-server");
+    this.acceptThread.setDaemon(true);
+    this.acceptThread.start();
+  }
+
+  /**
+   * Returns the address the server is bound to.
+   *
+   * @return the loopback address
+   */
+  InetAddress getAddress() {
+    return this.serverSocket.getInetAddress();
+  }
+
+  /**
+   * Returns the port the server is bound to.
+   *
+   * @return the ephemeral port
+   */
+  int getPort() {
+    return this.serverSocket.getLocalPort();
+  }
+
+  private void acceptLoop() {
+    while (true) {
+      try {
+        // keep the connection open without reading or writing
+        this.connections.add(this.serverSocket.accept());
+      } catch (IOException e) {
+        // closed
+        return;
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.serverSocket.close();
+    for (Socket connection : this.connections) {
+      connection.close();
+    }
+    try {
+      this.acceptThread.join(1000L);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
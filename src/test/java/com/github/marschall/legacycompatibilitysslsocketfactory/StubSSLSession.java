@@ -0,0 +1,141 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.security.Principal;
+import java.security.cert.Certificate;
+import java.util.List;
+
+import javax.net.ssl.ExtendedSSLSession;
+import javax.net.ssl.SNIServerName;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSessionContext;
+
+/**
+ * A {@link ExtendedSSLSession} that only knows its peer certificates.
+ */
+final class StubSSLSession extends ExtendedSSLSession {
+
+  private final Certificate[] peerCertificates;
+
+  StubSSLSession(Certificate... peerCertificates) {
+    this.peerCertificates = peerCertificates;
+  }
+
+  @Override
+  public Certificate[] getPeerCertificates() throws SSLPeerUnverifiedException {
+    if (this.peerCertificates.length == 0) {
+      throw new SSLPeerUnverifiedException("peer not authenticated");
+    }
+    return this.peerCertificates.clone();
+  }
+
+  @Override
+  public byte[] getId() {
+    return new byte[0];
+  }
+
+  @Override
+  public SSLSessionContext getSessionContext() {
+    return null;
+  }
+
+  @Override
+  public long getCreationTime() {
+    return 0L;
+  }
+
+  @Override
+  public long getLastAccessedTime() {
+    return 0L;
+  }
+
+  @Override
+  public void invalidate() {
+    // ignore
+  }
+
+  @Override
+  public boolean isValid() {
+    return true;
+  }
+
+  @Override
+  public void putValue(String name, Object value) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Object getValue(String name) {
+    return null;
+  }
+
+  @Override
+  public void removeValue(String name) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String[] getValueNames() {
+    return new String[0];
+  }
+
+  @Override
+  public Certificate[] getLocalCertificates() {
+    return null;
+  }
+
+  @Override
+  public Principal getPeerPrincipal() throws SSLPeerUnverifiedException {
+    throw new SSLPeerUnverifiedException("peer not authenticated");
+  }
+
+  @Override
+  public Principal getLocalPrincipal() {
+    return null;
+  }
+
+  @Override
+  public String getCipherSuite() {
+    return "SSL_NULL_WITH_NULL_NULL";
+  }
+
+  @Override
+  public String getProtocol() {
+    return "NONE";
+  }
+
+  @Override
+  public String getPeerHost() {
+    return null;
+  }
+
+  @Override
+  public int getPeerPort() {
+    return -1;
+  }
+
+  @Override
+  public int getPacketBufferSize() {
+    return 16709;
+  }
+
+  @Override
+  public int getApplicationBufferSize() {
+    return 16384;
+  }
+
+  @Override
+  public String[] getLocalSupportedSignatureAlgorithms() {
+    return new String[0];
+  }
+
+  @Override
+  public String[] getPeerSupportedSignatureAlgorithms() {
+    return new String[0];
+  }
+
+  @Override
+  public List<SNIServerName> getRequestedServerNames() {
+    return List.of();
+  }
+
+}
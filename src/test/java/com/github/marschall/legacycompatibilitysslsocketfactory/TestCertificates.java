@@ -0,0 +1,253 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import javax.security.auth.x500.X500Principal;
+
+/**
+ * Generates X.509 certificates for tests without relying on the network,
+ * keytool or JDK internal classes.
+ */
+final class TestCertificates {
+
+  private static final String SHA256_WITH_RSA = "1.2.840.113549.1.1.11";
+
+  private static final String SHA256_WITH_ECDSA = "1.2.840.10045.4.3.2";
+
+  private static final String BASIC_CONSTRAINTS = "2.5.29.19";
+
+  private static final String SUBJECT_ALTERNATIVE_NAME = "2.5.29.17";
+
+  private static final DateTimeFormatter UTC_TIME = DateTimeFormatter.ofPattern("yyMMddHHmmss'Z'").withZone(ZoneOffset.UTC);
+
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  private TestCertificates() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Generates a new key pair.
+   *
+   * @param algorithm either {@code "RSA"} or {@code "EC"}
+   * @return the generated key pair
+   */
+  static KeyPair generateKeyPair(String algorithm) throws GeneralSecurityException {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+    switch (algorithm) {
+      case "RSA" -> generator.initialize(2048);
+      case "EC" -> generator.initialize(new ECGenParameterSpec("secp256r1"));
+      default -> throw new IllegalArgumentException("unsupported algorithm: " + algorithm);
+    }
+    return generator.generateKeyPair();
+  }
+
+  /**
+   * Generates a self signed CA certificate.
+   *
+   * @param subject the subject and issuer name, eg. {@code "CN=Test Root"}
+   * @param keyPair the key pair of the certificate
+   * @return the self signed certificate
+   */
+  static X509Certificate selfSigned(String subject, KeyPair keyPair) throws GeneralSecurityException {
+    X500Principal name = new X500Principal(subject);
+    return sign(name, keyPair.getPublic(), true, List.of(), name, keyPair.getPrivate());
+  }
+
+  /**
+   * Issues a CA certificate, for example for an intermediate CA.
+   *
+   * @param subject the subject name
+   * @param publicKey the public key of the issued certificate
+   * @param issuer the certificate of the issuer
+   * @param issuerKey the private key of the issuer
+   * @return the issued certificate
+   */
+  static X509Certificate issueCa(String subject, PublicKey publicKey, X509Certificate issuer, PrivateKey issuerKey) throws GeneralSecurityException {
+    return sign(new X500Principal(subject), publicKey, true, List.of(), issuer.getSubjectX500Principal(), issuerKey);
+  }
+
+  /**
+   * Issues an end entity certificate.
+   *
+   * @param subject the subject name
+   * @param publicKey the public key of the issued certificate
+   * @param subjectAlternativeNames the DNS names and IP addresses of the certificate
+   * @param issuer the certificate of the issuer
+   * @param issuerKey the private key of the issuer
+   * @return the issued certificate
+   */
+  static X509Certificate issueLeaf(String subject, PublicKey publicKey, List<String> subjectAlternativeNames,
+          X509Certificate issuer, PrivateKey issuerKey) throws GeneralSecurityException {
+    return sign(new X500Principal(subject), publicKey, false, subjectAlternativeNames, issuer.getSubjectX500Principal(), issuerKey);
+  }
+
+  private static X509Certificate sign(X500Principal subject, PublicKey publicKey, boolean ca, List<String> subjectAlternativeNames,
+          X500Principal issuer, PrivateKey issuerKey) throws GeneralSecurityException {
+    String signatureOid = signatureOid(issuerKey);
+    byte[] signatureAlgorithm = signatureOid.equals(SHA256_WITH_RSA)
+            ? Der.sequence(Der.oid(signatureOid), Der.nullValue())
+            : Der.sequence(Der.oid(signatureOid));
+    Instant now = Instant.now();
+    byte[] tbsCertificate = Der.sequence(
+            Der.explicit(0, Der.integer(BigInteger.valueOf(2L))),
+            Der.integer(new BigInteger(64, RANDOM).add(BigInteger.ONE)),
+            signatureAlgorithm,
+            issuer.getEncoded(),
+            Der.sequence(Der.utcTime(now.minus(Duration.ofDays(1L))), Der.utcTime(now.plus(Duration.ofDays(365L)))),
+            subject.getEncoded(),
+            publicKey.getEncoded(),
+            Der.explicit(3, extensions(ca, subjectAlternativeNames)));
+
+    Signature signature = Signature.getInstance(issuerKey.getAlgorithm().equals("RSA") ? "SHA256withRSA" : "SHA256withECDSA");
+    signature.initSign(issuerKey);
+    signature.update(tbsCertificate);
+    byte[] certificate = Der.sequence(tbsCertificate, signatureAlgorithm, Der.bitString(signature.sign()));
+
+    CertificateFactory factory = CertificateFactory.getInstance("X.509");
+    return (X509Certificate) factory.generateCertificate(new ByteArrayInputStream(certificate));
+  }
+
+  private static String signatureOid(PrivateKey key) {
+    return switch (key.getAlgorithm()) {
+      case "RSA" -> SHA256_WITH_RSA;
+      case "EC" -> SHA256_WITH_ECDSA;
+      default -> throw new IllegalArgumentException("unsupported key algorithm: " + key.getAlgorithm());
+    };
+  }
+
+  private static byte[] extensions(boolean ca, List<String> subjectAlternativeNames) {
+    byte[] basicConstraints = ca ? Der.sequence(Der.bool(true)) : Der.sequence();
+    byte[] basicConstraintsExtension = Der.sequence(Der.oid(BASIC_CONSTRAINTS), Der.bool(true), Der.octetString(basicConstraints));
+    if (subjectAlternativeNames.isEmpty()) {
+      return Der.sequence(basicConstraintsExtension);
+    }
+    byte[][] generalNames = new byte[subjectAlternativeNames.size()][];
+    for (int i = 0; i < generalNames.length; i++) {
+      generalNames[i] = generalName(subjectAlternativeNames.get(i));
+    }
+    byte[] subjectAlternativeNameExtension = Der.sequence(Der.oid(SUBJECT_ALTERNATIVE_NAME), Der.octetString(Der.sequence(generalNames)));
+    return Der.sequence(basicConstraintsExtension, subjectAlternativeNameExtension);
+  }
+
+  private static byte[] generalName(String name) {
+    if (name.matches("[0-9.]+") || name.indexOf(':') != -1) {
+      try {
+        // iPAddress [7] IMPLICIT OCTET STRING
+        return Der.tlv(0x87, InetAddress.getByName(name).getAddress());
+      } catch (UnknownHostException e) {
+        throw new IllegalArgumentException("not an IP address: " + name, e);
+      }
+    }
+    // dNSName [2] IMPLICIT IA5String
+    return Der.tlv(0x82, name.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * The minimal subset of DER encoding needed to write a certificate.
+   */
+  static final class Der {
+
+    private Der() {
+      throw new AssertionError("not instantiable");
+    }
+
+    static byte[] sequence(byte[]... elements) {
+      return tlv(0x30, concat(elements));
+    }
+
+    static byte[] integer(BigInteger value) {
+      return tlv(0x02, value.toByteArray());
+    }
+
+    static byte[] bool(boolean value) {
+      return tlv(0x01, new byte[] {value ? (byte) 0xFF : 0x00});
+    }
+
+    static byte[] nullValue() {
+      return tlv(0x05, new byte[0]);
+    }
+
+    static byte[] octetString(byte[] value) {
+      return tlv(0x04, value);
+    }
+
+    static byte[] bitString(byte[] value) {
+      byte[] content = new byte[value.length + 1];
+      // no unused bits
+      System.arraycopy(value, 0, content, 1, value.length);
+      return tlv(0x03, content);
+    }
+
+    static byte[] utcTime(Instant instant) {
+      return tlv(0x17, UTC_TIME.format(instant).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static byte[] explicit(int tagNumber, byte[] content) {
+      return tlv(0xA0 | tagNumber, content);
+    }
+
+    static byte[] oid(String oid) {
+      String[] components = oid.split("\\.");
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      buffer.write(Integer.parseInt(components[0]) * 40 + Integer.parseInt(components[1]));
+      for (int i = 2; i < components.length; i++) {
+        long component = Long.parseLong(components[i]);
+        int shift = 63 - Long.numberOfLeadingZeros(component | 1L);
+        shift -= shift % 7;
+        for (; shift > 0; shift -= 7) {
+          buffer.write((int) (0x80 | ((component >>> shift) & 0x7F)));
+        }
+        buffer.write((int) (component & 0x7F));
+      }
+      return tlv(0x06, buffer.toByteArray());
+    }
+
+    static byte[] tlv(int tag, byte[] content) {
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream(content.length + 6);
+      buffer.write(tag);
+      int length = content.length;
+      if (length < 0x80) {
+        buffer.write(length);
+      } else {
+        int lengthBytes = (39 - Integer.numberOfLeadingZeros(length)) / 8;
+        buffer.write(0x80 | lengthBytes);
+        for (int i = lengthBytes - 1; i >= 0; i--) {
+          buffer.write(length >>> (i * 8));
+        }
+      }
+      buffer.writeBytes(content);
+      return buffer.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... elements) {
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      for (byte[] element : elements) {
+        buffer.writeBytes(element);
+      }
+      return buffer.toByteArray();
+    }
+
+  }
+
+}
@@ -0,0 +1,159 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * A generated, in memory, public key infrastructure consisting of a root CA,
+ * optional intermediate CAs and a server certificate valid for {@code localhost}
+ * and {@code 127.0.0.1}.
+ */
+final class TestPki {
+
+  private static final char[] PASSWORD = "changeit".toCharArray();
+
+  private final X509Certificate root;
+
+  private final X509Certificate[] chain;
+
+  private final PrivateKey leafKey;
+
+  private TestPki(X509Certificate root, X509Certificate[] chain, PrivateKey leafKey) {
+    this.root = root;
+    this.chain = chain;
+    this.leafKey = leafKey;
+  }
+
+  /**
+   * Generates a new PKI with one intermediate CA.
+   *
+   * @param keyAlgorithm the key algorithm of all certificates, either {@code "RSA"} or {@code "EC"}
+   * @return the generated PKI
+   * @throws GeneralSecurityException if generating fails
+   */
+  static TestPki create(String keyAlgorithm) throws GeneralSecurityException {
+    return create(keyAlgorithm, 1);
+  }
+
+  /**
+   * Generates a new PKI.
+   *
+   * @param keyAlgorithm the key algorithm of all certificates, either {@code "RSA"} or {@code "EC"}
+   * @param intermediateCount the number of intermediate CAs between the root and the server certificate
+   * @return the generated PKI
+   * @throws GeneralSecurityException if generating fails
+   */
+  static TestPki create(String keyAlgorithm, int intermediateCount) throws GeneralSecurityException {
+    KeyPair rootKeyPair = TestCertificates.generateKeyPair(keyAlgorithm);
+    X509Certificate root = TestCertificates.selfSigned("CN=Test Root, O=Legacy Compatibility", rootKeyPair);
+
+    // chain from the server certificate to the root
+    X509Certificate[] chain = new X509Certificate[intermediateCount + 1];
+    X509Certificate issuer = root;
+    PrivateKey issuerKey = rootKeyPair.getPrivate();
+    for (int i = 0; i < intermediateCount; i++) {
+      KeyPair intermediateKeyPair = TestCertificates.generateKeyPair(keyAlgorithm);
+      X509Certificate intermediate = TestCertificates.issueCa("CN=Test Intermediate " + (i + 1) + ", O=Legacy Compatibility",
+              intermediateKeyPair.getPublic(), issuer, issuerKey);
+      chain[intermediateCount - i] = intermediate;
+      issuer = intermediate;
+      issuerKey = intermediateKeyPair.getPrivate();
+    }
+
+    KeyPair leafKeyPair = TestCertificates.generateKeyPair(keyAlgorithm);
+    chain[0] = TestCertificates.issueLeaf("CN=localhost, O=Legacy Compatibility", leafKeyPair.getPublic(),
+            List.of("localhost", "127.0.0.1"), issuer, issuerKey);
+    return new TestPki(root, chain, leafKeyPair.getPrivate());
+  }
+
+  /**
+   * Returns the root CA certificate.
+   *
+   * @return the root certificate
+   */
+  X509Certificate getRoot() {
+    return this.root;
+  }
+
+  /**
+   * Returns the certificate chain the server presents, starting with the server certificate,
+   * not including the root.
+   *
+   * @return the server certificate chain
+   */
+  X509Certificate[] getChain() {
+    return this.chain.clone();
+  }
+
+  /**
+   * Creates a new {@link SSLContext} that presents the server certificate chain.
+   *
+   * @return the server context
+   * @throws GeneralSecurityException if creating the context fails
+   */
+  SSLContext newServerContext() throws GeneralSecurityException {
+    return this.newContextWithKey();
+  }
+
+  /**
+   * Creates a new {@link SSLContext} that trusts the root certificate.
+   *
+   * @return the client context
+   * @throws GeneralSecurityException if creating the context fails
+   */
+  SSLContext newClientContext() throws GeneralSecurityException {
+    SSLContext sslContext = SSLContext.getInstance("TLS");
+    sslContext.init(null, this.trustManagerFactory().getTrustManagers(), null);
+    return sslContext;
+  }
+
+  /**
+   * Creates a new {@link SSLContext} that trusts the root certificate and presents
+   * the server certificate chain for client authentication.
+   *
+   * @return the client context
+   * @throws GeneralSecurityException if creating the context fails
+   */
+  SSLContext newClientAuthContext() throws GeneralSecurityException {
+    return this.newContextWithKey();
+  }
+
+  private SSLContext newContextWithKey() throws GeneralSecurityException {
+    KeyStore keyStore = emptyKeyStore();
+    keyStore.setKeyEntry("server", this.leafKey, PASSWORD, this.chain);
+    KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    keyManagerFactory.init(keyStore, PASSWORD);
+
+    SSLContext sslContext = SSLContext.getInstance("TLS");
+    sslContext.init(keyManagerFactory.getKeyManagers(), this.trustManagerFactory().getTrustManagers(), null);
+    return sslContext;
+  }
+
+  private TrustManagerFactory trustManagerFactory() throws GeneralSecurityException {
+    KeyStore trustStore = emptyKeyStore();
+    trustStore.setCertificateEntry("root", this.root);
+    TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+    trustManagerFactory.init(trustStore);
+    return trustManagerFactory;
+  }
+
+  private static KeyStore emptyKeyStore() throws GeneralSecurityException {
+    KeyStore keyStore = KeyStore.getInstance("PKCS12");
+    try {
+      keyStore.load(null, null);
+    } catch (IOException e) {
+      throw new IllegalStateException("could not initialize empty key store", e);
+    }
+    return keyStore;
+  }
+
+}
@@ -0,0 +1,93 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import java.nio.ByteBuffer;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+
+/**
+ * Drives {@link SSLEngine}s in memory, without any sockets.
+ */
+final class TestSSLEngines {
+
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+  private TestSSLEngines() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Completes the handshake between a client and a server engine.
+   *
+   * @param client the engine in client mode
+   * @param server the engine in server mode
+   * @throws SSLException if the handshake fails
+   */
+  static void handshake(SSLEngine client, SSLEngine server) throws SSLException {
+    int packetBufferSize = Math.max(client.getSession().getPacketBufferSize(), server.getSession().getPacketBufferSize());
+    int applicationBufferSize = Math.max(client.getSession().getApplicationBufferSize(), server.getSession().getApplicationBufferSize());
+    ByteBuffer clientToServer = ByteBuffer.allocate(packetBufferSize);
+    ByteBuffer serverToClient = ByteBuffer.allocate(packetBufferSize);
+    ByteBuffer clientApplication = ByteBuffer.allocate(applicationBufferSize);
+    ByteBuffer serverApplication = ByteBuffer.allocate(applicationBufferSize);
+
+    client.beginHandshake();
+    server.beginHandshake();
+    for (int i = 0; i < 1_000; i++) {
+      boolean clientProgress = step(client, clientToServer, serverToClient, clientApplication);
+      boolean serverProgress = step(server, serverToClient, clientToServer, serverApplication);
+      if (!clientProgress && !serverProgress && isDone(client) && isDone(server)) {
+        return;
+      }
+    }
+    throw new SSLException("handshake did not complete");
+  }
+
+  private static boolean isDone(SSLEngine engine) {
+    HandshakeStatus status = engine.getHandshakeStatus();
+    return status == HandshakeStatus.NOT_HANDSHAKING || status == HandshakeStatus.FINISHED;
+  }
+
+  /**
+   * Performs a single handshake step.
+   *
+   * @param engine the engine that performs the step
+   * @param outbound the network buffer the engine writes to, in write mode
+   * @param inbound the network buffer the engine reads from, in write mode
+   * @param application the application buffer the engine unwraps to
+   * @return if any progress was made
+   */
+  private static boolean step(SSLEngine engine, ByteBuffer outbound, ByteBuffer inbound, ByteBuffer application) throws SSLException {
+    switch (engine.getHandshakeStatus()) {
+      case NEED_WRAP:
+        return engine.wrap(EMPTY, outbound).bytesProduced() > 0;
+      case NEED_UNWRAP:
+      case NEED_UNWRAP_AGAIN:
+        inbound.flip();
+        try {
+          return engine.unwrap(inbound, application).bytesConsumed() > 0;
+        } finally {
+          inbound.compact();
+        }
+      case NEED_TASK:
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+          task.run();
+        }
+        return true;
+      default:
+        if (inbound.position() > 0) {
+          // post handshake messages like TLS 1.3 session tickets
+          inbound.flip();
+          try {
+            return engine.unwrap(inbound, application).bytesConsumed() > 0;
+          } finally {
+            inbound.compact();
+          }
+        }
+        return false;
+    }
+  }
+
+}
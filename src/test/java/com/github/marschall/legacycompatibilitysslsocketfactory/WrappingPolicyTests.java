@@ -0,0 +1,86 @@
+package com.github.marschall.legacycompatibilitysslsocketfactory;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class WrappingPolicyTests {
+
+  @Test
+  void hosts() {
+    WrappingPolicy policy = WrappingPolicy.matching("legacy.example.com", "other.example.com:8443", "other.example.com:9443");
+    assertTrue(policy.shouldWrap("legacy.example.com", 443));
+    assertTrue(policy.shouldWrap("legacy.example.com", 8443));
+    assertTrue(policy.shouldWrap("Legacy.Example.COM", 443));
+    assertTrue(policy.shouldWrap("legacy.example.com.", 443));
+    assertTrue(policy.shouldWrap("other.example.com", 8443));
+    assertTrue(policy.shouldWrap("other.example.com", 9443));
+    assertFalse(policy.shouldWrap("other.example.com", 443));
+    assertFalse(policy.shouldWrap("www.legacy.example.com", 443));
+    assertFalse(policy.shouldWrap("example.com", 443));
+  }
+
+  @Test
+  void domains() {
+    WrappingPolicy policy = WrappingPolicy.matching("*.legacy.example.com:443");
+    assertTrue(policy.shouldWrap("www.legacy.example.com", 443));
+    assertTrue(policy.shouldWrap("a.b.legacy.example.com", 443));
+    assertFalse(policy.shouldWrap("legacy.example.com", 443));
+    assertFalse(policy.shouldWrap("www.legacy.example.com", 8443));
+    assertFalse(policy.shouldWrap("www.example.com", 443));
+    assertFalse(policy.shouldWrap("notlegacy.example.com", 443));
+  }
+
+  @Test
+  void anyHost() {
+    WrappingPolicy policy = WrappingPolicy.matching("*:8443");
+    assertTrue(policy.shouldWrap("legacy.example.com", 8443));
+    assertTrue(policy.shouldWrap("192.0.2.1", 8443));
+    assertFalse(policy.shouldWrap("legacy.example.com", 443));
+
+    assertTrue(WrappingPolicy.matching("*").shouldWrap("legacy.example.com", 443));
+    assertFalse(WrappingPolicy.matching().shouldWrap("legacy.example.com", 443));
+  }
+
+  @Test
+  void addresses() {
+    WrappingPolicy policy = WrappingPolicy.matching("192.0.2.1", "[2001:db8::1]:443", "2001:db8::2");
+    assertTrue(policy.shouldWrap("192.0.2.1", 443));
+    assertFalse(policy.shouldWrap("192.0.2.2", 443));
+    assertTrue(policy.shouldWrap("2001:db8::1", 443));
+    // other textual forms of the same address
+    assertTrue(policy.shouldWrap("2001:db8:0:0:0:0:0:1", 443));
+    assertTrue(policy.shouldWrap("[2001:DB8::1]", 443));
+    assertFalse(policy.shouldWrap("2001:db8::1", 8443));
+    assertTrue(policy.shouldWrap("2001:db8::2", 8443));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"", ":443", "legacy.example.com:", "legacy.example.com:0", "legacy.example.com:65536",
+    "legacy.example.com:https", "*.", "legacy.*.com", "**.example.com", "[2001:db8::1", "[2001:db8::1]443"})
+  void invalidPatterns(String pattern) {
+    assertThrows(IllegalArgumentException.class, () -> WrappingPolicy.matching(pattern));
+  }
+
+  @Test
+  void manyPatterns() {
+    List<String> patterns = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      patterns.add("host" + i + ".example.com:443");
+      patterns.add("*.zone" + i + ".example.net");
+    }
+    WrappingPolicy policy = WrappingPolicy.matching(patterns);
+    assertTrue(policy.shouldWrap("host9999.example.com", 443));
+    assertTrue(policy.shouldWrap("www.zone9999.example.net", 443));
+    assertFalse(policy.shouldWrap("host10000.example.com", 443));
+    assertFalse(policy.shouldWrap("www.zone10000.example.net", 443));
+  }
+
+}